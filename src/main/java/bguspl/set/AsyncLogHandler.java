@@ -0,0 +1,165 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * A log handler that hands the records to a background writer thread, which formats them and passes them to the
+ * target handler. Logging threads only put the record in a lock-free ring buffer, so they never wait for the
+ * formatting or the disk.
+ * <p>
+ * Notes:
+ * 1. Any number of threads may log at the same time, and each thread's records are written in the order it logged them.
+ * 2. If the buffer is full the record is dropped (the game must never wait for the log). The number of dropped
+ * records is written to the log as soon as there is room again.
+ */
+public class AsyncLogHandler extends Handler {
+
+    /**
+     * How long the writer sleeps when there is nothing to write.
+     */
+    private static final long IDLE_NANOS = 1_000_000;
+
+    private final Handler target;
+
+    /**
+     * The ring buffer: the records, and for every slot the sequence number it is ready for. A slot is free for
+     * the producer of sequence number n when its sequence is n, and holds a record for the writer when it is n + 1.
+     */
+    private final AtomicReferenceArray<LogRecord> records;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private long reportedDropped;
+
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * @param target   - the handler that writes the records.
+     * @param capacity - the number of records the buffer holds (rounded up to a power of 2).
+     */
+    public AsyncLogHandler(Handler target, int capacity) {
+        this.target = target;
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.records = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+        this.mask = size - 1;
+        this.writer = new Thread(this::drain, "log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) return;
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long available = sequences.get(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    records.lazySet(index, record);
+                    sequences.lazySet(index, position + 1);
+                    return;
+                }
+                position = tail.get();
+            } else if (available < 0) {
+                dropped.incrementAndGet(); // the buffer is full
+                return;
+            } else {
+                position = tail.get(); // another thread took this slot
+            }
+        }
+    }
+
+    /**
+     * Waits until all the records logged so far were written, and flushes the target handler.
+     */
+    @Override
+    public void flush() {
+        long until = tail.get();
+        while (head < until && writer.isAlive()) LockSupport.parkNanos(IDLE_NANOS);
+        target.flush();
+    }
+
+    /**
+     * Writes the remaining records, stops the writer and closes the target handler.
+     */
+    @Override
+    public void close() {
+        flush();
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        target.close();
+    }
+
+    /**
+     * The formatter is used by the target handler (on the writer thread).
+     */
+    @Override
+    public synchronized void setFormatter(Formatter formatter) {
+        super.setFormatter(formatter);
+        target.setFormatter(formatter);
+    }
+
+    /**
+     * @return - the number of records dropped so far because the buffer was full.
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    private void drain() {
+        while (!closed || head < tail.get()) {
+            LogRecord record = poll();
+            if (record == null) {
+                reportDropped();
+                LockSupport.parkNanos(IDLE_NANOS);
+                continue;
+            }
+            try {
+                target.publish(record);
+            } catch (RuntimeException e) {
+                reportError("log writer failed", e, ErrorManager.WRITE_FAILURE);
+            }
+        }
+    }
+
+    /**
+     * Called by the writer thread only.
+     */
+    private LogRecord poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) return null;
+        LogRecord record = records.get(index);
+        records.lazySet(index, null);
+        sequences.lazySet(index, position + records.length());
+        head = position + 1;
+        return record;
+    }
+
+    private void reportDropped() {
+        long total = dropped.get();
+        if (total == reportedDropped) return;
+        target.publish(new LogRecord(Level.WARNING, "log buffer full: " + (total - reportedDropped) + " records dropped"));
+        reportedDropped = total;
+    }
+}
@@ -0,0 +1,140 @@
+package bguspl.set;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The decoded card images, shared by all the user interfaces of the process. Images are decoded in the background
+ * (preload) or on first use, and kept in the format of the screen, so drawing them is a plain copy.
+ * <p>
+ * Notes:
+ * 1. The cache keeps at most maximumSize images (0 for no limit), evicting the least recently used one.
+ * 2. The images are not scaled: they are drawn in their original size, as before.
+ */
+public class CardImageCache {
+
+    private static final CardImageCache shared = new CardImageCache();
+
+    /**
+     * The threads that decode the preloaded images.
+     */
+    private static final ExecutorService decoders = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() - 1), runnable -> {
+                Thread thread = new Thread(runnable, "card-image-decoder");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private volatile int maximumSize = -1; // not set yet
+
+    /**
+     * The images by resource name, in least recently used order.
+     */
+    private final LinkedHashMap<String, CompletableFuture<BufferedImage>> images =
+            new LinkedHashMap<String, CompletableFuture<BufferedImage>>(128, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<BufferedImage>> eldest) {
+                    return maximumSize > 0 && size() > maximumSize;
+                }
+            };
+
+    CardImageCache() {
+    }
+
+    /**
+     * @return - the cache shared by all the user interfaces.
+     */
+    public static CardImageCache shared() {
+        return shared;
+    }
+
+    /**
+     * @param maximumSize - the maximum number of images to keep (0 for no limit). Only a larger limit (or no limit)
+     *                    replaces the current one, so the user interfaces sharing the cache all get enough room.
+     */
+    public void requireSize(int maximumSize) {
+        synchronized (images) {
+            if (this.maximumSize != 0 && (maximumSize == 0 || maximumSize > this.maximumSize))
+                this.maximumSize = maximumSize;
+        }
+    }
+
+    /**
+     * Starts decoding images in the background.
+     *
+     * @param names - the resource names of the images.
+     */
+    public void preload(String... names) {
+        for (String name : names)
+            future(name, true);
+    }
+
+    /**
+     * @param name - the resource name of the image.
+     * @return - the decoded image (decoded now, or waits for the background decoding, if needed).
+     * @throws UncheckedIOException - if the image cannot be read.
+     */
+    public BufferedImage get(String name) {
+        try {
+            return future(name, false).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) throw (UncheckedIOException) e.getCause();
+            throw e;
+        }
+    }
+
+    private CompletableFuture<BufferedImage> future(String name, boolean background) {
+        CompletableFuture<BufferedImage> future;
+        synchronized (images) {
+            future = images.get(name);
+            if (future != null) return future;
+            future = new CompletableFuture<>();
+            images.put(name, future);
+        }
+        CompletableFuture<BufferedImage> loading = future;
+        if (background) decoders.execute(() -> decode(name, loading));
+        else decode(name, loading);
+        return future;
+    }
+
+    private static void decode(String name, CompletableFuture<BufferedImage> future) {
+        try {
+            URL resource = CardImageCache.class.getClassLoader().getResource(name);
+            if (resource == null) throw new FileNotFoundException(name);
+            BufferedImage image = ImageIO.read(resource);
+            if (image == null) throw new IOException("cannot decode " + name);
+            future.complete(compatible(image));
+        } catch (IOException e) {
+            future.completeExceptionally(new UncheckedIOException(e));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * @return - the image in the pixel format of the screen (or the image itself when there is no screen).
+     */
+    private static BufferedImage compatible(BufferedImage image) {
+        if (GraphicsEnvironment.isHeadless()) return image;
+        GraphicsConfiguration screen = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration();
+        if (image.getColorModel().equals(screen.getColorModel())) return image;
+        BufferedImage converted = screen.createCompatibleImage(image.getWidth(), image.getHeight(),
+                image.getTransparency());
+        Graphics2D g = converted.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return converted;
+    }
+}
@@ -0,0 +1,170 @@
+package bguspl.set;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Draws the card images from the features of the cards, for decks that have no image files (e.g. more than 4
+ * features or more than 3 values per feature). The drawn tiles have the size of a table cell and the most recently
+ * used ones are cached.
+ * <p>
+ * The features are drawn as:
+ * 1. the number of symbols (1 to featureSize),
+ * 2. the color of the symbols,
+ * 3. the shape of the symbols (an ellipse, then polygons with more and more corners),
+ * 4. the shading of the symbols (from outlined to solid),
+ * 5. and on: a colored segment in a bar at the bottom of the card, one segment per feature.
+ */
+public class CardRenderer {
+
+    private static final int MARGIN = 6;
+    private static final int ARC = 18;
+    private static final int BAR_HEIGHT = 14;
+
+    private final Config config;
+    private final Util util;
+    private final int width;
+    private final int height;
+    private final int maximumSize;
+    private final LinkedHashMap<Integer, BufferedImage> tiles;
+    private BufferedImage empty;
+
+    /**
+     * @param config      - the game configuration (the features and the cell size).
+     * @param util        - for the features of the cards.
+     * @param maximumSize - the maximum number of tiles to cache.
+     */
+    public CardRenderer(Config config, Util util, int maximumSize) {
+        this.config = config;
+        this.util = util;
+        this.width = config.cellWidth;
+        this.height = config.cellHeight;
+        this.maximumSize = Math.max(1, maximumSize);
+        this.tiles = new LinkedHashMap<Integer, BufferedImage>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, BufferedImage> eldest) {
+                return size() > CardRenderer.this.maximumSize;
+            }
+        };
+    }
+
+    /**
+     * @param card - the card id.
+     * @return - the image of the card.
+     */
+    public synchronized BufferedImage card(int card) {
+        BufferedImage tile = tiles.get(card);
+        if (tile == null) {
+            tile = draw(util.cardToFeatures(card));
+            tiles.put(card, tile);
+        }
+        return tile;
+    }
+
+    /**
+     * @return - the image of an empty slot.
+     */
+    public synchronized BufferedImage empty() {
+        if (empty == null) {
+            empty = newTile();
+            Graphics2D g = graphics(empty);
+            g.setColor(Color.LIGHT_GRAY);
+            g.setStroke(new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 1, new float[]{8, 8}, 0));
+            g.drawRoundRect(MARGIN, MARGIN, width - 2 * MARGIN, height - 2 * MARGIN, ARC, ARC);
+            g.dispose();
+        }
+        return empty;
+    }
+
+    private BufferedImage draw(int[] features) {
+        BufferedImage tile = newTile();
+        Graphics2D g = graphics(tile);
+        int size = config.featureSize;
+
+        g.setColor(Color.WHITE);
+        g.fillRoundRect(MARGIN, MARGIN, width - 2 * MARGIN, height - 2 * MARGIN, ARC, ARC);
+        g.setColor(Color.DARK_GRAY);
+        g.drawRoundRect(MARGIN, MARGIN, width - 2 * MARGIN, height - 2 * MARGIN, ARC, ARC);
+
+        int count = features.length > 0 ? features[0] + 1 : 1;
+        Color color = features.length > 1 ? color(features[1], size) : Color.BLACK;
+        int corners = features.length > 2 ? features[2] : 0;
+        float fill = features.length > 3 && size > 1 ? (float) features[3] / (size - 1) : 1;
+
+        // the symbols, side by side and centered
+        int bar = features.length > 4 ? BAR_HEIGHT : 0;
+        int areaWidth = width - 4 * MARGIN;
+        int areaHeight = height - 4 * MARGIN - bar;
+        int slot = areaWidth / Math.max(count, 3);
+        int symbolWidth = slot * 3 / 4;
+        int symbolHeight = Math.min(areaHeight * 4 / 5, symbolWidth * 2);
+        int left = (width - slot * count) / 2 + (slot - symbolWidth) / 2;
+        int top = 2 * MARGIN + (areaHeight - symbolHeight) / 2;
+        g.setStroke(new BasicStroke(2));
+        for (int i = 0; i < count; i++) {
+            Shape shape = shape(corners, left + i * slot, top, symbolWidth, symbolHeight);
+            if (fill > 0) {
+                g.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), Math.round(fill * 255)));
+                g.fill(shape);
+            }
+            g.setColor(color);
+            g.draw(shape);
+        }
+
+        // the rest of the features
+        if (bar > 0) {
+            int segments = features.length - 4;
+            int barWidth = width - 4 * MARGIN;
+            int barTop = height - 2 * MARGIN - bar;
+            for (int i = 0; i < segments; i++) {
+                int x = 2 * MARGIN + barWidth * i / segments;
+                int segmentWidth = 2 * MARGIN + barWidth * (i + 1) / segments - x;
+                g.setColor(color(features[4 + i], size));
+                g.fillRect(x, barTop, segmentWidth - 1, bar);
+            }
+        }
+        g.dispose();
+        return tile;
+    }
+
+    /**
+     * @return - a color per feature value, spread evenly around the color wheel.
+     */
+    private static Color color(int value, int size) {
+        return Color.getHSBColor((float) value / size, 0.85f, 0.8f);
+    }
+
+    /**
+     * @return - an ellipse for 0 corners, otherwise a polygon with corners + 2 corners.
+     */
+    private static Shape shape(int corners, int x, int y, int width, int height) {
+        if (corners == 0) return new Ellipse2D.Float(x, y, width, height);
+        int points = corners + 2;
+        Path2D.Float polygon = new Path2D.Float();
+        for (int i = 0; i < points; i++) {
+            double angle = -Math.PI / 2 + 2 * Math.PI * i / points;
+            double px = x + width / 2.0 + Math.cos(angle) * width / 2.0;
+            double py = y + height / 2.0 + Math.sin(angle) * height / 2.0;
+            if (i == 0) polygon.moveTo(px, py);
+            else polygon.lineTo(px, py);
+        }
+        polygon.closePath();
+        return polygon;
+    }
+
+    private BufferedImage newTile() {
+        if (GraphicsEnvironment.isHeadless()) return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration()
+                .createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+
+    private static Graphics2D graphics(BufferedImage tile) {
+        Graphics2D g = tile.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        return g;
+    }
+}
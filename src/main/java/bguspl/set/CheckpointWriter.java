@@ -0,0 +1,72 @@
+package bguspl.set;
+
+import bguspl.set.ex.Checkpoint;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * Writes the checkpoints of all the games in the background, so the dealer only pays for copying the state. When
+ * checkpoints of a game come faster than they are written, only the latest one is written.
+ */
+public class CheckpointWriter {
+
+    /**
+     * The thread that writes the checkpoints of all the games.
+     */
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "game-checkpoints");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The checkpoints that were not written yet, by file.
+     */
+    private static final ConcurrentHashMap<File, Checkpoint> pending = new ConcurrentHashMap<>();
+
+    private CheckpointWriter() {
+    }
+
+    /**
+     * Writes the checkpoint to the file (replacing the previous one atomically) in the background.
+     */
+    public static void write(File file, Checkpoint checkpoint, Logger logger) {
+        if (pending.put(file, checkpoint) != null) return; // a write of the file is queued and will take this one
+        writer.execute(() -> {
+            Checkpoint latest = pending.remove(file);
+            try {
+                latest.save(file);
+            } catch (IOException e) {
+                logger.warning("cannot write the checkpoint " + file + ": " + e);
+            }
+        });
+    }
+
+    /**
+     * Deletes the checkpoint file in the background, after the writes queued before.
+     */
+    public static void delete(File file) {
+        writer.execute(() -> {
+            pending.remove(file);
+            if (file.exists() && !file.delete()) file.deleteOnExit();
+        });
+    }
+
+    /**
+     * Waits until the checkpoints queued so far are written.
+     */
+    public static void flush() throws InterruptedException {
+        try {
+            writer.submit(() -> {
+            }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package bguspl.set;
+
+/**
+ * The source of time for the game entities. All the waiting done by the dealer, the players and the table goes
+ * through this interface, so the game can run either on the wall clock or on a simulated one.
+ */
+public interface Clock {
+
+    /**
+     * @return - the current time in milliseconds.
+     */
+    long millis();
+
+    /**
+     * Blocks the calling thread for the given number of milliseconds.
+     *
+     * @param millis - the time to sleep.
+     * @throws InterruptedException - if the thread was interrupted while sleeping.
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * Waits on the monitor until it is signalled or until the timeout elapses (like Object.wait, the caller must own
+     * the monitor and spurious wake-ups are possible).
+     *
+     * @param monitor - the monitor to wait on.
+     * @param timeout - the maximum time to wait in milliseconds (0 means no timeout).
+     * @throws InterruptedException - if the thread was interrupted while waiting.
+     */
+    void await(Object monitor, long timeout) throws InterruptedException;
+
+    /**
+     * Lets the given time pass while the calling thread holds locks that the other threads may need. On the wall clock
+     * this is a sleep; a simulated clock moves on without letting any other thread run in the meantime, since they
+     * could only get stuck on those locks.
+     *
+     * @param millis - the time to pass.
+     * @throws InterruptedException - if the thread was interrupted while pausing.
+     */
+    void pause(long millis) throws InterruptedException;
+
+    /**
+     * Announces a thread that is about to start and that is going to wait on this clock, so the time does not move
+     * on before it had a chance to run. The thread must call started() before anything else and finished() as its
+     * very last action (ThreadLogger does all three for the threads it is given a clock; announcing a thread again
+     * has no effect).
+     *
+     * @param thread - the new thread.
+     */
+    void register(Thread thread);
+
+    /**
+     * Called by a registered thread when it starts (a simulated clock holds it there until its turn to run).
+     */
+    void started();
+
+    /**
+     * Called by a registered thread when it is done, so the clock stops counting it.
+     */
+    void finished();
+
+    /**
+     * Waits for the thread to terminate (like Thread.join).
+     *
+     * @param thread - the thread to wait for.
+     * @throws InterruptedException - if the calling thread was interrupted while waiting.
+     */
+    void join(Thread thread) throws InterruptedException;
+
+    /**
+     * Interrupts the thread (like Thread.interrupt). If the thread waits on this clock, the wait ends with an
+     * InterruptedException.
+     *
+     * @param thread - the thread to interrupt.
+     */
+    void interrupt(Thread thread);
+
+    /**
+     * Wakes up all the threads waiting on the monitor (like Object.notifyAll, the caller must own the monitor).
+     *
+     * @param monitor - the monitor to signal.
+     */
+    void signal(Object monitor);
+}
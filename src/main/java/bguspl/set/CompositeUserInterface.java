@@ -0,0 +1,83 @@
+package bguspl.set;
+
+/**
+ * Shows the game on several user interfaces at once (e.g. the window and the spectator server).
+ */
+public class CompositeUserInterface implements UserInterface {
+
+    private final UserInterface[] uis;
+
+    public CompositeUserInterface(UserInterface... uis) {
+        this.uis = uis.clone();
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        for (UserInterface ui : uis) ui.placeCard(card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        for (UserInterface ui : uis) ui.removeCard(slot);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        for (UserInterface ui : uis) ui.placeToken(player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        for (UserInterface ui : uis) ui.removeTokens();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        for (UserInterface ui : uis) ui.removeTokens(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        for (UserInterface ui : uis) ui.removeToken(player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        for (UserInterface ui : uis) ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        for (UserInterface ui : uis) ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        for (UserInterface ui : uis) ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        for (UserInterface ui : uis) ui.setScore(player, score);
+    }
+
+    @Override
+    public void restoreScore(int player, int score) {
+        for (UserInterface ui : uis) ui.restoreScore(player, score);
+    }
+
+    @Override
+    public void restoreToken(int player, int slot) {
+        for (UserInterface ui : uis) ui.restoreToken(player, slot);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        for (UserInterface ui : uis) ui.announceWinner(players);
+    }
+
+    @Override
+    public void dispose() {
+        for (UserInterface ui : uis) ui.dispose();
+    }
+}
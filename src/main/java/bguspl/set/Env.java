@@ -1,18 +1,77 @@
-package bguspl.set;
-
-import java.util.logging.Logger;
-
-public class Env {
-
-    public final Logger logger;
-    public final Config config;
-    public final UserInterface ui;
-    public final Util util;
-
-    public Env(Logger logger, Config config, UserInterface ui, Util util) {
-        this.logger = logger;
-        this.config = config;
-        this.ui = ui;
-        this.util = util;
-    }
-}
+package bguspl.set;
+
+import java.util.SplittableRandom;
+import java.util.logging.Logger;
+
+public class Env {
+
+    /**
+     * The number of journal events that can wait for the journal writer.
+     */
+    private static final int JOURNAL_BUFFER_SIZE = 16384;
+
+    public final Logger logger;
+    public final Config config;
+    public final UserInterface ui;
+    public final Util util;
+    public final Clock clock;
+
+    /**
+     * The metrics of the game's hot paths.
+     */
+    public final GameMetrics metrics;
+
+    /**
+     * The profiler of the game's locks (does nothing unless config.profileLocks).
+     */
+    public final LockProfiler locks;
+
+    /**
+     * The resources used by the game's threads.
+     */
+    public final ThreadAccounting accounting;
+
+    /**
+     * The binary journal of the game (journals nothing unless it is opened, see config.journalDirectory).
+     */
+    public final GameJournal journal;
+
+    /**
+     * The root of the game's random streams (seeded by config.seed).
+     */
+    private final SplittableRandom random;
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, clock(config));
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Clock clock) {
+        this.logger = logger;
+        this.config = config;
+        this.journal = new GameJournal(config, JOURNAL_BUFFER_SIZE);
+        this.ui = config.journalDirectory.isEmpty() ? ui : new CompositeUserInterface(ui, journal);
+        this.util = util;
+        this.clock = clock;
+        this.metrics = new GameMetrics(config.players);
+        this.locks = new LockProfiler(config.profileLocks);
+        this.accounting = new ThreadAccounting();
+        this.random = new SplittableRandom(config.seed);
+    }
+
+    /**
+     * @return - a new clock of the kind the configuration asks for (see config.virtualTime).
+     */
+    public static Clock clock(Config config) {
+        return config.virtualTime ? new VirtualClock() : new RealClock();
+    }
+
+    /**
+     * Creates an independent random stream for a game component. Components must be created in the same order for
+     * a seed to reproduce the same game.
+     *
+     * @return - a new random stream.
+     */
+    public synchronized SplittableRandom splitRandom() {
+        return random.split();
+    }
+}
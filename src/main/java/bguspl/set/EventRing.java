@@ -0,0 +1,71 @@
+package bguspl.set;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The events that were published lately, for readers that each read at their own pace (e.g. the spectators).
+ * Publishing is lock-free and never waits: the oldest events are overwritten, and a reader that fell behind by more
+ * than the size of the ring finds out when it reads.
+ *
+ * @param <T> - the type of the events.
+ */
+class EventRing<T> {
+
+    private static final class Event<T> {
+        final long sequence;
+        final T value;
+
+        Event(long sequence, T value) {
+            this.sequence = sequence;
+            this.value = value;
+        }
+    }
+
+    private final AtomicReferenceArray<Event<T>> ring;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * @param size - the number of events kept (rounded up to a power of 2).
+     */
+    EventRing(int size) {
+        int capacity = Integer.highestOneBit(Math.max(2, size - 1)) << 1;
+        ring = new AtomicReferenceArray<>(capacity);
+        mask = capacity - 1;
+    }
+
+    void publish(T value) {
+        long sequence = next.getAndIncrement();
+        ring.set((int) sequence & mask, new Event<>(sequence, value));
+    }
+
+    /**
+     * @return - the sequence number of the next event to be published.
+     */
+    long next() {
+        return next.get();
+    }
+
+    /**
+     * Reads the events that were published from the given sequence number on (stops at the first one that is not
+     * written yet).
+     *
+     * @param from - the sequence number of the first event to read.
+     * @param out  - where to add the events.
+     * @return - the sequence number to read from next time, or -1 if some of the events were already overwritten.
+     */
+    long read(long from, List<T> out) {
+        long sequence = from;
+        long until = next.get();
+        if (until - from > ring.length()) return -1;
+        for (; sequence < until; sequence++) {
+            Event<T> event = ring.get((int) sequence & mask);
+            if (event == null || event.sequence < sequence) break; // not written yet
+            if (event.sequence > sequence) return -1; // overwritten
+            out.add(event.value);
+        }
+        return sequence;
+    }
+}
@@ -0,0 +1,304 @@
+package bguspl.set;
+
+import bguspl.set.ex.Checkpoint;
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import javax.management.JMException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A single game: its own environment, table, dealer and players. All the threads of the game (the dealer, the
+ * players and the AI threads) run in the game's thread group, which is what the per-game accounting relies on.
+ */
+public class Game implements Runnable {
+
+    /**
+     * The life cycle of a game.
+     */
+    public enum State {CREATED, RUNNING, FINISHED, STOPPED}
+
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * The id of the game (unique in its host).
+     */
+    public final int id;
+
+    /**
+     * The game environment object.
+     */
+    public final Env env;
+
+    /**
+     * Game entities.
+     */
+    private final Table table;
+    private final Dealer dealer;
+    private final Player[] players;
+
+    /**
+     * The thread group the threads of this game are created in.
+     */
+    private final ThreadGroup threads;
+
+    private volatile State state = State.CREATED;
+    private volatile boolean stopRequested;
+    private final long createdNanos;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private int peakThreads;
+
+    /**
+     * The last CPU time sampled for each of the game's threads (also the ones that terminated since).
+     */
+    private final Map<Long, Long> threadCpuNanos = new HashMap<>();
+
+    /**
+     * @param id      - the id of the game.
+     * @param logger  - the logger of this game.
+     * @param config  - the configuration of this game.
+     * @param ui      - the user interface of this game.
+     * @param players - an array of config.players entries to fill with the players (the user interface may need it
+     *                before the players exist).
+     */
+    public Game(int id, Logger logger, Config config, UserInterface ui, Player[] players) {
+        this(id, logger, config, ui, players, Env.clock(config));
+    }
+
+    /**
+     * @param clock - the clock of the game (the user interface may need it before the game exists).
+     */
+    public Game(int id, Logger logger, Config config, UserInterface ui, Player[] players, Clock clock) {
+        this.id = id;
+        this.env = new Env(logger, config, ui, new UtilImpl(config), clock);
+        this.players = players;
+        this.table = new Table(env);
+        this.dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, i < config.humanPlayers);
+        this.threads = new ThreadGroup("game-" + id);
+        this.createdNanos = System.nanoTime();
+    }
+
+    public Game(int id, Logger logger, Config config, UserInterface ui) {
+        this(id, logger, config, ui, new Player[config.players]);
+    }
+
+    /**
+     * Runs the game to its end (or until it is stopped) on the calling thread.
+     */
+    @Override
+    public void run() {
+        synchronized (this) {
+            if (stopRequested) {
+                state = State.STOPPED;
+                return;
+            }
+            state = State.RUNNING;
+            startNanos = System.nanoTime();
+        }
+        try {
+            env.metrics.register("game-" + id);
+            env.accounting.register("game-" + id);
+        } catch (JMException e) {
+            env.logger.warning("cannot publish the metrics of game " + id + ": " + e);
+        }
+        if (env.config.metricsSnapshotMillis > 0)
+            env.metrics.startSnapshots(env.logger, env.config.metricsSnapshotMillis);
+        if (!env.config.journalDirectory.isEmpty()) {
+            File file = new File(env.config.journalDirectory,
+                    new SimpleDateFormat("M-d_HH-mm-ss").format(new Date()) + "-game-" + id + ".journal");
+            try {
+                env.journal.open(file);
+                env.logger.info("journal: " + file);
+            } catch (IOException | IllegalArgumentException e) {
+                env.logger.warning("cannot write the journal of game " + id + ": " + e);
+            }
+        }
+        File checkpoint = env.config.checkpointDirectory.isEmpty() ? null
+                : new File(env.config.checkpointDirectory, "game-" + id + ".checkpoint");
+        if (checkpoint != null) resume(checkpoint);
+        ThreadLogger dealerThread = new ThreadLogger(threads, dealer, "dealer", env.logger, env.accounting,
+                LockProfiler.Role.DEALER, env.clock);
+        dealerThread.startWithLog();
+        try {
+            dealerThread.joinWithLog();
+        } catch (InterruptedException e) {
+            stop();
+            Thread.currentThread().interrupt();
+        } finally {
+            sampleThreads();
+            endNanos = System.nanoTime();
+            env.metrics.stopSnapshots();
+            try {
+                env.journal.close();
+            } catch (IOException e) {
+                env.logger.warning("cannot close the journal of game " + id + ": " + e);
+            }
+            if (env.logger.isLoggable(Level.INFO))
+                env.logger.log(Level.INFO, "metrics: {0}", env.metrics.getSnapshot());
+            env.metrics.unregister();
+            env.accounting.unregister();
+            if (env.logger.isLoggable(Level.INFO)) env.logger.info(env.accounting.report());
+            if (env.locks.enabled()) env.logger.info(env.locks.report());
+            state = stopRequested ? State.STOPPED : State.FINISHED;
+            if (state == State.FINISHED && !env.config.statsFile.isEmpty()) recordResults();
+            // a stopped game keeps its checkpoint, to resume from it when it runs again
+            if (checkpoint != null && state == State.FINISHED) CheckpointWriter.delete(checkpoint);
+            if (checkpoint != null) {
+                try {
+                    CheckpointWriter.flush();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends the players' results to the stats store.
+     */
+    private void recordResults() {
+        int[] winners = dealer.winners();
+        if (winners == null) return;
+        double[] claimLatency = env.metrics.getAverageClaimLatency();
+        List<StatsStore.Record> results = new ArrayList<>(players.length);
+        long now = System.currentTimeMillis();
+        for (Player player : players) {
+            StatsStore.Record record = new StatsStore.Record();
+            record.timeMillis = now;
+            record.seed = env.config.seed;
+            record.name = env.config.playerNames[player.id];
+            record.players = players.length;
+            for (int winner : winners) record.won |= winner == player.id;
+            record.sets = player.score();
+            record.claimLatencyMicros = (int) Math.round(claimLatency[player.id] * 1000);
+            results.add(record);
+        }
+        try {
+            StatsStore.shared(new File(env.config.statsFile)).append(results);
+        } catch (IOException e) {
+            env.logger.warning("cannot record the results of game " + id + ": " + e);
+        }
+    }
+
+    /**
+     * Resumes the game from its checkpoint (if there is one of a game with the same configuration) and has the dealer
+     * keep it up to date.
+     */
+    private void resume(File file) {
+        if (file.exists()) {
+            try {
+                Checkpoint checkpoint = Checkpoint.load(file);
+                if (checkpoint.configHash() == env.config.hash && checkpoint.players() == players.length) {
+                    dealer.resume(checkpoint);
+                    env.logger.info("game " + id + " resumed from " + file + " with " + checkpoint.remainingCards()
+                            + " cards left");
+                } else {
+                    env.logger.warning("the checkpoint " + file + " is of a game with another configuration, starting over");
+                }
+            } catch (IOException e) {
+                env.logger.warning("cannot resume from the checkpoint " + file + ": " + e);
+            }
+        }
+        File directory = file.getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs())
+            env.logger.warning("cannot create the checkpoint directory " + directory);
+        dealer.checkpointTo(checkpoint -> CheckpointWriter.write(file, checkpoint, env.logger),
+                env.config.checkpointMillis);
+    }
+
+    /**
+     * Stops the game. A game that did not start yet will not start at all.
+     */
+    public void stop() {
+        synchronized (this) {
+            stopRequested = true;
+            if (state != State.RUNNING) return;
+        }
+        dealer.terminate();
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public Player[] players() {
+        return players;
+    }
+
+    /**
+     * @return - the resources used by the game so far.
+     */
+    public Stats stats() {
+        sampleThreads();
+        Stats stats = new Stats();
+        stats.id = id;
+        stats.state = state;
+        long now = System.nanoTime();
+        stats.queuedNanos = (startNanos == 0 ? now : startNanos) - createdNanos;
+        stats.wallNanos = startNanos == 0 ? 0 : (endNanos == 0 ? now : endNanos) - startNanos;
+        stats.liveThreads = threads.activeCount();
+        synchronized (threadCpuNanos) {
+            stats.peakThreads = peakThreads;
+            stats.cpuNanos = threadCpuNanos.values().stream().mapToLong(Long::longValue).sum();
+        }
+        for (Player player : players)
+            if (player != null) stats.totalScore += player.score();
+        stats.deadRoundsAvoided = dealer.deadRoundsAvoided();
+        stats.deadRoundsReshuffled = dealer.deadRoundsReshuffled();
+        return stats;
+    }
+
+    /**
+     * Records the CPU time of the live threads of the game. Threads that ended between two samples are accounted
+     * for with their last sampled value.
+     */
+    private void sampleThreads() {
+        Thread[] live = new Thread[threads.activeCount() + 8];
+        int count = threads.enumerate(live);
+        synchronized (threadCpuNanos) {
+            peakThreads = Math.max(peakThreads, count);
+            for (int i = 0; i < count; i++) {
+                long cpu = threadBean.isThreadCpuTimeSupported() ? threadBean.getThreadCpuTime(live[i].getId()) : -1;
+                if (cpu >= 0) threadCpuNanos.put(live[i].getId(), cpu);
+            }
+        }
+    }
+
+    /**
+     * The per-game resource accounting.
+     */
+    public static class Stats {
+        public int id;
+        public State state;
+        public long queuedNanos;
+        public long wallNanos;
+        public long cpuNanos;
+        public int liveThreads;
+        public int peakThreads;
+        public int totalScore;
+        public int deadRoundsAvoided;
+        public int deadRoundsReshuffled;
+
+        @Override
+        public String toString() {
+            return String.format("game %d: %s, queued %.1f ms, wall %.1f ms, cpu %.1f ms, threads %d (peak %d), sets %d, dead rounds avoided %d, reshuffled %d",
+                    id, state, queuedNanos / 1e6, wallNanos / 1e6, cpuNanos / 1e6, liveThreads, peakThreads, totalScore,
+                    deadRoundsAvoided, deadRoundsReshuffled);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package bguspl.set;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The Java Flight Recorder events of the game (see set-game.jfc for a recording profile that enables them).
+ * The events follow the usual JFR pattern: create, begin, and set the fields and commit only if shouldCommit(). The game
+ * creates them through the factory methods below, which return null while the event is disabled, so a game that is not
+ * recorded does not allocate an event object on every table operation.
+ */
+public final class GameEvents {
+
+    private static final String CATEGORY = "Set Card Game";
+
+    private static final EventType DEALER_PHASE = EventType.getEventType(DealerPhase.class);
+    private static final EventType CLAIM = EventType.getEventType(Claim.class);
+    private static final EventType VERDICT = EventType.getEventType(Verdict.class);
+    private static final EventType TABLE_LOCK = EventType.getEventType(TableLock.class);
+    private static final EventType FREEZE = EventType.getEventType(Freeze.class);
+    private static final EventType KEY_BURST = EventType.getEventType(KeyBurst.class);
+
+    private GameEvents() {
+    }
+
+    /**
+     * @return - a begun DealerPhase event, or null if the event is disabled.
+     */
+    public static DealerPhase dealerPhase() {
+        if (!DEALER_PHASE.isEnabled()) return null;
+        DealerPhase event = new DealerPhase();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @return - a Claim event, or null if the event is disabled.
+     */
+    public static Claim claim() {
+        return CLAIM.isEnabled() ? new Claim() : null;
+    }
+
+    /**
+     * @return - a begun Verdict event, or null if the event is disabled.
+     */
+    public static Verdict verdict() {
+        if (!VERDICT.isEnabled()) return null;
+        Verdict event = new Verdict();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @return - a begun TableLock event, or null if the event is disabled.
+     */
+    public static TableLock tableLock() {
+        if (!TABLE_LOCK.isEnabled()) return null;
+        TableLock event = new TableLock();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @return - a begun Freeze event, or null if the event is disabled.
+     */
+    public static Freeze freeze() {
+        if (!FREEZE.isEnabled()) return null;
+        Freeze event = new Freeze();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @return - a begun KeyBurst event, or null if the event is disabled.
+     */
+    public static KeyBurst keyBurst() {
+        if (!KEY_BURST.isEnabled()) return null;
+        KeyBurst event = new KeyBurst();
+        event.begin();
+        return event;
+    }
+
+    @Name("bguspl.set.DealerPhase")
+    @Label("Dealer Phase")
+    @Category({CATEGORY, "Dealer"})
+    @Description("A phase of a dealer round: placeCardsOnTable, timerLoop or removeAllCardsFromTable")
+    @StackTrace(false)
+    public static class DealerPhase extends Event {
+        @Label("Phase")
+        public String phase;
+
+        @Label("Cards on Table")
+        public int cards;
+
+        @Label("Cards in Deck")
+        public int deck;
+
+        public void commit(String phase, int cards, int deck) {
+            end(); // the duration is only known to shouldCommit (and the threshold) once the event ended
+            if (!shouldCommit()) return;
+            this.phase = phase;
+            this.cards = cards;
+            this.deck = deck;
+            commit();
+        }
+    }
+
+    @Name("bguspl.set.Claim")
+    @Label("Claim")
+    @Category({CATEGORY, "Player"})
+    @Description("A player claimed a set")
+    @StackTrace(false)
+    public static class Claim extends Event {
+        @Label("Player")
+        public int player;
+
+        @Label("Slots")
+        public String slots;
+
+        public void commit(int player, int[] slots) {
+            if (!shouldCommit()) return;
+            this.player = player;
+            this.slots = join(slots);
+            commit();
+        }
+    }
+
+    @Name("bguspl.set.Verdict")
+    @Label("Verdict")
+    @Category({CATEGORY, "Dealer"})
+    @Description("The dealer checked a claimed set")
+    @StackTrace(false)
+    public static class Verdict extends Event {
+        public static final String LEGAL = "legal";
+        public static final String ILLEGAL = "illegal";
+        public static final String STALE = "stale";
+
+        @Label("Player")
+        public int player;
+
+        @Label("Slots")
+        public String slots;
+
+        @Label("Cards")
+        public String cards;
+
+        @Label("Outcome")
+        @Description("legal, illegal or stale (another player took some of the cards first)")
+        public String outcome;
+
+        @Label("Claim Latency")
+        @Description("The time from the claim to the verdict")
+        @Timespan(Timespan.NANOSECONDS)
+        public long claimLatency;
+    }
+
+    @Name("bguspl.set.TableLock")
+    @Label("Table Lock")
+    @Category({CATEGORY, "Locks"})
+    @Description("The table lock was held")
+    @StackTrace(false)
+    public static class TableLock extends Event {
+        @Label("Operation")
+        public String operation;
+
+        @Label("Player")
+        @Description("The player that held the lock (-1 for the dealer)")
+        public int player;
+
+        public void commit(String operation, int player) {
+            end(); // the duration is only known to shouldCommit (and the threshold) once the event ended
+            if (!shouldCommit()) return;
+            this.operation = operation;
+            this.player = player;
+            commit();
+        }
+    }
+
+    @Name("bguspl.set.Freeze")
+    @Label("Freeze")
+    @Category({CATEGORY, "Player"})
+    @Description("A player was frozen after a verdict")
+    @StackTrace(false)
+    public static class Freeze extends Event {
+        @Label("Player")
+        public int player;
+
+        @Label("Reason")
+        @Description("point or penalty")
+        public String reason;
+
+        public void commit(int player, String reason) {
+            end(); // the duration is only known to shouldCommit (and the threshold) once the event ended
+            if (!shouldCommit()) return;
+            this.player = player;
+            this.reason = reason;
+            commit();
+        }
+    }
+
+    @Name("bguspl.set.KeyBurst")
+    @Label("AI Key Burst")
+    @Category({CATEGORY, "Player"})
+    @Description("The key presses an AI player made until one was not accepted")
+    @StackTrace(false)
+    public static class KeyBurst extends Event {
+        @Label("Player")
+        public int player;
+
+        @Label("Key Presses")
+        public int presses;
+
+        public void commit(int player, int presses) {
+            end(); // the duration is only known to shouldCommit (and the threshold) once the event ended
+            if (!shouldCommit()) return;
+            this.player = player;
+            this.presses = presses;
+            commit();
+        }
+    }
+
+    /**
+     * @return - the values separated by commas (for the event fields).
+     */
+    public static String join(int[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) sb.append(i == 0 ? "" : ",").append(values[i]);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,149 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+
+/**
+ * Hosts many independent games in one process. At most maxRunningGames games run at the same time, the rest wait in
+ * a bounded queue. Every game gets its own logger, configuration and environment, so games never share state.
+ */
+public class GameHost {
+
+    /**
+     * How often the resources of the running games are sampled.
+     */
+    private static final long ACCOUNTING_PERIOD_MILLIS = 500;
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService accounting;
+    private final Map<Integer, Game> games = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final Handler logHandler;
+    private volatile boolean draining;
+
+    /**
+     * @param maxRunningGames - the maximum number of games that run at the same time.
+     * @param maxQueuedGames  - the maximum number of games that wait for a free slot.
+     * @param logHandler      - the handler all the games log to (null for no logging).
+     */
+    public GameHost(int maxRunningGames, int maxQueuedGames, Handler logHandler) {
+        AtomicInteger slot = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxRunningGames, maxRunningGames, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(maxQueuedGames), runnable -> new Thread(runnable, "game-slot-" + slot.incrementAndGet()));
+        this.accounting = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-host-accounting");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.accounting.scheduleAtFixedRate(this::sampleRunningGames,
+                ACCOUNTING_PERIOD_MILLIS, ACCOUNTING_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        this.logHandler = logHandler;
+    }
+
+    /**
+     * Creates a game and queues it for running.
+     *
+     * @param properties - the configuration of the game.
+     * @param ui         - the user interface of the game.
+     * @return - the new game.
+     * @throws RejectedExecutionException - if the host is draining or its queue is full.
+     */
+    public Game start(Properties properties, UserInterface ui) {
+        if (draining) throw new RejectedExecutionException("game host is draining");
+        int id = nextId.incrementAndGet();
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Config config = new Config(logger, properties);
+        if (logHandler != null) logger.addHandler(logHandler);
+
+        Game game = new Game(id, logger, config, ui);
+        games.put(id, game);
+        try {
+            executor.execute(game);
+        } catch (RejectedExecutionException e) {
+            games.remove(id);
+            throw e;
+        }
+        return game;
+    }
+
+    /**
+     * Stops a game (a queued game will not start).
+     *
+     * @param id - the id of the game.
+     */
+    public void stop(int id) {
+        Game game = games.get(id);
+        if (game != null) game.stop();
+    }
+
+    /**
+     * Stops accepting new games and waits for the queued and running games to end.
+     *
+     * @param timeout - the maximum time to wait.
+     * @param unit    - the unit of the timeout.
+     * @return - true iff all games ended within the timeout.
+     */
+    public boolean drain(long timeout, TimeUnit unit) throws InterruptedException {
+        draining = true;
+        executor.shutdown();
+        boolean drained = executor.awaitTermination(timeout, unit);
+        if (drained) accounting.shutdown();
+        return drained;
+    }
+
+    /**
+     * Stops all the games, running and queued, and waits for them to end.
+     */
+    public void shutdown() throws InterruptedException {
+        draining = true;
+        games.values().forEach(Game::stop);
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        accounting.shutdown();
+    }
+
+    /**
+     * @return - the games of this host (the ended games are kept until they are removed).
+     */
+    public List<Game> games() {
+        return new ArrayList<>(games.values());
+    }
+
+    /**
+     * Forgets an ended game.
+     *
+     * @param id - the id of the game.
+     */
+    public void remove(int id) {
+        games.computeIfPresent(id, (key, game) ->
+                game.state() == Game.State.FINISHED || game.state() == Game.State.STOPPED ? null : game);
+    }
+
+    /**
+     * @return - the resource accounting of every game of this host.
+     */
+    public List<Game.Stats> stats() {
+        List<Game.Stats> stats = new ArrayList<>();
+        for (Game game : games.values())
+            stats.add(game.stats());
+        return stats;
+    }
+
+    private void sampleRunningGames() {
+        for (Game game : games.values())
+            if (game.state() == Game.State.RUNNING) game.stats();
+    }
+}
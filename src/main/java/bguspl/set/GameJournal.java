@@ -0,0 +1,461 @@
+package bguspl.set;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An append-only binary journal of a game: the seed and the configuration hash, and then every card placed or
+ * removed, token placed or removed, claim, verdict, score, freeze and countdown change, with its time. It is enough
+ * to replay the game on a user interface (see {@link JournalReplay}) at a fraction of the size of the text log.
+ * <p>
+ * The format (all numbers are zigzag varints unless noted):
+ * header: the magic "SETJ" (4 bytes), the version (1 byte), the seed, the configuration hash (8 bytes), the start
+ * time (epoch milliseconds), the number of players, the rows and the columns of the table, the feature size and the
+ * feature count (version 1 had the table size instead of its rows and columns).
+ * event: the type (1 byte), the microseconds since the previous event, and then the arguments of the type.
+ * <p>
+ * Notes:
+ * 1. The game threads only put the event in a lock-free ring buffer (no allocation, no locks), and a background
+ * writer thread encodes and writes it, so the game never waits for the disk.
+ * 2. If the buffer is full the event is dropped (the game must never wait for the journal). The number of dropped
+ * events is written to the journal as a DROPPED event as soon as there is room again.
+ * 3. The slots of a claim and the players of the winners are written as bitmasks, so there can be at most 64 slots
+ * and 64 players.
+ */
+public class GameJournal implements UserInterface, Closeable {
+
+    static final int MAGIC = 0x5345544A; // "SETJ"
+    static final int VERSION = 2;
+
+    /**
+     * The event types.
+     */
+    public static final int PLACE_CARD = 1;        // card, slot
+    public static final int REMOVE_CARD = 2;       // slot
+    public static final int PLACE_TOKEN = 3;       // player, slot
+    public static final int REMOVE_TOKEN = 4;      // player, slot
+    public static final int REMOVE_TOKENS = 5;     // -
+    public static final int REMOVE_SLOT_TOKENS = 6; // slot
+    public static final int COUNTDOWN = 7;         // millis, warn (0 or 1)
+    public static final int ELAPSED = 8;           // millis
+    public static final int FREEZE = 9;            // player, millis
+    public static final int SCORE = 10;            // player, score
+    public static final int CLAIM = 11;            // player, slots bitmask
+    public static final int VERDICT = 12;          // player, outcome
+    public static final int WINNERS = 13;          // players bitmask
+    public static final int DROPPED = 14;          // the number of events dropped before this one
+
+    /**
+     * The outcomes of a verdict.
+     */
+    public static final int LEGAL = 0;
+    public static final int ILLEGAL = 1;
+    public static final int STALE = 2;
+
+    /**
+     * The number of arguments of each event type.
+     */
+    private static final int[] ARGUMENTS = {0, 2, 1, 2, 2, 0, 1, 2, 1, 2, 2, 2, 2, 1, 1};
+
+    /**
+     * How long the writer sleeps when there is nothing to write.
+     */
+    private static final long IDLE_NANOS = 1_000_000;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final Config config;
+    private final int capacity;
+
+    /**
+     * The ring buffer (allocated when the journal is opened): the events, and for every slot the sequence number it
+     * is ready for (as in AsyncLogHandler). The fields of an event are written before its sequence is published, and
+     * read after it is.
+     */
+    private int[] types;
+    private long[] times;
+    private long[] firsts;
+    private long[] seconds;
+    private AtomicLongArray sequences;
+    private int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+    private final AtomicLong dropped = new AtomicLong();
+    private long reportedDropped;
+
+    private volatile boolean open;
+    private volatile boolean closed;
+    private DataOutputStream out;
+    private Thread writer;
+    private long lastNanos;
+    private volatile long written; // only the writer thread changes it
+
+    /**
+     * @param config   - the game configuration.
+     * @param capacity - the number of events the buffer holds (rounded up to a power of 2).
+     */
+    public GameJournal(Config config, int capacity) {
+        this.config = config;
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    }
+
+    /**
+     * Starts journaling to the file (the events before that are not journaled).
+     *
+     * @param file - the journal file (replaced if it exists).
+     */
+    public synchronized void open(File file) throws IOException {
+        if (open || closed) throw new IllegalStateException("the journal can be opened only once");
+        if (config.players > Long.SIZE || config.tableSize > Long.SIZE)
+            throw new IllegalArgumentException("too many players or slots for the journal");
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("cannot create " + directory);
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_BYTES));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        writeVarint(config.seed);
+        out.writeLong(config.hash);
+        writeVarint(System.currentTimeMillis());
+        writeVarint(config.players);
+        writeVarint(config.rows);
+        writeVarint(config.columns);
+        writeVarint(config.featureSize);
+        writeVarint(config.featureCount);
+        types = new int[capacity];
+        times = new long[capacity];
+        firsts = new long[capacity];
+        seconds = new long[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) sequences.set(i, i);
+        mask = capacity - 1;
+        lastNanos = System.nanoTime();
+        writer = new Thread(this::drain, "journal-writer");
+        writer.setDaemon(true);
+        open = true; // publishes the ring buffer to the game threads
+        writer.start();
+    }
+
+    /**
+     * Writes the remaining events and closes the journal file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        if (!open) return;
+        open = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.close();
+    }
+
+    /**
+     * @return - the number of events dropped so far because the buffer was full.
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return - the number of events written so far.
+     */
+    public long written() {
+        return written;
+    }
+
+    private void record(int type, long first, long second) {
+        if (!open) return;
+        long now = System.nanoTime();
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long available = sequences.get(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    types[index] = type;
+                    times[index] = now;
+                    firsts[index] = first;
+                    seconds[index] = second;
+                    sequences.lazySet(index, position + 1);
+                    return;
+                }
+                position = tail.get();
+            } else if (available < 0) {
+                dropped.incrementAndGet(); // the buffer is full
+                return;
+            } else {
+                position = tail.get(); // another thread took this slot
+            }
+        }
+    }
+
+    /**
+     * Journals a claim (the player placed its last token).
+     *
+     * @param player - the player id.
+     * @param slots  - the slots of the player's tokens.
+     */
+    public void claim(int player, List<Integer> slots) {
+        if (!open) return;
+        long bits = 0;
+        for (int i = 0; i < slots.size(); i++) bits |= 1L << slots.get(i);
+        record(CLAIM, player, bits);
+    }
+
+    /**
+     * Journals the dealer's verdict on a claim.
+     *
+     * @param player  - the player id.
+     * @param outcome - LEGAL, ILLEGAL or STALE (the cards were taken by another player's claim first).
+     */
+    public void verdict(int player, int outcome) {
+        record(VERDICT, player, outcome);
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        record(PLACE_CARD, card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        record(REMOVE_CARD, slot, 0);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        record(PLACE_TOKEN, player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        record(REMOVE_TOKENS, 0, 0);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        record(REMOVE_SLOT_TOKENS, slot, 0);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        record(REMOVE_TOKEN, player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        record(COUNTDOWN, millies, warn ? 1 : 0);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        record(ELAPSED, millies, 0);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        record(FREEZE, player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        record(SCORE, player, score);
+    }
+
+    /**
+     * The journal of a resumed game starts from the checkpoint: the restored scores and tokens are not journaled.
+     */
+    @Override
+    public void restoreScore(int player, int score) {
+    }
+
+    @Override
+    public void restoreToken(int player, int slot) {
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        if (!open) return;
+        long bits = 0;
+        for (int player : players) bits |= 1L << player;
+        record(WINNERS, bits, 0);
+    }
+
+    /**
+     * The journal is closed by its game (the user interfaces are disposed of after the game ends).
+     */
+    @Override
+    public void dispose() {
+    }
+
+    private void drain() {
+        while (!closed || head < tail.get()) {
+            long position = head;
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                try {
+                    writeDropped();
+                    out.flush();
+                } catch (IOException ignored) {
+                }
+                LockSupport.parkNanos(IDLE_NANOS);
+                continue;
+            }
+            int type = types[index];
+            long time = times[index], first = firsts[index], second = seconds[index];
+            sequences.lazySet(index, position + mask + 1);
+            head = position + 1;
+            try {
+                writeDropped();
+                write(type, time, first, second);
+            } catch (IOException ignored) {
+                // the game goes on without its journal
+            }
+        }
+        try {
+            writeDropped();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void writeDropped() throws IOException {
+        long count = dropped.get();
+        if (count == reportedDropped) return;
+        write(DROPPED, lastNanos, count - reportedDropped, 0);
+        reportedDropped = count;
+    }
+
+    private void write(int type, long time, long first, long second) throws IOException {
+        out.writeByte(type);
+        writeVarint((time - lastNanos) / 1000);
+        lastNanos += (time - lastNanos) / 1000 * 1000; // the rounding error is carried to the next event
+        if (ARGUMENTS[type] > 0) writeVarint(first);
+        if (ARGUMENTS[type] > 1) writeVarint(second);
+        written++;
+    }
+
+    private void writeVarint(long value) throws IOException {
+        writeVarint(out, value);
+    }
+
+    /**
+     * Writes a zigzag varint: 7 bits per byte, small absolute values first.
+     */
+    static void writeVarint(OutputStream out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.write((int) (zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.write((int) zigzag);
+    }
+
+    static long readVarint(InputStream in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new EOFException();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+        throw new IOException("malformed varint");
+    }
+
+    /**
+     * Reads a journal, one event at a time.
+     */
+    public static class Reader implements Closeable {
+
+        private final DataInputStream in;
+
+        public final long seed;
+        public final long configHash;
+        public final long startMillis;
+        public final int players;
+        public final int rows;    // 0 if the journal does not have them (version 1)
+        public final int columns;
+        public final int tableSize;
+        public final int featureSize;
+        public final int featureCount;
+
+        /**
+         * The current event: its type, the microseconds since the start of the journal, and its arguments.
+         */
+        public int type;
+        public long micros;
+        public long first;
+        public long second;
+
+        public Reader(File file) throws IOException {
+            this(new FileInputStream(file));
+        }
+
+        public Reader(InputStream in) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(in, BUFFER_BYTES));
+            if (this.in.readInt() != MAGIC) throw new IOException("not a game journal");
+            int version = this.in.readUnsignedByte();
+            if (version != 1 && version != VERSION) throw new IOException("unsupported journal version " + version);
+            seed = readVarint(this.in);
+            configHash = this.in.readLong();
+            startMillis = readVarint(this.in);
+            players = (int) readVarint(this.in);
+            if (version == 1) {
+                rows = columns = 0;
+                tableSize = (int) readVarint(this.in);
+            } else {
+                rows = (int) readVarint(this.in);
+                columns = (int) readVarint(this.in);
+                tableSize = rows * columns;
+            }
+            featureSize = (int) readVarint(this.in);
+            featureCount = (int) readVarint(this.in);
+        }
+
+        /**
+         * Reads the next event.
+         *
+         * @return - false at the end of the journal (a journal cut short by a crash ends at its last whole event).
+         */
+        public boolean next() throws IOException {
+            int type = in.read();
+            if (type < 0) return false;
+            if (type >= ARGUMENTS.length || type == 0) throw new IOException("unknown event type " + type);
+            try {
+                long delta = readVarint(in);
+                long first = ARGUMENTS[type] > 0 ? readVarint(in) : 0;
+                long second = ARGUMENTS[type] > 1 ? readVarint(in) : 0;
+                this.type = type;
+                this.micros += delta;
+                this.first = first;
+                this.second = second;
+                return true;
+            } catch (EOFException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package bguspl.set;
+
+import java.util.Date;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+
+/**
+ * Formats log records with a String.format pattern of the date (1), the level (2) and the message (3).
+ * Unlike SimpleFormatter it is not synchronized, and the {0}, {1}... parameters of the message are replaced
+ * with their plain String.valueOf (MessageFormat would print 60000 as 60,000).
+ */
+public class GameLogFormatter extends Formatter {
+
+    private final String format;
+
+    /**
+     * @param format - the String.format pattern of a record.
+     */
+    public GameLogFormatter(String format) {
+        this.format = format;
+    }
+
+    @Override
+    public String format(LogRecord record) {
+        return String.format(format, new Date(record.getMillis()), record.getLevel().getLocalizedName(),
+                formatMessage(record));
+    }
+
+    @Override
+    public String formatMessage(LogRecord record) {
+        String message = record.getMessage();
+        Object[] parameters = record.getParameters();
+        if (message == null || parameters == null || parameters.length == 0) return message;
+
+        StringBuilder sb = new StringBuilder(message.length() + 16 * parameters.length);
+        int length = message.length();
+        for (int i = 0; i < length; i++) {
+            char c = message.charAt(i);
+            int close = c == '{' ? message.indexOf('}', i) : -1;
+            if (close > i + 1 && close <= i + 3) {
+                try {
+                    int index = Integer.parseInt(message.substring(i + 1, close));
+                    if (index < parameters.length) {
+                        sb.append(parameters[index]);
+                        i = close;
+                        continue;
+                    }
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
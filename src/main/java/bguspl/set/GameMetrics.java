@@ -0,0 +1,322 @@
+package bguspl.set;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The metrics of the hot paths of a game: the dealer's checks and the players' key presses. Recording only updates
+ * atomic counters and {@link Histogram}s (no locks and no allocations), so the metrics are always on.
+ * The metrics can be read through JMX and logged periodically as text.
+ */
+public class GameMetrics implements GameMetricsMBean {
+
+    /**
+     * The thread that logs the periodic snapshots of all the games.
+     */
+    private static final ScheduledExecutorService snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "game-metrics");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final long startNanos = System.nanoTime();
+
+    // the dealer
+    private final Histogram claimLatency = new Histogram();
+    private final Histogram claimQueueWait = new Histogram();
+    private final Histogram checkSetDuration = new Histogram();
+    private final Histogram shouldFinishDuration = new Histogram();
+    private final Histogram queueDepth = new Histogram();
+    private final AtomicLong reshuffles = new AtomicLong();
+    private final AtomicLong legalSets = new AtomicLong();
+    private final AtomicLong illegalSets = new AtomicLong();
+
+    // the players
+    private final AtomicLongArray keyPressesAccepted;
+    private final AtomicLongArray keyPressesRejected;
+    private final AtomicLongArray tokensPlaced;
+    private final AtomicLongArray claims;
+    private final AtomicLongArray claimNanos;
+    private final Histogram verdictWakeup = new Histogram();
+    private final Histogram freezeTime = new Histogram();
+
+    private ObjectName name;
+    private ScheduledFuture<?> snapshot;
+
+    /**
+     * @param players - the number of players in the game.
+     */
+    public GameMetrics(int players) {
+        keyPressesAccepted = new AtomicLongArray(players);
+        keyPressesRejected = new AtomicLongArray(players);
+        tokensPlaced = new AtomicLongArray(players);
+        claims = new AtomicLongArray(players);
+        claimNanos = new AtomicLongArray(players);
+    }
+
+    /**
+     * Called by the dealer when it gives the verdict of a claimed set.
+     *
+     * @param player     - the id of the player who claimed the set.
+     * @param claimNanos - the System.nanoTime when the player claimed the set.
+     * @param legal      - true iff the set is legal.
+     */
+    public void verdict(int player, long claimNanos, boolean legal) {
+        long latency = System.nanoTime() - claimNanos;
+        claimLatency.record(latency);
+        claims.incrementAndGet(player);
+        this.claimNanos.addAndGet(player, latency);
+        (legal ? legalSets : illegalSets).incrementAndGet();
+    }
+
+    /**
+     * Called by the dealer when it takes a claim off its queue to check it.
+     *
+     * @param claimNanos - the System.nanoTime when the player claimed the set.
+     */
+    public void claimPickedUp(long claimNanos) {
+        claimQueueWait.record(System.nanoTime() - claimNanos);
+    }
+
+    /**
+     * @param startNanos - the System.nanoTime when the dealer started checking the set.
+     */
+    public void checkSet(long startNanos) {
+        checkSetDuration.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @param startNanos - the System.nanoTime when the dealer started checking if the game is over.
+     */
+    public void shouldFinish(long startNanos) {
+        shouldFinishDuration.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @param depth - the number of claims waiting for the dealer.
+     */
+    public void queueDepth(int depth) {
+        queueDepth.record(depth);
+    }
+
+    public void reshuffle() {
+        reshuffles.incrementAndGet();
+    }
+
+    /**
+     * @param player   - the player id.
+     * @param accepted - true iff the press was queued (false if the player could not take it).
+     */
+    public void keyPressed(int player, boolean accepted) {
+        (accepted ? keyPressesAccepted : keyPressesRejected).incrementAndGet(player);
+    }
+
+    public void tokenPlaced(int player) {
+        tokensPlaced.incrementAndGet(player);
+    }
+
+    /**
+     * Called by a player when it goes on after the dealer's verdict on its claim.
+     *
+     * @param verdictNanos - the System.nanoTime when the dealer gave the verdict.
+     */
+    public void verdictWakeup(long verdictNanos) {
+        verdictWakeup.record(System.nanoTime() - verdictNanos);
+    }
+
+    /**
+     * @param millis - the time a player was frozen for.
+     */
+    public void frozen(long millis) {
+        freezeTime.record(millis);
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, replacing metrics registered under the same name.
+     *
+     * @param game - the name of the game (unique in the process).
+     */
+    public synchronized void register(String game) throws JMException {
+        ObjectName objectName = new ObjectName("bguspl.set:type=GameMetrics,name=" + ObjectName.quote(game));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, objectName);
+        } catch (InstanceAlreadyExistsException e) {
+            server.unregisterMBean(objectName);
+            server.registerMBean(this, objectName);
+        }
+        name = objectName;
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server (if they were registered).
+     */
+    public synchronized void unregister() {
+        if (name == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException ignored) {
+            // someone else registered metrics under the same name since
+        }
+        name = null;
+    }
+
+    /**
+     * Starts logging a snapshot of the metrics periodically.
+     *
+     * @param logger       - the logger to log to.
+     * @param periodMillis - the time between snapshots.
+     */
+    public synchronized void startSnapshots(Logger logger, long periodMillis) {
+        stopSnapshots();
+        snapshot = snapshots.scheduleAtFixedRate(() -> logger.log(Level.INFO, "metrics: {0}", getSnapshot()),
+                periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopSnapshots() {
+        if (snapshot != null) snapshot.cancel(false);
+        snapshot = null;
+    }
+
+    /**
+     * @return - the time from a player's claim of a set to the dealer's verdict (nanoseconds).
+     */
+    Histogram claimLatency() {
+        return claimLatency;
+    }
+
+    /**
+     * @return - the time from a player's claim of a set until the dealer takes it off its queue (nanoseconds).
+     */
+    Histogram claimQueueWait() {
+        return claimQueueWait;
+    }
+
+    /**
+     * @return - the time the dealer spends checking a claimed set (nanoseconds).
+     */
+    Histogram checkSetDuration() {
+        return checkSetDuration;
+    }
+
+    /**
+     * @return - the time from the dealer's verdict until the player goes on (nanoseconds).
+     */
+    Histogram verdictWakeup() {
+        return verdictWakeup;
+    }
+
+    @Override
+    public String getClaimLatency() {
+        return claimLatency.summary("ns");
+    }
+
+    @Override
+    public String getClaimQueueWait() {
+        return claimQueueWait.summary("ns");
+    }
+
+    @Override
+    public String getCheckSetDuration() {
+        return checkSetDuration.summary("ns");
+    }
+
+    @Override
+    public String getShouldFinishDuration() {
+        return shouldFinishDuration.summary("ns");
+    }
+
+    @Override
+    public String getQueueDepth() {
+        return queueDepth.summary("claims");
+    }
+
+    @Override
+    public long getReshuffles() {
+        return reshuffles.get();
+    }
+
+    @Override
+    public long getLegalSets() {
+        return legalSets.get();
+    }
+
+    @Override
+    public long getIllegalSets() {
+        return illegalSets.get();
+    }
+
+    @Override
+    public long[] getKeyPressesAccepted() {
+        return toArray(keyPressesAccepted);
+    }
+
+    @Override
+    public long[] getKeyPressesRejected() {
+        return toArray(keyPressesRejected);
+    }
+
+    @Override
+    public double[] getTokensPerSecond() {
+        double seconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        double[] rates = new double[tokensPlaced.length()];
+        for (int player = 0; player < rates.length; player++)
+            rates[player] = tokensPlaced.get(player) / seconds;
+        return rates;
+    }
+
+    @Override
+    public double[] getAverageClaimLatency() {
+        double[] averages = new double[claims.length()];
+        for (int player = 0; player < averages.length; player++) {
+            long count = claims.get(player);
+            averages[player] = count == 0 ? 0 : claimNanos.get(player) / 1e6 / count;
+        }
+        return averages;
+    }
+
+    @Override
+    public String getVerdictWakeup() {
+        return verdictWakeup.summary("ns");
+    }
+
+    @Override
+    public String getFreezeTime() {
+        return freezeTime.summary("ms");
+    }
+
+    @Override
+    public String getSnapshot() {
+        double[] rates = getTokensPerSecond();
+        StringBuilder tokens = new StringBuilder("[");
+        for (int player = 0; player < rates.length; player++)
+            tokens.append(player == 0 ? "" : ", ").append(String.format("%.1f", rates[player]));
+        tokens.append("]");
+        return String.format("sets legal %d, illegal %d; reshuffles %d%n"
+                        + "claim latency: %s%nclaim queue wait: %s%ncheck set: %s%nshould finish: %s%nqueue depth: %s%n"
+                        + "key presses accepted %s, rejected %s; tokens/sec %s%nverdict wakeup: %s%nfreeze time: %s",
+                getLegalSets(), getIllegalSets(), getReshuffles(), getClaimLatency(), getClaimQueueWait(),
+                getCheckSetDuration(), getShouldFinishDuration(), getQueueDepth(),
+                Arrays.toString(getKeyPressesAccepted()), Arrays.toString(getKeyPressesRejected()), tokens,
+                getVerdictWakeup(), getFreezeTime());
+    }
+
+    private static long[] toArray(AtomicLongArray counters) {
+        long[] values = new long[counters.length()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = counters.get(i);
+        return values;
+    }
+}
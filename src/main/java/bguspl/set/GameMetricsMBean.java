@@ -0,0 +1,68 @@
+package bguspl.set;
+
+/**
+ * The JMX view of the {@link GameMetrics} of a game.
+ */
+public interface GameMetricsMBean {
+
+    /**
+     * @return - a summary of the time from a player's claim of a set to the dealer's verdict (nanoseconds).
+     */
+    String getClaimLatency();
+
+    /**
+     * @return - a summary of the time from a player's claim of a set until the dealer takes it off its queue
+     * (nanoseconds).
+     */
+    String getClaimQueueWait();
+
+    /**
+     * @return - a summary of the time the dealer spends checking a claimed set (nanoseconds).
+     */
+    String getCheckSetDuration();
+
+    /**
+     * @return - a summary of the time the dealer spends checking whether the game is over (nanoseconds).
+     */
+    String getShouldFinishDuration();
+
+    /**
+     * @return - a summary of the number of claims waiting for the dealer (sampled on every claim).
+     */
+    String getQueueDepth();
+
+    long getReshuffles();
+
+    long getLegalSets();
+
+    long getIllegalSets();
+
+    long[] getKeyPressesAccepted();
+
+    long[] getKeyPressesRejected();
+
+    /**
+     * @return - the tokens placed per second by each player, since the game started.
+     */
+    double[] getTokensPerSecond();
+
+    /**
+     * @return - the average time from a claim of each player to the dealer's verdict (milliseconds).
+     */
+    double[] getAverageClaimLatency();
+
+    /**
+     * @return - a summary of the time from the dealer's verdict until the player goes on (nanoseconds).
+     */
+    String getVerdictWakeup();
+
+    /**
+     * @return - a summary of the time the players were frozen (milliseconds).
+     */
+    String getFreezeTime();
+
+    /**
+     * @return - all the metrics as text.
+     */
+    String getSnapshot();
+}
@@ -0,0 +1,118 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative long values with log-linear buckets (in the style of HdrHistogram): values under 64 are
+ * exact, and larger values are kept with 32 buckets per power of 2, i.e. within about 3% of their value.
+ * Recording is lock-free and allocates nothing, so it can be called from the game's hot paths.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS + 2 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value - the value to record (negative values are recorded as 0).
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) ;
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @param fraction - the requested percentile (between 0 and 1).
+     * @return - the value at the percentile (the middle of its bucket, at most the maximum), or 0 if there are no values.
+     */
+    public long percentile(double fraction) {
+        long total = count.get();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) return Math.min(middle(bucket), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Adds all the values recorded by another histogram (e.g. of another game) to this one.
+     */
+    public void add(Histogram other) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            long n = other.counts.get(bucket);
+            if (n != 0) counts.addAndGet(bucket, n);
+        }
+        count.addAndGet(other.count.get());
+        sum.addAndGet(other.sum.get());
+        long otherMax = other.max.get(), current;
+        while (otherMax > (current = max.get()) && !max.compareAndSet(current, otherMax)) ;
+    }
+
+    /**
+     * Forgets all the recorded values (values recorded at the same time may be partly kept).
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+            counts.set(bucket, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * @param unit - the name of the unit of the values.
+     * @return - a one line summary: count, mean, p50, p90, p99, p99.9 and max.
+     */
+    public String summary(String unit) {
+        return String.format("count %d, mean %.1f, p50 %d, p90 %d, p99 %d, p99.9 %d, max %d %s", count(), mean(),
+                percentile(0.5), percentile(0.9), percentile(0.99), percentile(0.999), max(), unit);
+    }
+
+    @Override
+    public String toString() {
+        return summary("");
+    }
+
+    static int bucket(long value) {
+        int magnitude = Long.SIZE - Long.numberOfLeadingZeros(value);
+        if (magnitude <= SUB_BUCKET_BITS + 1) return (int) value;
+        int shift = magnitude - (SUB_BUCKET_BITS + 1);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * @return - the value in the middle of the bucket.
+     */
+    static long middle(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) return bucket;
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        long low = (long) (bucket - (shift << SUB_BUCKET_BITS)) << shift;
+        return low + (1L << shift) / 2;
+    }
+}
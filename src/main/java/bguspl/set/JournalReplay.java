@@ -0,0 +1,175 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Plays a game journal (see {@link GameJournal}) back on a user interface: the window for post-mortems, or any other
+ * user interface for load replays. The events are replayed at their recorded times, sped up by the given factor.
+ * <p>
+ * Usage: JournalReplay journal [speed] [configuration file] (speed 0 replays as fast as possible, default 1).
+ */
+public class JournalReplay {
+
+    /**
+     * The counts of the replayed events.
+     */
+    public static class Summary {
+        public long events;
+        public long claims;
+        public long legal;
+        public long illegal;
+        public long stale;
+        public long dropped;
+        public long micros;
+
+        @Override
+        public String toString() {
+            return String.format("%d events in %.3f s of game time: %d claims (%d legal, %d illegal, %d stale), %d events were not journaled",
+                    events, micros / 1e6, claims, legal, illegal, stale, dropped);
+        }
+    }
+
+    /**
+     * The replay's main function.
+     *
+     * @param args - the journal file, the speed and the configuration file name.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("usage: JournalReplay journal [speed] [configuration file]");
+            System.exit(2);
+        }
+        double speed = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+        String configFile = args.length > 2 ? args[2] : "config.properties";
+
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        try (GameJournal.Reader reader = new GameJournal.Reader(new File(args[0]))) {
+            Properties properties = Config.loadProperties(configFile, logger);
+            if (Config.hash(properties) != reader.configHash)
+                System.err.println("warning: the game was played with another configuration than " + configFile);
+            Config config = new Config(logger, replayProperties(properties, reader));
+            if (config.tableSize != reader.tableSize) {
+                System.err.println("cannot replay: the game had " + reader.tableSize + " slots and " + configFile
+                        + " has " + config.tableSize);
+                System.exit(2);
+            }
+
+            UserInterface ui;
+            try {
+                ui = new UserInterfaceSwing(logger, config, new Player[config.players]);
+            } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                System.err.println("cannot show the replay: " + e);
+                ui = new MetricsUserInterface(config, new RealClock());
+            }
+            System.out.println("replaying the game of seed " + reader.seed);
+            Summary summary = replay(reader, ui, speed);
+            System.out.println(summary);
+            if (speed > 0) Thread.sleep(config.endGamePauseMillies);
+            ui.dispose();
+        }
+    }
+
+    /**
+     * Adjusts the configuration to the game of the journal: its players (who only watch now), its table and its deck.
+     * A journal of version 1 has only the table size, so the table keeps the rows and columns of the configuration.
+     */
+    static Properties replayProperties(Properties properties, GameJournal.Reader reader) {
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("ComputerPlayers", Integer.toString(reader.players));
+        if (reader.rows > 0) {
+            properties.setProperty("Rows", Integer.toString(reader.rows));
+            properties.setProperty("Columns", Integer.toString(reader.columns));
+        }
+        properties.setProperty("FeatureSize", Integer.toString(reader.featureSize));
+        properties.setProperty("FeatureCount", Integer.toString(reader.featureCount));
+        properties.setProperty("Seed", Long.toString(reader.seed));
+        for (int player = 1; player <= reader.players; player++) properties.setProperty("PlayerKeys" + player, "");
+        return properties;
+    }
+
+    /**
+     * Replays the rest of the journal.
+     *
+     * @param reader - the journal.
+     * @param ui     - the user interface to replay on.
+     * @param speed  - how much faster than the game to replay (0 for as fast as possible).
+     * @return - the counts of the replayed events.
+     */
+    public static Summary replay(GameJournal.Reader reader, UserInterface ui, double speed)
+            throws IOException, InterruptedException {
+        Summary summary = new Summary();
+        long start = System.nanoTime();
+        while (reader.next()) {
+            if (speed > 0) {
+                long due = start + (long) (TimeUnit.MICROSECONDS.toNanos(reader.micros) / speed);
+                long wait = due - System.nanoTime();
+                if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            summary.events++;
+            summary.micros = reader.micros;
+            int first = (int) reader.first, second = (int) reader.second;
+            switch (reader.type) {
+                case GameJournal.PLACE_CARD:
+                    ui.placeCard(first, second);
+                    break;
+                case GameJournal.REMOVE_CARD:
+                    ui.removeCard(first);
+                    break;
+                case GameJournal.PLACE_TOKEN:
+                    ui.placeToken(first, second);
+                    break;
+                case GameJournal.REMOVE_TOKEN:
+                    ui.removeToken(first, second);
+                    break;
+                case GameJournal.REMOVE_TOKENS:
+                    ui.removeTokens();
+                    break;
+                case GameJournal.REMOVE_SLOT_TOKENS:
+                    ui.removeTokens(first);
+                    break;
+                case GameJournal.COUNTDOWN:
+                    ui.setCountdown(reader.first, second != 0);
+                    break;
+                case GameJournal.ELAPSED:
+                    ui.setElapsed(reader.first);
+                    break;
+                case GameJournal.FREEZE:
+                    ui.setFreeze(first, reader.second);
+                    break;
+                case GameJournal.SCORE:
+                    ui.setScore(first, second);
+                    break;
+                case GameJournal.WINNERS:
+                    ui.announceWinner(players(reader.first));
+                    break;
+                case GameJournal.CLAIM:
+                    summary.claims++;
+                    break;
+                case GameJournal.VERDICT:
+                    if (second == GameJournal.LEGAL) summary.legal++;
+                    else if (second == GameJournal.ILLEGAL) summary.illegal++;
+                    else summary.stale++;
+                    break;
+                case GameJournal.DROPPED:
+                    summary.dropped += reader.first;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return summary;
+    }
+
+    private static int[] players(long bits) {
+        int[] players = new int[Long.bitCount(bits)];
+        for (int i = 0; bits != 0; i++, bits &= bits - 1) players[i] = Long.numberOfTrailingZeros(bits);
+        return players;
+    }
+}
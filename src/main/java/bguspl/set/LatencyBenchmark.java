@@ -0,0 +1,404 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Measures the latency from a player's key press to seeing the outcome on the screen, per stage of the path:
+ * Player.keyPressed -> action queue -> placeToken -> Dealer.addPlayerToCheck -> checkSet -> flag/notify ->
+ * point()/penalty() -> user interface.
+ * <p>
+ * The stub user interface times the stages it sees: key press -> token shown and token shown -> verdict shown. The
+ * hops in between come from the game's metrics: claim -> the dealer takes it off its queue, the dealer's checkSet
+ * (which for a legal set goes on to deal new cards after the verdict), claim -> verdict, and verdict -> the player
+ * thread goes on. The hops around them (the token shown -> the claim handed in, and the player going on -> the
+ * freeze shown) are not timed on their own: they are a few plain calls on the player thread, and are what is left of
+ * token shown -> verdict shown.
+ * <p>
+ * Every player is driven by a thread that finds a legal set on the table and presses its slots, like a very fast
+ * human (the presses are passed to Player.keyPressed, as InputManager does for the keyboard). A stub user interface
+ * timestamps what would be shown. The freezes and the table delay are 0, so only the game's own overhead is measured.
+ * <p>
+ * Usage: LatencyBenchmark [claims per player] [player counts...] (default: 200 claims with 1, 2, 4 and 8 players).
+ */
+public class LatencyBenchmark {
+
+    /**
+     * How long a driver waits for the verdict of its claim before giving up on it (a claim of cards another player
+     * took first has no verdict on the screen).
+     */
+    private static final long VERDICT_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private static final long POLL_NANOS = 20_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int claims = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int[] playerCounts = {1, 2, 4, 8};
+        if (args.length > 1) {
+            playerCounts = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) playerCounts[i - 1] = Integer.parseInt(args[i]);
+        }
+
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        for (int players : playerCounts) {
+            Stages stages = run(logger, players, claims);
+            System.out.println(stages.report(players));
+        }
+    }
+
+    /**
+     * Plays games until every player made the given number of claims.
+     */
+    static Stages run(Logger logger, int players, int claims) throws InterruptedException {
+        Config config = new Config(logger, properties(players));
+        Util util = new UtilImpl(config);
+        Stages stages = new Stages(config);
+        int id = 0;
+        while (stages.claims() < (long) claims * players) {
+            stages.reset();
+            Game game = new Game(++id, logger, config, stages);
+            Thread thread = new Thread(game, "game-" + id);
+            thread.start();
+            List<Thread> drivers = new ArrayList<>();
+            for (int player = 0; player < players; player++) {
+                Driver driver = new Driver(game, stages, util, player, claims);
+                Thread driverThread = new Thread(driver, "driver-" + player);
+                driverThread.start();
+                drivers.add(driverThread);
+            }
+            for (Thread driver : drivers) driver.join();
+            game.stop();
+            thread.join();
+            // only now, so the verdicts that came after a driver gave up on them are in the game's metrics as well
+            stages.claimToDealerVerdict.add(game.env.metrics.claimLatency());
+            stages.claimToPickup.add(game.env.metrics.claimQueueWait());
+            stages.dealerCheck.add(game.env.metrics.checkSetDuration());
+            stages.verdictToWakeup.add(game.env.metrics.verdictWakeup());
+        }
+        return stages;
+    }
+
+    static Properties properties(int players) {
+        Properties properties = new Properties();
+        properties.setProperty("HumanPlayers", Integer.toString(players));
+        properties.setProperty("ComputerPlayers", "0");
+        properties.setProperty("TableDelaySeconds", "0");
+        properties.setProperty("PointFreezeSeconds", "0");
+        properties.setProperty("PenaltyFreezeSeconds", "0");
+        properties.setProperty("EndGamePauseSeconds", "0");
+        properties.setProperty("TurnTimeoutSeconds", "600");
+        properties.setProperty("GuaranteeSet", "True"); // no waiting for the timeout when there is no set
+        properties.setProperty("Hints", "False");
+        properties.setProperty("LogLevel", "OFF");
+        return properties;
+    }
+
+    /**
+     * Plays for a player: presses the slots of a legal set and waits for the verdict, again and again.
+     */
+    private static class Driver implements Runnable {
+
+        private final Game game;
+        private final Stages stages;
+        private final Util util;
+        private final int player;
+        private final int claims;
+
+        Driver(Game game, Stages stages, Util util, int player, int claims) {
+            this.game = game;
+            this.stages = stages;
+            this.util = util;
+            this.player = player;
+            this.claims = claims;
+        }
+
+        @Override
+        public void run() {
+            Player player = game.players()[this.player];
+            List<Integer> claimed = new ArrayList<>();
+            while (game.state() != Game.State.FINISHED && game.state() != Game.State.STOPPED
+                    && stages.claims(this.player) < claims) {
+                // the cards of the last claim may still be shown for a moment after the verdict
+                int[] slots = stages.findSet(util, claimed);
+                if (slots == null) {
+                    claimed.clear(); // the cards are still there, so they may well be in the only set
+                    LockSupport.parkNanos(POLL_NANOS);
+                    continue;
+                }
+                // take back the tokens that are not on the set
+                for (int slot : stages.tokens(this.player))
+                    if (!contains(slots, slot)) press(player, slot, false);
+                if (!stages.awaitTokens(this.player, slots)) continue;
+                long verdicts = stages.verdicts(this.player);
+                claimed = stages.cards(slots);
+                for (int slot : slots)
+                    if (!stages.hasToken(this.player, slot)) press(player, slot, true);
+                stages.awaitVerdict(this.player, verdicts, VERDICT_TIMEOUT_NANOS);
+            }
+        }
+
+        /**
+         * Presses a key until the player takes it.
+         */
+        private void press(Player player, int slot, boolean timed) {
+            while (game.state() == Game.State.RUNNING || game.state() == Game.State.CREATED) {
+                if (timed) stages.pressed(this.player, slot);
+                if (player.keyPressed(slot)) return;
+                LockSupport.parkNanos(POLL_NANOS);
+            }
+        }
+
+        private static boolean contains(int[] values, int value) {
+            for (int v : values) if (v == value) return true;
+            return false;
+        }
+    }
+
+    /**
+     * The stub user interface: keeps the table as it would be shown and timestamps the stages of every claim.
+     */
+    static class Stages implements UserInterface {
+
+        private final int setSize;
+        private final Integer[] cards;
+        private final long[] tokens; // per player: a bitmask of the slots
+        private final long[][] pressNanos;
+        private final long[] claimNanos;
+        private final long[] lastPressNanos;
+        private final long[] verdicts;
+        private final long[] claims;
+
+        final Histogram pressToToken = new Histogram();
+        final Histogram tokenToVerdict = new Histogram();
+        // as measured by the game's metrics
+        final Histogram claimToPickup = new Histogram();
+        final Histogram dealerCheck = new Histogram();
+        final Histogram claimToDealerVerdict = new Histogram();
+        final Histogram verdictToWakeup = new Histogram();
+        final Histogram pressToVerdict = new Histogram();
+        private long stale;
+
+        Stages(Config config) {
+            if (config.tableSize > Long.SIZE) throw new IllegalArgumentException("too many slots: " + config.tableSize);
+            setSize = config.featureSize;
+            cards = new Integer[config.tableSize];
+            tokens = new long[config.players];
+            pressNanos = new long[config.players][config.tableSize];
+            claimNanos = new long[config.players];
+            lastPressNanos = new long[config.players];
+            verdicts = new long[config.players];
+            claims = new long[config.players];
+        }
+
+        /**
+         * Starts a new game.
+         */
+        synchronized void reset() {
+            for (int slot = 0; slot < cards.length; slot++) cards[slot] = null;
+            for (int player = 0; player < tokens.length; player++) {
+                tokens[player] = 0;
+                claimNanos[player] = 0;
+                for (int slot = 0; slot < cards.length; slot++) pressNanos[player][slot] = 0;
+            }
+        }
+
+        synchronized void pressed(int player, int slot) {
+            pressNanos[player][slot] = System.nanoTime();
+        }
+
+        synchronized long claims() {
+            long total = 0;
+            for (long count : claims) total += count;
+            return total;
+        }
+
+        synchronized long claims(int player) {
+            return claims[player];
+        }
+
+        synchronized long verdicts(int player) {
+            return verdicts[player];
+        }
+
+        synchronized boolean hasToken(int player, int slot) {
+            return (tokens[player] & 1L << slot) != 0;
+        }
+
+        synchronized int[] tokens(int player) {
+            int[] slots = new int[Long.bitCount(tokens[player])];
+            int i = 0;
+            for (long mask = tokens[player]; mask != 0; mask &= mask - 1) slots[i++] = Long.numberOfTrailingZeros(mask);
+            return slots;
+        }
+
+        synchronized List<Integer> cards(int[] slots) {
+            List<Integer> cards = new ArrayList<>();
+            for (int slot : slots) cards.add(this.cards[slot]);
+            return cards;
+        }
+
+        /**
+         * @param excluded - cards the set must not contain.
+         * @return - the slots of a legal set on the table, or null if there is none.
+         */
+        int[] findSet(Util util, List<Integer> excluded) {
+            List<Integer> deck = new ArrayList<>();
+            synchronized (this) {
+                for (Integer card : cards) if (card != null && !excluded.contains(card)) deck.add(card);
+            }
+            List<int[]> sets = util.findSets(deck, 1);
+            if (sets.isEmpty()) return null;
+            int[] slots = new int[setSize];
+            synchronized (this) {
+                for (int i = 0; i < setSize; i++) {
+                    int slot = slotOf(sets.get(0)[i]);
+                    if (slot < 0) return null; // the table changed since
+                    slots[i] = slot;
+                }
+            }
+            return slots;
+        }
+
+        private int slotOf(int card) {
+            for (int slot = 0; slot < cards.length; slot++)
+                if (cards[slot] != null && cards[slot] == card) return slot;
+            return -1;
+        }
+
+        /**
+         * Waits until all the tokens of the player are on the given slots.
+         *
+         * @return - false if it did not happen in time.
+         */
+        synchronized boolean awaitTokens(int player, int[] slots) {
+            long mask = 0;
+            for (int slot : slots) mask |= 1L << slot;
+            long deadline = System.nanoTime() + VERDICT_TIMEOUT_NANOS;
+            while ((tokens[player] & ~mask) != 0) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) return false;
+                waitNanos(left);
+            }
+            return true;
+        }
+
+        /**
+         * Waits for the verdict of the player's claim.
+         */
+        synchronized void awaitVerdict(int player, long verdicts, long timeoutNanos) {
+            long deadline = System.nanoTime() + timeoutNanos;
+            while (this.verdicts[player] == verdicts) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    stale++;
+                    claimNanos[player] = 0;
+                    return;
+                }
+                waitNanos(left);
+            }
+        }
+
+        private void waitNanos(long nanos) {
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, nanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public synchronized void placeCard(int card, int slot) {
+            cards[slot] = card;
+        }
+
+        @Override
+        public synchronized void removeCard(int slot) {
+            cards[slot] = null;
+        }
+
+        @Override
+        public synchronized void placeToken(int player, int slot) {
+            long now = System.nanoTime();
+            tokens[player] |= 1L << slot;
+            notifyAll();
+            long pressed = pressNanos[player][slot];
+            pressNanos[player][slot] = 0;
+            if (pressed == 0) return;
+            pressToToken.record(now - pressed);
+            lastPressNanos[player] = pressed;
+            if (Long.bitCount(tokens[player]) == setSize) claimNanos[player] = now;
+        }
+
+        @Override
+        public synchronized void removeTokens() {
+            for (int player = 0; player < tokens.length; player++) tokens[player] = 0;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void removeTokens(int slot) {
+            for (int player = 0; player < tokens.length; player++) tokens[player] &= ~(1L << slot);
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void removeToken(int player, int slot) {
+            tokens[player] &= ~(1L << slot);
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void setFreeze(int player, long millies) {
+            if (claimNanos[player] == 0) return;
+            long now = System.nanoTime();
+            tokenToVerdict.record(now - claimNanos[player]);
+            pressToVerdict.record(now - lastPressNanos[player]);
+            claimNanos[player] = 0;
+            claims[player]++;
+            verdicts[player]++;
+            notifyAll();
+        }
+
+        @Override
+        public void setCountdown(long millies, boolean warn) {}
+
+        @Override
+        public void setElapsed(long millies) {}
+
+        @Override
+        public void setScore(int player, int score) {}
+
+        @Override
+        public void announceWinner(int[] players) {}
+
+        @Override
+        public void dispose() {}
+
+        synchronized String report(int players) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("players %d: %d claims with a verdict, %d given up (no verdict in time) (microseconds)%n",
+                    players, claims(), stale));
+            line(sb, "key press -> token shown", pressToToken);
+            line(sb, "token shown -> verdict shown", tokenToVerdict);
+            line(sb, "  claim -> dealer picks it up", claimToPickup);
+            line(sb, "  dealer check (checkSet)", dealerCheck);
+            line(sb, "  claim -> dealer verdict", claimToDealerVerdict);
+            line(sb, "  verdict -> player wakes up", verdictToWakeup);
+            line(sb, "last key press -> verdict shown", pressToVerdict);
+            return sb.toString();
+        }
+
+        private static void line(StringBuilder sb, String stage, Histogram histogram) {
+            sb.append(String.format("  %-32s p50 %9.1f  p99 %9.1f  p99.9 %9.1f  max %9.1f%n", stage,
+                    histogram.percentile(0.5) / 1e3, histogram.percentile(0.99) / 1e3,
+                    histogram.percentile(0.999) / 1e3, histogram.max() / 1e3));
+        }
+    }
+}
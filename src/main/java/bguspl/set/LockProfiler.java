@@ -0,0 +1,222 @@
+package bguspl.set;
+
+import java.awt.EventQueue;
+
+/**
+ * An optional profiler of the game's locks: it records how long each thread role waited for a lock and how long it
+ * held it, and reports the contention when the game ends. The critical sections take the lock through it:
+ * <pre>
+ * locks.run(LockProfiler.Lock.TABLE, table, () -> {
+ *     ...
+ * });
+ * </pre>
+ * and wait on the lock's monitor with await(), so the time the monitor is let go of does not count as held.
+ * Only the outermost acquisition of a lock by a thread is recorded (the table's methods are usually called with the
+ * table lock held already). A disabled profiler only takes the lock.
+ */
+public class LockProfiler {
+
+    /**
+     * The profiled locks.
+     */
+    public enum Lock {
+        TABLE("table"), DEALER("dealer"), PLAYER("playerLock");
+
+        private final String label;
+
+        Lock(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * The roles of the threads that take the locks.
+     */
+    public enum Role {DEALER, PLAYER, AI, EDT, OTHER}
+
+    /**
+     * A critical section.
+     */
+    @FunctionalInterface
+    public interface Section<E extends Exception> {
+        void run() throws E;
+    }
+
+    /**
+     * A critical section with a result.
+     */
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    /**
+     * The profiling state of a thread.
+     */
+    private static final class ThreadState {
+        Role role;
+        final int[] depth = new int[Lock.values().length];
+        final long[] acquired = new long[Lock.values().length]; // the time of the outermost acquisition
+    }
+
+    private final boolean enabled;
+    private final ThreadLocal<ThreadState> threads;
+    private final Histogram[][] waits;
+    private final Histogram[][] holds;
+
+    /**
+     * @param enabled - true to profile the locks, false for a profiler that does nothing.
+     */
+    public LockProfiler(boolean enabled) {
+        this.enabled = enabled;
+        this.threads = enabled ? ThreadLocal.withInitial(ThreadState::new) : null;
+        int locks = enabled ? Lock.values().length : 0;
+        int roles = Role.values().length;
+        waits = new Histogram[locks][roles];
+        holds = new Histogram[locks][roles];
+        for (int lock = 0; lock < locks; lock++)
+            for (int role = 0; role < roles; role++) {
+                waits[lock][role] = new Histogram();
+                holds[lock][role] = new Histogram();
+            }
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets the role of the calling thread (threads that do not set it are the EDT or OTHER).
+     */
+    public void role(Role role) {
+        if (enabled) threads.get().role = role;
+    }
+
+    /**
+     * Runs a critical section holding the lock.
+     *
+     * @param lock    - the lock.
+     * @param monitor - the object the lock is the monitor of.
+     * @param section - the critical section.
+     */
+    public <E extends Exception> void run(Lock lock, Object monitor, Section<E> section) throws E {
+        // kept tiny, so the JIT always inlines it and the critical sections that capture locals are not allocated
+        if (enabled) profile(lock, monitor, section);
+        else locked(monitor, section);
+    }
+
+    private static <E extends Exception> void locked(Object monitor, Section<E> section) throws E {
+        synchronized (monitor) {
+            section.run();
+        }
+    }
+
+    private <E extends Exception> void profile(Lock lock, Object monitor, Section<E> section) throws E {
+        long requested = System.nanoTime();
+        synchronized (monitor) {
+            acquired(lock, requested);
+            try {
+                section.run();
+            } finally {
+                released(lock);
+            }
+        }
+    }
+
+    /**
+     * Runs a critical section holding the lock.
+     *
+     * @param lock    - the lock.
+     * @param monitor - the object the lock is the monitor of.
+     * @param section - the critical section.
+     * @return - the result of the critical section.
+     */
+    public <T, E extends Exception> T call(Lock lock, Object monitor, Call<T, E> section) throws E {
+        return enabled ? profile(lock, monitor, section) : locked(monitor, section);
+    }
+
+    private static <T, E extends Exception> T locked(Object monitor, Call<T, E> section) throws E {
+        synchronized (monitor) {
+            return section.call();
+        }
+    }
+
+    private <T, E extends Exception> T profile(Lock lock, Object monitor, Call<T, E> section) throws E {
+        long requested = System.nanoTime();
+        synchronized (monitor) {
+            acquired(lock, requested);
+            try {
+                return section.call();
+            } finally {
+                released(lock);
+            }
+        }
+    }
+
+    /**
+     * Waits on the lock's monitor, from a critical section of the lock. The monitor is let go of while waiting, so the
+     * time held so far is recorded as a hold, and the next one starts when the wait ends.
+     *
+     * @param lock    - the lock.
+     * @param clock   - the clock to wait on.
+     * @param monitor - the object the lock is the monitor of.
+     * @param timeout - the maximum time to wait in milliseconds, 0 to wait until signalled.
+     */
+    public void await(Lock lock, Clock clock, Object monitor, long timeout) throws InterruptedException {
+        if (!enabled) {
+            clock.await(monitor, timeout);
+            return;
+        }
+        ThreadState state = threads.get();
+        int index = lock.ordinal();
+        holds[index][role(state).ordinal()].record(System.nanoTime() - state.acquired[index]);
+        try {
+            clock.await(monitor, timeout);
+        } finally {
+            state.acquired[index] = System.nanoTime();
+        }
+    }
+
+    private void acquired(Lock lock, long requested) {
+        long now = System.nanoTime();
+        ThreadState state = threads.get();
+        int index = lock.ordinal();
+        if (state.depth[index]++ == 0) {
+            waits[index][role(state).ordinal()].record(now - requested);
+            state.acquired[index] = now;
+        }
+    }
+
+    private void released(Lock lock) {
+        ThreadState state = threads.get();
+        int index = lock.ordinal();
+        if (--state.depth[index] == 0)
+            holds[index][role(state).ordinal()].record(System.nanoTime() - state.acquired[index]);
+    }
+
+    private static Role role(ThreadState state) {
+        if (state.role == null) state.role = EventQueue.isDispatchThread() ? Role.EDT : Role.OTHER;
+        return state.role;
+    }
+
+    /**
+     * @return - the contention report: a line per lock and thread role that took it, in microseconds.
+     */
+    public String report() {
+        if (!enabled) return "lock profiling is disabled";
+        StringBuilder sb = new StringBuilder("lock contention (microseconds):");
+        for (Lock lock : Lock.values()) {
+            for (Role role : Role.values()) {
+                Histogram wait = waits[lock.ordinal()][role.ordinal()];
+                Histogram hold = holds[lock.ordinal()][role.ordinal()];
+                if (wait.count() == 0) continue;
+                sb.append(String.format("%n%-10s %-6s %8d acquisitions, wait mean %.1f p99 %.1f max %.1f, "
+                                + "hold mean %.1f p99 %.1f max %.1f, total wait %.1f ms",
+                        lock.label, role, wait.count(), wait.mean() / 1e3, wait.percentile(0.99) / 1e3,
+                        wait.max() / 1e3, hold.mean() / 1e3, hold.percentile(0.99) / 1e3, hold.max() / 1e3,
+                        wait.mean() * wait.count() / 1e6));
+            }
+        }
+        return sb.toString();
+    }
+}
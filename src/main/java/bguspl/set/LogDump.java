@@ -0,0 +1,73 @@
+package bguspl.set;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.logging.Level;
+
+/**
+ * Prints the binary logs written by {@link MappedLogHandler} as text.
+ * <p>
+ * Usage: LogDump [log directory or segment files...] (the default is the latest directory under ./logs)
+ */
+public class LogDump {
+
+    /**
+     * The default format of a line: the date (1), the level (2) and the message (3).
+     */
+    private static final String FORMAT = "[%1$tT.%1$tL] [%2$-7s] %3$s%n";
+
+    public static void main(String[] args) throws IOException {
+        File[] inputs = args.length > 0 ? Arrays.stream(args).map(File::new).toArray(File[]::new) : latest();
+        if (inputs.length == 0) {
+            System.err.println("no logs found.");
+            return;
+        }
+        for (File input : inputs) {
+            File[] segments = input.isDirectory() ? input.listFiles((dir, name) -> name.endsWith(".bin")) : new File[]{input};
+            if (segments == null) continue;
+            Arrays.sort(segments);
+            for (File segment : segments) dump(segment, System.out);
+        }
+    }
+
+    /**
+     * Prints the records of a single segment.
+     *
+     * @return - the number of records printed.
+     */
+    static int dump(File segment, PrintStream out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment.toPath()));
+        int records = 0;
+        while (buffer.remaining() >= MappedLogHandler.HEADER_BYTES) {
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) break;
+            long millis = buffer.getLong();
+            int level = buffer.getInt();
+            byte[] message = new byte[length - (MappedLogHandler.HEADER_BYTES - 4)];
+            buffer.get(message);
+            out.printf(FORMAT, new Date(millis), levelName(level), new String(message, StandardCharsets.UTF_8));
+            records++;
+        }
+        return records;
+    }
+
+    private static String levelName(int value) {
+        try {
+            return Level.parse(Integer.toString(value)).getLocalizedName();
+        } catch (IllegalArgumentException e) {
+            return Integer.toString(value);
+        }
+    }
+
+    private static File[] latest() {
+        File[] directories = new File("./logs/").listFiles(File::isDirectory);
+        if (directories == null || directories.length == 0) return new File[0];
+        return new File[]{Arrays.stream(directories).max((a, b) -> Long.compare(a.lastModified(), b.lastModified())).get()};
+    }
+}
@@ -1,120 +1,167 @@
-package bguspl.set;
-
-import bguspl.set.ex.Dealer;
-import bguspl.set.ex.Player;
-import bguspl.set.ex.Table;
-
-import java.io.File;
-import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Arrays;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.logging.*;
-
-/**
- * This class contains the game's main function.
- */
-public class Main {
-
-    private static Dealer dealer;
-    private static Thread mainThread;
-
-    private static boolean xButtonPressed = false;
-    private static Logger logger;
-
-    public static void xButtonPressed() throws InterruptedException {
-        if (logger != null) logger.severe("exit button pressed");
-        xButtonPressed = true;
-        if (dealer != null) dealer.terminate();
-        mainThread.join();
-    }
-
-    /**
-     * The game's main function. Creates all data structures and initializes the threads.
-     *
-     * @param args - unused.
-     */
-    public static void main(String[] args) {
-
-        mainThread = Thread.currentThread();
-
-        // create the game environment objects
-        logger = initLogger();
-        ThreadLogger.logStart(logger, Thread.currentThread().getName());
-        Config config = new Config(logger, "config.properties");
-        Util util = new UtilImpl(config);
-
-        Player[] players = new Player[config.players];
-        UserInterface ui = null;
-        try {
-            ui = new UserInterfaceSwing(logger, config, players);
-        } catch (UnsupportedOperationException | IllegalArgumentException e) {
-            logger.severe("error creating swing user interface: " + e.getMessage());
-            logger.severe("will try to run without user interface");
-            if (config.humanPlayers > 0)
-                logger.severe("warning: running with human players with no user interface");
-        }
-        ui = new UserInterfaceDecorator(logger, util, ui);
-
-        Env env = new Env(logger, config, ui, util);
-
-        // create the game entities
-        Table table = new Table(env);
-        dealer = new Dealer(env, table, players);
-        for (int i = 0; i < players.length; i++)
-            players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
-
-        // start the dealer thread
-        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
-        dealerThread.startWithLog();
-
-        try {
-            // shutdown stuff
-            dealerThread.joinWithLog();
-            if (!xButtonPressed && config.endGamePauseMillies > 0) Thread.sleep(config.endGamePauseMillies);
-        } catch (InterruptedException ignored) {
-        } finally {
-            logger.severe("thanks for playing... it was fun!");
-            System.out.println("Thanks for playing... it was fun!");
-            ThreadLogger.logStop(logger, Thread.currentThread().getName());
-            if (!xButtonPressed) env.ui.dispose();
-            for (Handler h : logger.getHandlers()) h.flush();
-        }
-    }
-
-    private static Logger initLogger() {
-
-        //just to make our log file nicer :)
-        SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
-        FileHandler handler;
-        try {
-            //noinspection ResultOfMethodCallIgnored
-            new File("./logs/").mkdirs();
-            handler = new FileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-
-        java.util.logging.Logger logger = java.util.logging.Logger.getLogger("SetGameLogger");
-        logger.setUseParentHandlers(false);
-        logger.addHandler(handler);
-        setLoggerLevelAndFormat(logger, Level.ALL, "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
-
-        return logger;
-    }
-
-    public static void setLoggerLevelAndFormat(Logger logger, Level level, String format) {
-        Handler[] handlers = logger.getHandlers();
-        if (handlers != null) Arrays.stream(handlers).forEach(h -> h.setFormatter(new SimpleFormatter() {
-            // default format (with timestamp)  = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
-            @Override
-            public synchronized String format(LogRecord lr) {
-                return String.format(format, new Date(lr.getMillis()),
-                        lr.getLevel().getLocalizedName(), lr.getMessage()
-                );
-            }
-        }));
-        logger.setLevel(level);
-    }
-}
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+import javax.management.JMException;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.logging.*;
+
+/**
+ * This class contains the game's main function.
+ */
+public class Main {
+
+    /**
+     * The number of log records that can wait for the log writer.
+     */
+    private static final int LOG_BUFFER_SIZE = 8192;
+
+    /**
+     * The size of each log segment file in bytes.
+     */
+    private static final int LOG_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * The number of game changes kept for spectators that fall behind.
+     */
+    private static final int SPECTATOR_EVENTS = 4096;
+
+    /**
+     * The number of table updates kept for remote players that fall behind.
+     */
+    private static final int REMOTE_PLAYER_UPDATES = 4096;
+
+    /**
+     * The id of the game (its metrics are published under "game-" + id).
+     */
+    private static final int GAME_ID = 0;
+
+    private static Game game;
+    private static Thread mainThread;
+
+    private static boolean xButtonPressed = false;
+    private static Logger logger;
+
+    public static void xButtonPressed() throws InterruptedException {
+        if (logger != null) logger.severe("exit button pressed");
+        xButtonPressed = true;
+        if (game != null) game.stop();
+        mainThread.join();
+    }
+
+    /**
+     * The game's main function. Creates all data structures and initializes the threads.
+     *
+     * @param args - unused.
+     */
+    public static void main(String[] args) {
+
+        mainThread = Thread.currentThread();
+
+        // create the game environment objects
+        logger = initLogger();
+        ThreadLogger.logStart(logger, Thread.currentThread().getName());
+        Config config = new Config(logger, "config.properties");
+        Util util = new UtilImpl(config);
+
+        Player[] players = new Player[config.players];
+        Clock clock = Env.clock(config);
+        UserInterface ui = null;
+        try {
+            ui = new UserInterfaceSwing(logger, config, players);
+            // only the window needs its updates batched per frame
+            if (config.frameRate > 0) ui = new UserInterfaceDispatcher(ui, config);
+            ui = new UserInterfaceDecorator(logger, util, ui);
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            logger.severe("error creating swing user interface: " + e.getMessage());
+            logger.severe("will try to run without user interface");
+            if (config.humanPlayers > 0)
+                logger.severe("warning: running with human players with no user interface");
+        }
+        if (ui == null) {
+            // nothing to show, but the game can still be watched through JMX
+            MetricsUserInterface metrics = new MetricsUserInterface(config, clock);
+            try {
+                logger.info("game metrics registered as " + metrics.register("game-" + GAME_ID));
+            } catch (JMException e) {
+                logger.warning("cannot register game metrics: " + e);
+            }
+            // no logging either, but the random spin still perturbs the timing
+            ui = config.randomSpinMax > 0 ? new UserInterfaceSpinner(util, metrics) : metrics;
+        }
+        // the servers queue their own updates, so they take the game's calls directly and not through the window's
+        // frame dispatcher
+        List<UserInterface> uis = new ArrayList<>();
+        uis.add(ui);
+        if (config.spectatorPort >= 0) {
+            SpectatorServer spectators = new SpectatorServer(logger, config, SPECTATOR_EVENTS, config.maxSpectators);
+            try {
+                logger.info("spectator server listening on port " + spectators.start(config.spectatorPort));
+                uis.add(spectators);
+            } catch (IOException e) {
+                logger.severe("cannot start spectator server: " + e.getMessage());
+            }
+        }
+        if (config.remotePlayersPort >= 0) {
+            RemotePlayerServer remotePlayers = new RemotePlayerServer(logger, config, players, REMOTE_PLAYER_UPDATES);
+            try {
+                logger.info("remote players server listening on port " + remotePlayers.start(config.remotePlayersPort));
+                uis.add(remotePlayers);
+            } catch (IOException e) {
+                logger.severe("cannot start remote players server: " + e.getMessage());
+            }
+        }
+        if (uis.size() > 1) ui = new CompositeUserInterface(uis.toArray(new UserInterface[0]));
+
+        // create the game entities
+        game = new Game(GAME_ID, logger, config, ui, players, clock);
+        Env env = game.env;
+
+        try {
+            // run the dealer thread and wait for it to end
+            game.run();
+            if (!xButtonPressed && config.endGamePauseMillies > 0) Thread.sleep(config.endGamePauseMillies);
+        } catch (InterruptedException ignored) {
+        } finally {
+            logger.severe("thanks for playing... it was fun!");
+            System.out.println("Thanks for playing... it was fun!");
+            ThreadLogger.logStop(logger, Thread.currentThread().getName());
+            if (!xButtonPressed) env.ui.dispose();
+            for (Handler h : logger.getHandlers()) h.flush();
+        }
+    }
+
+    private static Logger initLogger() {
+
+        //just to make our log file nicer :)
+        SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
+        Handler handler;
+        try {
+            // binary segments, see LogDump for reading them
+            handler = new MappedLogHandler(new File("./logs/" + format.format(Calendar.getInstance().getTime())),
+                    LOG_SEGMENT_SIZE);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        java.util.logging.Logger logger = java.util.logging.Logger.getLogger("SetGameLogger");
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new AsyncLogHandler(handler, LOG_BUFFER_SIZE));
+        setLoggerLevelAndFormat(logger, Level.ALL, "[%1$tT.%1$tL] [%2$-7s] %3$s%n");
+
+        return logger;
+    }
+
+    public static void setLoggerLevelAndFormat(Logger logger, Level level, String format) {
+        Handler[] handlers = logger.getHandlers();
+        // default format (with timestamp)  = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
+        if (handlers != null) Arrays.stream(handlers).forEach(h -> h.setFormatter(new GameLogFormatter(format)));
+        logger.setLevel(level);
+    }
+}
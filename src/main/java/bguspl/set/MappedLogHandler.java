@@ -0,0 +1,115 @@
+package bguspl.set;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * A log handler that writes binary records into memory-mapped segment files of a fixed size. Writing a record is a
+ * memory copy: the operating system writes the pages to disk in the background, so there is no system call per
+ * record. When a segment is full the next one is created. Use {@link LogDump} to read the segments as text.
+ * <p>
+ * Record format (big endian): int length of the rest of the record, long time in milliseconds, int level, the message
+ * in UTF-8. A length of 0 marks the end of the records in a segment (the rest of the
+ * segment is still zeros).
+ * <p>
+ * Notes:
+ * 1. The handler is not thread safe by itself. Put it behind an {@link AsyncLogHandler}, which calls it from a
+ * single writer thread.
+ * 2. The message is formatted with the handler's formatter (parameters included), the time and the level are kept
+ * in binary.
+ */
+public class MappedLogHandler extends Handler {
+
+    /**
+     * The size of the record header: length, time and level.
+     */
+    static final int HEADER_BYTES = 4 + 8 + 4;
+
+    /**
+     * The file name of a segment.
+     */
+    static final String SEGMENT_FORMAT = "segment-%05d.bin";
+
+    private final File directory;
+    private final int segmentBytes;
+    private int segment;
+    private RandomAccessFile file;
+    private MappedByteBuffer buffer;
+
+    /**
+     * @param directory    - the directory of the segments (created if needed).
+     * @param segmentBytes - the size of each segment file.
+     */
+    public MappedLogHandler(File directory, int segmentBytes) throws IOException {
+        if (segmentBytes <= HEADER_BYTES + 4) throw new IllegalArgumentException("segment too small: " + segmentBytes);
+        if (!directory.isDirectory() && !directory.mkdirs()) throw new IOException("cannot create " + directory);
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        openSegment();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (buffer == null || !isLoggable(record)) return;
+        Formatter formatter = getFormatter();
+        String message = formatter != null ? formatter.formatMessage(record) : record.getMessage();
+        byte[] bytes = message == null ? new byte[0] : message.getBytes(StandardCharsets.UTF_8);
+
+        // leave room for the end marker, and cut messages that would not fit even in an empty segment
+        int maxMessage = segmentBytes - HEADER_BYTES - 4;
+        int length = Math.min(bytes.length, maxMessage);
+        try {
+            if (buffer.remaining() < HEADER_BYTES + length + 4) {
+                closeSegment();
+                segment++;
+                openSegment();
+            }
+        } catch (IOException e) {
+            reportError("cannot open log segment", e, ErrorManager.OPEN_FAILURE);
+            buffer = null;
+            return;
+        }
+        buffer.putInt(HEADER_BYTES - 4 + length);
+        buffer.putLong(record.getMillis());
+        buffer.putInt(record.getLevel().intValue());
+        buffer.put(bytes, 0, length);
+    }
+
+    /**
+     * Forces the written records to the disk.
+     */
+    @Override
+    public void flush() {
+        if (buffer != null) buffer.force();
+    }
+
+    @Override
+    public void close() {
+        try {
+            closeSegment();
+        } catch (IOException e) {
+            reportError("cannot close log segment", e, ErrorManager.CLOSE_FAILURE);
+        }
+        buffer = null;
+    }
+
+    private void openSegment() throws IOException {
+        file = new RandomAccessFile(new File(directory, String.format(SEGMENT_FORMAT, segment)), "rw");
+        file.setLength(segmentBytes);
+        buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+    }
+
+    private void closeSegment() throws IOException {
+        if (buffer != null) buffer.force();
+        if (file != null) file.close();
+        file = null;
+    }
+}
@@ -0,0 +1,243 @@
+package bguspl.set;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A user interface for games with no screen: it shows nothing, and only counts what would have been shown (cards
+ * dealt, token churn, scores over time, freeze durations). The counters can be read through JMX.
+ * <p>
+ * Notes:
+ * 1. The callbacks only update counters and histograms: no locks, no Swing and no logging.
+ * 2. The tokens of each slot are kept as a bitmask of the players, so there can be at most 64 players.
+ */
+public class MetricsUserInterface implements UserInterface, MetricsUserInterfaceMBean {
+
+    /**
+     * The number of points kept in the score timeline.
+     */
+    private static final int TIMELINE_SIZE = 4096;
+
+    private final Clock clock;
+    private final long start;
+
+    private final LongAdder cardsPlaced = new LongAdder();
+    private final LongAdder cardsRemoved = new LongAdder();
+    private final LongAdder tokensPlaced = new LongAdder();
+    private final LongAdder tokensRemoved = new LongAdder();
+    private final LongAdder countdownUpdates = new LongAdder();
+    private final AtomicLongArray tokens;
+    private final AtomicIntegerArray scores;
+    private final AtomicLongArray frozen; // per player: true (1) while the player is frozen
+    private final AtomicLongArray timeline = new AtomicLongArray(TIMELINE_SIZE);
+    private final AtomicLong points = new AtomicLong();
+    private volatile long lastPoint;
+    private final Histogram pointIntervals = new Histogram();
+    private final Histogram freezeDurations = new Histogram();
+    private volatile int[] winners = new int[0];
+    private volatile boolean disposed;
+
+    /**
+     * @param config - the game configuration.
+     * @param clock  - the clock of the game (for the score timeline).
+     */
+    public MetricsUserInterface(Config config, Clock clock) {
+        if (config.players > Long.SIZE) throw new IllegalArgumentException("too many players: " + config.players);
+        this.clock = clock;
+        this.start = clock.millis();
+        this.lastPoint = start;
+        tokens = new AtomicLongArray(config.tableSize);
+        scores = new AtomicIntegerArray(config.players);
+        frozen = new AtomicLongArray(config.players);
+    }
+
+    /**
+     * Registers the counters with the platform MBean server.
+     *
+     * @param name - the name of the game (unique in the process).
+     * @return - the name the counters were registered under.
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("bguspl.set:type=MetricsUserInterface,name=" + ObjectName.quote(name));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, objectName);
+        } catch (InstanceAlreadyExistsException e) {
+            server.unregisterMBean(objectName);
+            server.registerMBean(this, objectName);
+        }
+        return objectName;
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        cardsPlaced.increment();
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        cardsRemoved.increment();
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        long bit = 1L << player;
+        if ((tokens.getAndAccumulate(slot, bit, (mask, b) -> mask | b) & bit) == 0) tokensPlaced.increment();
+    }
+
+    @Override
+    public void removeTokens() {
+        for (int slot = 0; slot < tokens.length(); slot++)
+            removeTokens(slot);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        tokensRemoved.add(Long.bitCount(tokens.getAndSet(slot, 0)));
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        long bit = 1L << player;
+        if ((tokens.getAndAccumulate(slot, ~bit, (mask, b) -> mask & b) & bit) != 0) tokensRemoved.increment();
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        countdownUpdates.increment();
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        countdownUpdates.increment();
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        // the freeze is updated as it counts down: only its start is recorded
+        if (millies > 0) {
+            if (frozen.getAndSet(player, 1) == 0) freezeDurations.record(millies);
+        } else {
+            frozen.set(player, 0);
+        }
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        scores.set(player, score);
+        long now = clock.millis();
+        long point = points.getAndIncrement();
+        if (point < TIMELINE_SIZE) timeline.set((int) point, now - start);
+        pointIntervals.record(now - lastPoint);
+        lastPoint = now;
+    }
+
+    @Override
+    public void restoreScore(int player, int score) {
+        scores.set(player, score);
+    }
+
+    @Override
+    public void restoreToken(int player, int slot) {
+        tokens.getAndAccumulate(slot, 1L << player, (mask, bit) -> mask | bit);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        winners = players.clone();
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+    }
+
+    @Override
+    public long getCardsPlaced() {
+        return cardsPlaced.sum();
+    }
+
+    @Override
+    public long getCardsRemoved() {
+        return cardsRemoved.sum();
+    }
+
+    @Override
+    public long getTokensPlaced() {
+        return tokensPlaced.sum();
+    }
+
+    @Override
+    public long getTokensRemoved() {
+        return tokensRemoved.sum();
+    }
+
+    @Override
+    public int getTokensOnTable() {
+        int count = 0;
+        for (int slot = 0; slot < tokens.length(); slot++)
+            count += Long.bitCount(tokens.get(slot));
+        return count;
+    }
+
+    @Override
+    public long getCountdownUpdates() {
+        return countdownUpdates.sum();
+    }
+
+    @Override
+    public long getPoints() {
+        return points.get();
+    }
+
+    @Override
+    public int[] getScores() {
+        int[] result = new int[scores.length()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = scores.get(i);
+        return result;
+    }
+
+    @Override
+    public long[] getScoreTimeline() {
+        long[] result = new long[(int) Math.min(points.get(), TIMELINE_SIZE)];
+        for (int i = 0; i < result.length; i++)
+            result[i] = timeline.get(i);
+        return result;
+    }
+
+    @Override
+    public String getPointIntervals() {
+        return pointIntervals.summary("ms");
+    }
+
+    @Override
+    public String getFreezeDurations() {
+        return freezeDurations.summary("ms");
+    }
+
+    @Override
+    public int[] getWinners() {
+        return winners.clone();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cards placed %d, removed %d; tokens placed %d, removed %d; points %d, scores %s; "
+                        + "point intervals: %s; freezes: %s", getCardsPlaced(), getCardsRemoved(), getTokensPlaced(),
+                getTokensRemoved(), getPoints(), Arrays.toString(getScores()), getPointIntervals(), getFreezeDurations());
+    }
+}
@@ -0,0 +1,42 @@
+package bguspl.set;
+
+/**
+ * The JMX view of a {@link MetricsUserInterface}.
+ */
+public interface MetricsUserInterfaceMBean {
+
+    long getCardsPlaced();
+
+    long getCardsRemoved();
+
+    long getTokensPlaced();
+
+    long getTokensRemoved();
+
+    int getTokensOnTable();
+
+    long getCountdownUpdates();
+
+    long getPoints();
+
+    int[] getScores();
+
+    /**
+     * @return - the milliseconds from the start of the game to each point (in the order the points were scored).
+     */
+    long[] getScoreTimeline();
+
+    /**
+     * @return - a summary of the time between consecutive points.
+     */
+    String getPointIntervals();
+
+    /**
+     * @return - a summary of the freeze durations (points and penalties).
+     */
+    String getFreezeDurations();
+
+    int[] getWinners();
+
+    boolean isDisposed();
+}
@@ -0,0 +1,51 @@
+package bguspl.set;
+
+/**
+ * A clock that follows the wall clock time.
+ */
+public class RealClock implements Clock {
+
+    @Override
+    public long millis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    @Override
+    public void await(Object monitor, long timeout) throws InterruptedException {
+        monitor.wait(timeout);
+    }
+
+    @Override
+    public void pause(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    @Override
+    public void register(Thread thread) {}
+
+    @Override
+    public void started() {}
+
+    @Override
+    public void finished() {}
+
+    @Override
+    public void join(Thread thread) throws InterruptedException {
+        thread.join();
+    }
+
+    @Override
+    public void interrupt(Thread thread) {
+        thread.interrupt();
+    }
+
+    @Override
+    public void signal(Object monitor) {
+        monitor.notifyAll();
+    }
+}
@@ -0,0 +1,105 @@
+package bguspl.set;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary protocol of remote players. Every frame is an unsigned short length (of the type and the payload),
+ * a type byte and the payload, all big endian.
+ * <p>
+ * Client to server:
+ * JOIN  - byte player (take the seat of a human player).
+ * PRESS - byte slot (the same as pressing the key of the slot).
+ * <p>
+ * Server to client (the table updates are absolute, so they can be applied again without harm):
+ * WELCOME   - byte player, byte rows, byte columns, byte players; followed by the whole table.
+ * CARD      - byte slot, short card (-1 for an empty slot).
+ * TOKENS    - byte slot, long bitmask of the players that have a token on the slot.
+ * SCORE     - byte player, int score.
+ * FREEZE    - byte player, int milliseconds.
+ * COUNTDOWN - long milliseconds, byte warn (also the elapsed time, in games that show it).
+ * WINNERS   - byte count, a byte per player.
+ * REJECTED  - byte reason.
+ */
+public final class RemotePlayerProtocol {
+
+    public static final byte JOIN = 0x01;
+    public static final byte PRESS = 0x02;
+
+    public static final byte WELCOME = (byte) 0x81;
+    public static final byte CARD = (byte) 0x82;
+    public static final byte TOKENS = (byte) 0x83;
+    public static final byte SCORE = (byte) 0x84;
+    public static final byte FREEZE = (byte) 0x85;
+    public static final byte COUNTDOWN = (byte) 0x86;
+    public static final byte WINNERS = (byte) 0x87;
+    public static final byte REJECTED = (byte) 0x8F;
+
+    /**
+     * The reasons of REJECTED.
+     */
+    public static final byte NO_SUCH_SEAT = 1;
+    public static final byte SEAT_TAKEN = 2;
+    public static final byte NOT_JOINED = 3;
+    public static final byte BAD_FRAME = 4;
+
+    /**
+     * The size of the length field.
+     */
+    public static final int LENGTH_BYTES = 2;
+
+    /**
+     * The largest frame (type and payload).
+     */
+    public static final int MAX_FRAME = 512;
+
+    private RemotePlayerProtocol() {
+    }
+
+    public static byte[] join(int player) {
+        return frame(JOIN, 1).put((byte) player).array();
+    }
+
+    public static byte[] press(int slot) {
+        return frame(PRESS, 1).put((byte) slot).array();
+    }
+
+    static byte[] welcome(int player, Config config) {
+        return frame(WELCOME, 4).put((byte) player).put((byte) config.rows).put((byte) config.columns)
+                .put((byte) config.players).array();
+    }
+
+    static byte[] card(int slot, int card) {
+        return frame(CARD, 3).put((byte) slot).putShort((short) card).array();
+    }
+
+    static byte[] tokens(int slot, long players) {
+        return frame(TOKENS, 9).put((byte) slot).putLong(players).array();
+    }
+
+    static byte[] score(int player, int score) {
+        return frame(SCORE, 5).put((byte) player).putInt(score).array();
+    }
+
+    static byte[] freeze(int player, long millis) {
+        return frame(FREEZE, 5).put((byte) player).putInt((int) Math.min(millis, Integer.MAX_VALUE)).array();
+    }
+
+    static byte[] countdown(long millis, boolean warn) {
+        return frame(COUNTDOWN, 9).putLong(millis).put((byte) (warn ? 1 : 0)).array();
+    }
+
+    static byte[] winners(int[] players) {
+        ByteBuffer frame = frame(WINNERS, 1 + players.length).put((byte) players.length);
+        for (int player : players) frame.put((byte) player);
+        return frame.array();
+    }
+
+    static byte[] rejected(byte reason) {
+        return frame(REJECTED, 1).put(reason).array();
+    }
+
+    private static ByteBuffer frame(byte type, int payload) {
+        ByteBuffer frame = ByteBuffer.allocate(LENGTH_BYTES + 1 + payload);
+        return frame.putShort((short) (1 + payload)).put(type);
+    }
+}
@@ -0,0 +1,378 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static bguspl.set.RemotePlayerProtocol.*;
+
+/**
+ * Lets players play over the network (see {@link RemotePlayerProtocol}). A remote client takes the seat of a human
+ * player, gets the table updates and sends slot presses, which are passed to Player.keyPressed just like the keys of
+ * the keyboard. A single selector thread serves all the connections.
+ * <p>
+ * Notes:
+ * 1. The game threads only publish the table updates to a lock-free ring (and wake the selector up), so they never
+ * wait for the network. A client that falls behind by more than the size of the ring gets the whole table again.
+ * 2. Player.keyPressed never waits (it only queues the press, or drops it if the player cannot take it right now),
+ * so the selector thread never waits for the game either.
+ */
+public class RemotePlayerServer implements UserInterface, Runnable {
+
+    /**
+     * The size of the output buffer of a connection.
+     */
+    private static final int OUTPUT_BYTES = 64 * 1024;
+
+    /**
+     * The smallest countdown change that is published.
+     */
+    private static final long COUNTDOWN_RESOLUTION_MILLIS = 10;
+
+    private final Logger logger;
+    private final Config config;
+    private final Player[] players;
+    private final EventRing<byte[]> updates;
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+    private volatile boolean stopped;
+
+    /**
+     * The connections (used by the selector thread only), and the connection in each seat.
+     */
+    private final List<Connection> connections = new ArrayList<>();
+    private final Connection[] seats;
+
+    /**
+     * The current table, for the clients that join or fall behind.
+     */
+    private final AtomicIntegerArray cards;
+    private final AtomicLongArray tokens;
+    private final AtomicIntegerArray scores;
+    private boolean countdownPublished;
+    private long publishedCountdown;
+    private boolean publishedWarn;
+
+    /**
+     * A client connection.
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(MAX_FRAME + LENGTH_BYTES);
+        final ByteBuffer out = ByteBuffer.allocate(OUTPUT_BYTES);
+        final List<byte[]> batch = new ArrayList<>();
+        int seat = -1;
+        long cursor = -1; // the next update to send, or -1 to send the whole table
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * @param logger   - the game logger.
+     * @param config   - the game configuration.
+     * @param players  - the players of the game (the array may be filled after the server starts).
+     * @param ringSize - the number of table updates kept for clients that fall behind.
+     */
+    public RemotePlayerServer(Logger logger, Config config, Player[] players, int ringSize) {
+        if (config.players > Long.SIZE || config.tableSize > 0xFF)
+            throw new IllegalArgumentException("too many players or slots for the remote player protocol");
+        this.logger = logger;
+        this.config = config;
+        this.players = players;
+        this.updates = new EventRing<>(ringSize);
+        this.seats = new Connection[config.players];
+        cards = new AtomicIntegerArray(config.tableSize);
+        tokens = new AtomicLongArray(config.tableSize);
+        scores = new AtomicIntegerArray(config.players);
+        for (int slot = 0; slot < config.tableSize; slot++) cards.set(slot, -1);
+    }
+
+    /**
+     * Starts accepting remote players.
+     *
+     * @param port - the port to listen on (0 for any free port).
+     * @return - the port the server listens on.
+     */
+    public synchronized int start(int port) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this, "remote-players");
+        thread.setDaemon(true);
+        thread.start();
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Disconnects the remote players and stops the server.
+     */
+    public synchronized void stop() {
+        if (thread == null) return;
+        stopped = true;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!stopped) {
+                selector.select();
+                wakeupPending.set(false);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isAcceptable()) accept();
+                        else if (key.isReadable()) read(key);
+                        if (key.isValid() && key.isWritable()) write(key, (Connection) key.attachment());
+                    } catch (IOException e) {
+                        close(key);
+                    }
+                }
+                sendUpdates();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            logger.severe("remote player server failed: " + e);
+        } finally {
+            for (SelectionKey key : selector.keys()) close(key);
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection(channel);
+        channel.register(selector, SelectionKey.OP_READ, connection);
+        connections.add(connection);
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        if (connection.channel.read(connection.in) < 0) {
+            close(key);
+            return;
+        }
+        ByteBuffer in = connection.in;
+        in.flip();
+        while (in.remaining() >= LENGTH_BYTES) {
+            int length = in.getShort(in.position()) & 0xFFFF;
+            if (length == 0 || length > MAX_FRAME) {
+                reply(connection, rejected(BAD_FRAME));
+                close(key);
+                return;
+            }
+            if (in.remaining() < LENGTH_BYTES + length) break;
+            int next = in.position() + LENGTH_BYTES + length;
+            in.position(in.position() + LENGTH_BYTES);
+            handle(connection, in.get(), in, length - 1);
+            in.position(next);
+        }
+        in.compact();
+        write(key, connection);
+    }
+
+    private void handle(Connection connection, byte type, ByteBuffer payload, int length) {
+        if (type == PRESS && length >= 1) {
+            int slot = payload.get() & 0xFF;
+            Player player = connection.seat >= 0 ? players[connection.seat] : null;
+            if (connection.seat < 0) reply(connection, rejected(NOT_JOINED));
+            else if (player != null && slot < config.tableSize) player.keyPressed(slot);
+        } else if (type == JOIN && length >= 1) {
+            int seat = payload.get() & 0xFF;
+            if (seat >= config.humanPlayers || connection.seat >= 0) reply(connection, rejected(NO_SUCH_SEAT));
+            else if (seats[seat] != null) reply(connection, rejected(SEAT_TAKEN));
+            else {
+                seats[seat] = connection;
+                connection.seat = seat;
+                reply(connection, welcome(seat, config));
+                if (logger.isLoggable(Level.INFO)) logger.log(Level.INFO, "remote player {0} joined", seat + 1);
+            }
+        } else {
+            reply(connection, rejected(BAD_FRAME));
+        }
+    }
+
+    /**
+     * Queues a reply to the client (a client that does not read its replies does not get any more of them).
+     */
+    private static void reply(Connection connection, byte[] frame) {
+        if (connection.out.remaining() >= frame.length) connection.out.put(frame);
+    }
+
+    /**
+     * Sends the table updates published since the last time to all the clients that joined.
+     */
+    private void sendUpdates() {
+        for (Connection connection : connections) {
+            if (connection.seat < 0) continue;
+            if (connection.cursor < 0) {
+                if (connection.out.remaining() < OUTPUT_BYTES / 2) continue; // wait for the client to catch up
+                connection.cursor = updates.next();
+                for (int slot = 0; slot < config.tableSize; slot++) {
+                    connection.out.put(card(slot, cards.get(slot)));
+                    connection.out.put(tokens(slot, tokens.get(slot)));
+                }
+                for (int player = 0; player < config.players; player++)
+                    connection.out.put(score(player, scores.get(player)));
+            }
+            connection.batch.clear();
+            long next = updates.read(connection.cursor, connection.batch);
+            if (next < 0) {
+                connection.cursor = -1;
+                continue;
+            }
+            for (byte[] frame : connection.batch) {
+                if (connection.out.remaining() < frame.length) break;
+                connection.out.put(frame);
+                connection.cursor++;
+            }
+            SelectionKey key = connection.channel.keyFor(selector);
+            try {
+                if (key != null && key.isValid()) write(key, connection);
+            } catch (IOException e) {
+                close(key);
+            }
+        }
+        connections.removeIf(connection -> !connection.channel.isOpen());
+    }
+
+    private void write(SelectionKey key, Connection connection) throws IOException {
+        ByteBuffer out = connection.out;
+        if (out.position() == 0) return;
+        out.flip();
+        connection.channel.write(out);
+        out.compact();
+        key.interestOps(out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    private void close(SelectionKey key) {
+        Object attachment = key.attachment();
+        if (attachment instanceof Connection) {
+            Connection connection = (Connection) attachment;
+            if (connection.seat >= 0 && seats[connection.seat] == connection) seats[connection.seat] = null;
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void publish(byte[] frame) {
+        updates.publish(frame);
+        if (wakeupPending.compareAndSet(false, true)) {
+            Selector selector = this.selector;
+            if (selector != null) selector.wakeup();
+        }
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        cards.set(slot, card);
+        publish(card(slot, card));
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        placeCard(-1, slot);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        synchronized (tokens) { // the updates of a slot must be published in the order of the changes
+            publish(tokens(slot, tokens.accumulateAndGet(slot, 1L << player, (mask, bit) -> mask | bit)));
+        }
+    }
+
+    @Override
+    public void removeTokens() {
+        for (int slot = 0; slot < config.tableSize; slot++)
+            removeTokens(slot);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        synchronized (tokens) {
+            if (tokens.getAndSet(slot, 0) != 0) publish(tokens(slot, 0));
+        }
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        synchronized (tokens) {
+            publish(tokens(slot, tokens.accumulateAndGet(slot, ~(1L << player), (mask, bits) -> mask & bits)));
+        }
+    }
+
+    @Override
+    public synchronized void setCountdown(long millies, boolean warn) {
+        if (countdownPublished && warn == publishedWarn
+                && Math.abs(millies - publishedCountdown) < COUNTDOWN_RESOLUTION_MILLIS) return;
+        countdownPublished = true;
+        publishedCountdown = millies;
+        publishedWarn = warn;
+        publish(countdown(millies, warn));
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        setCountdown(millies, false);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        publish(freeze(player, millies));
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        scores.set(player, score);
+        publish(score(player, score));
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        publish(winners(players));
+    }
+
+    @Override
+    public void dispose() {
+        stop();
+    }
+}
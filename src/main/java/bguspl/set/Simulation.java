@@ -0,0 +1,243 @@
+package bguspl.set;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Runs full games with computer players only and without a graphical user interface, as fast as the configuration
+ * allows, and reports the throughput of the game engine (used for benchmarking and capacity planning).
+ * <p>
+ * Usage: Simulation [games] [parallel games] [configuration file]
+ */
+public class Simulation {
+
+    /**
+     * The result of a single simulated game.
+     */
+    static class GameResult {
+        long claims;
+        long legalClaims;
+        long points;
+        long[] claimLatencies;
+        long deadRoundsAvoided;
+        long deadRoundsReshuffled;
+    }
+
+    /**
+     * The game's main function for headless simulations.
+     *
+     * @param args - the number of games, how many of them run in parallel and the configuration file name.
+     */
+    public static void main(String[] args) throws InterruptedException {
+
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int parallel = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        String configFile = args.length > 2 ? args[2] : "config.properties";
+
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Properties properties = headless(Config.loadProperties(configFile, logger));
+
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        long cpuStart = processCpuNanos(os);
+        long start = System.nanoTime();
+
+        GameHost host = new GameHost(parallel, games, null);
+        List<Probe> probes = new ArrayList<>();
+        List<Game> started = new ArrayList<>();
+        for (int i = 0; i < games; i++) {
+            Probe probe = new Probe(new Config(logger, properties));
+            probes.add(probe);
+            started.add(host.start(properties, probe));
+        }
+        host.drain(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+        List<GameResult> results = new ArrayList<>();
+        for (int i = 0; i < games; i++) {
+            GameResult result = probes.get(i).result();
+            Game.Stats stats = started.get(i).stats();
+            result.deadRoundsAvoided = stats.deadRoundsAvoided;
+            result.deadRoundsReshuffled = stats.deadRoundsReshuffled;
+            results.add(result);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        long cpu = processCpuNanos(os) - cpuStart;
+        System.out.println(report(results, parallel, elapsed, cpuStart < 0 ? -1 : cpu));
+        List<ThreadAccounting.Usage> threads = new ArrayList<>();
+        for (Game game : started) threads.addAll(game.env.accounting.usage());
+        System.out.println(ThreadAccounting.summary(threads));
+        for (Game game : started)
+            if (game.env.locks.enabled()) System.out.println("game " + game.id + " " + game.env.locks.report());
+    }
+
+    /**
+     * Overrides the properties that only make sense with a human watching: no cosmetic delays, no human players and
+     * no logging.
+     *
+     * @param properties - the properties loaded from the configuration file.
+     * @return - the same properties object, adjusted for a headless run.
+     */
+    static Properties headless(Properties properties) {
+        int humans = Integer.parseInt(properties.getProperty("HumanPlayers", "2"));
+        int computers = Integer.parseInt(properties.getProperty("ComputerPlayers", "0"));
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("ComputerPlayers", Integer.toString(humans + computers));
+        properties.setProperty("TableDelaySeconds", "0");
+        properties.setProperty("EndGamePauseSeconds", "0");
+        properties.setProperty("Hints", "False");
+        properties.setProperty("LogLevel", "OFF");
+        return properties;
+    }
+
+    private static String report(List<GameResult> results, int parallel, long elapsedNanos, long cpuNanos) {
+        long claims = 0, points = 0, deadRounds = 0, reshuffled = 0;
+        for (GameResult result : results) {
+            claims += result.claims;
+            points += result.points;
+            deadRounds += result.deadRoundsAvoided;
+            reshuffled += result.deadRoundsReshuffled;
+        }
+        long[] latencies = new long[(int) claims];
+        int i = 0;
+        for (GameResult result : results) {
+            System.arraycopy(result.claimLatencies, 0, latencies, i, result.claimLatencies.length);
+            i += result.claimLatencies.length;
+        }
+        Arrays.sort(latencies);
+
+        double seconds = elapsedNanos / 1e9;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("games: %d (%d in parallel) in %.3f s -> %.2f games/sec%n",
+                results.size(), parallel, seconds, results.size() / seconds));
+        sb.append(String.format("sets verified: %d (%d legal) -> %.1f sets verified/sec%n",
+                claims, points, claims / seconds));
+        sb.append(String.format("claim latency (ms): p50 %.3f, p90 %.3f, p99 %.3f, p99.9 %.3f, max %.3f%n",
+                percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), percentile(latencies, 1.0)));
+        sb.append(String.format("dead rounds avoided: %d, reshuffled: %d%n", deadRounds, reshuffled));
+        if (cpuNanos >= 0 && !results.isEmpty())
+            sb.append(String.format("cpu per game: %.1f ms", cpuNanos / 1e6 / results.size()));
+        else
+            sb.append("cpu per game: unavailable");
+        return sb.toString();
+    }
+
+    /**
+     * @param sorted   - sorted latencies in nanoseconds.
+     * @param fraction - the requested percentile (between 0 and 1).
+     * @return - the percentile in milliseconds (0 if there are no samples).
+     */
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static long processCpuNanos(OperatingSystemMXBean os) {
+        if (os instanceof com.sun.management.OperatingSystemMXBean)
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        return -1;
+    }
+
+    /**
+     * A user interface that displays nothing. It only follows the token, score and freeze callbacks to measure how
+     * long each claim waits for the dealer's verdict: a claim starts when a player has a full set of tokens, and the
+     * verdict is the score (point) or the freeze (penalty) that follows it. A legal set takes its tokens off the table
+     * before the player gets its point, so the claim stays open while its verdict is pending.
+     */
+    static class Probe implements UserInterface {
+
+        private final int setSize;
+        private final int[] tokens;
+        private final long[] claimStart;
+        private final boolean[] pending;
+        private long[] latencies = new long[1024];
+        private int claims;
+        private int legalClaims;
+        private int points;
+
+        Probe(Config config) {
+            setSize = config.featureSize;
+            tokens = new int[config.players];
+            claimStart = new long[config.players];
+            pending = new boolean[config.players];
+        }
+
+        @Override
+        public synchronized void placeToken(int player, int slot) {
+            if (++tokens[player] == setSize) {
+                claimStart[player] = System.nanoTime();
+                pending[player] = true;
+            }
+        }
+
+        @Override
+        public synchronized void removeToken(int player, int slot) {
+            --tokens[player];
+            if (tokens[player] < setSize && !pending[player]) claimStart[player] = 0;
+        }
+
+        @Override
+        public synchronized void setFreeze(int player, long millies) {
+            endClaim(player, false);
+        }
+
+        @Override
+        public synchronized void setScore(int player, int score) {
+            points++;
+            endClaim(player, true);
+        }
+
+        /**
+         * Records the latency of the player's pending claim (the verdict came).
+         */
+        private void endClaim(int player, boolean legal) {
+            if (!pending[player]) return;
+            if (legal) legalClaims++;
+            if (claims == latencies.length) latencies = Arrays.copyOf(latencies, claims * 2);
+            latencies[claims++] = System.nanoTime() - claimStart[player];
+            pending[player] = false;
+            claimStart[player] = 0;
+        }
+
+        synchronized GameResult result() {
+            GameResult result = new GameResult();
+            result.claims = claims;
+            result.legalClaims = legalClaims;
+            result.points = points;
+            result.claimLatencies = Arrays.copyOf(latencies, claims);
+            return result;
+        }
+
+        @Override
+        public void placeCard(int card, int slot) {}
+
+        @Override
+        public void removeCard(int slot) {}
+
+        @Override
+        public void removeTokens() {}
+
+        @Override
+        public void removeTokens(int slot) {}
+
+        @Override
+        public void setCountdown(long millies, boolean warn) {}
+
+        @Override
+        public void setElapsed(long millies) {}
+
+        @Override
+        public void announceWinner(int[] players) {}
+
+        @Override
+        public void dispose() {}
+    }
+}
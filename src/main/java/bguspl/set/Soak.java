@@ -0,0 +1,215 @@
+package bguspl.set;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+
+/**
+ * Plays headless games back to back in one JVM, the way a game host runs for days, and watches the process for slow
+ * leaks and degradation. Every game gets its own log handler (as Main creates one per run), which is closed when the
+ * game ends. After every game the process is sampled:
+ * 1. the heap after a full GC (leaked game objects),
+ * 2. the number of live threads (player or AI threads that never terminate),
+ * 3. the number of open file handles (log files that are never closed),
+ * 4. and the duration of the game (the engine getting slower over time).
+ * The soak fails if any of them trends upward (see {@link #rising}).
+ * <p>
+ * Usage: Soak [games] [configuration file]
+ */
+public class Soak {
+
+    /**
+     * The number of log records that can wait for the log writer.
+     */
+    private static final int LOG_BUFFER_SIZE = 8192;
+
+    /**
+     * The size of each log segment file in bytes.
+     */
+    private static final int LOG_SEGMENT_SIZE = 1024 * 1024;
+
+    /**
+     * How long the threads of a game may take to end after the game ended.
+     */
+    private static final long THREADS_GRACE_MILLIS = 1000;
+
+    /**
+     * What is sampled after every game, and how much growth is tolerated: the median of the last quarter of the
+     * samples may exceed the median of the first quarter by the relative part plus the absolute part.
+     */
+    public enum Metric {
+        HEAP("heap after GC", "bytes", 0.25, 4L * 1024 * 1024),
+        THREADS("live threads", "threads", 0, 0),
+        OPEN_FILES("open files", "files", 0, 0),
+        DURATION("game duration", "ns", 1.0, TimeUnit.MILLISECONDS.toNanos(50));
+
+        public final String title;
+        public final String unit;
+        final double relative;
+        final long absolute;
+
+        Metric(String title, String unit, double relative, long absolute) {
+            this.title = title;
+            this.unit = unit;
+            this.relative = relative;
+            this.absolute = absolute;
+        }
+    }
+
+    /**
+     * The samples of a soak run (a value of -1 means the metric is not available on this platform).
+     */
+    public static class Report {
+        public final int warmup;
+        public final long[][] samples;
+        public final List<String> failures = new ArrayList<>();
+
+        Report(int games, int warmup) {
+            this.warmup = warmup;
+            this.samples = new long[Metric.values().length][games];
+        }
+
+        public long[] samples(Metric metric) {
+            return samples[metric.ordinal()];
+        }
+
+        public boolean passed() {
+            return failures.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            int games = samples[0].length;
+            sb.append(String.format("games: %d (%d warmup)%n", games, warmup));
+            for (Metric metric : Metric.values()) {
+                long[] values = samples(metric);
+                if (values.length > 0 && values[0] < 0) {
+                    sb.append(String.format("%s: unavailable%n", metric.title));
+                    continue;
+                }
+                int quarter = Math.max(1, (games - warmup) / 4);
+                sb.append(String.format("%s: first %d, last %d, median of first quarter %d, median of last quarter %d %s%n",
+                        metric.title, values[Math.min(warmup, games - 1)], values[games - 1],
+                        median(values, warmup, quarter), median(values, games - quarter, quarter), metric.unit));
+            }
+            sb.append(passed() ? "passed" : "FAILED: " + String.join(", ", failures));
+            return sb.toString();
+        }
+    }
+
+    /**
+     * The soak's main function.
+     *
+     * @param args - the number of games and the configuration file name.
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        String configFile = args.length > 1 ? args[1] : "config.properties";
+
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Properties properties = Config.loadProperties(configFile, logger);
+        File logs = Files.createTempDirectory("soak-logs").toFile();
+        Report report = run(properties, games, logs);
+        System.out.println(report);
+        logs.delete();
+        if (!report.passed()) System.exit(1);
+    }
+
+    /**
+     * Plays the games one after the other and samples the process after each of them.
+     *
+     * @param properties - the configuration of the games (adjusted for a headless run, but still logging).
+     * @param games      - the number of games.
+     * @param logs       - the directory for the log files of the games (they are deleted after each game).
+     * @return - the samples, and the metrics that trend upward.
+     */
+    public static Report run(Properties properties, int games, File logs) throws InterruptedException, IOException {
+        String logLevel = properties.getProperty("LogLevel", "ALL");
+        properties = Simulation.headless(properties);
+        properties.setProperty("LogLevel", logLevel); // the logging life cycle is part of what is soaked
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        Report report = new Report(games, Math.max(1, games / 5));
+
+        for (int i = 0; i < games; i++) {
+            File directory = new File(logs, "game-" + i);
+            Handler handler = new AsyncLogHandler(new MappedLogHandler(directory, LOG_SEGMENT_SIZE), LOG_BUFFER_SIZE);
+            Logger logger = Logger.getAnonymousLogger();
+            logger.setUseParentHandlers(false);
+            logger.addHandler(handler);
+            Config config = new Config(logger, properties);
+
+            Game game = new Game(i, logger, config, new MetricsUserInterface(config, new RealClock()));
+            long start = System.nanoTime();
+            game.run();
+            long duration = System.nanoTime() - start;
+            logger.removeHandler(handler);
+            handler.close();
+            delete(directory);
+
+            long deadline = System.currentTimeMillis() + THREADS_GRACE_MILLIS;
+            while (game.stats().liveThreads > 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+            System.gc();
+
+            report.samples(Metric.HEAP)[i] = memory.getHeapMemoryUsage().getUsed();
+            report.samples(Metric.THREADS)[i] = threads.getThreadCount();
+            report.samples(Metric.OPEN_FILES)[i] = os instanceof com.sun.management.UnixOperatingSystemMXBean
+                    ? ((com.sun.management.UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount() : -1;
+            report.samples(Metric.DURATION)[i] = duration;
+        }
+
+        for (Metric metric : Metric.values()) {
+            long[] values = report.samples(metric);
+            if (values.length > 0 && values[0] >= 0 && rising(values, report.warmup, metric.relative, metric.absolute))
+                report.failures.add(metric.title + " trends upward");
+        }
+        return report;
+    }
+
+    /**
+     * A single GC or a slow game can make any sample an outlier, so the trend is judged by medians: the values trend
+     * upward if the median of the last quarter (after the warmup) exceeds the median of the first quarter by more
+     * than the tolerance.
+     *
+     * @param values   - the samples in the order they were taken.
+     * @param warmup   - the number of samples to ignore at the start (class loading, JIT, thread pools).
+     * @param relative - the tolerated growth relative to the first quarter.
+     * @param absolute - the tolerated growth on top of the relative part.
+     * @return - true iff the values trend upward (always false with less than 4 samples after the warmup).
+     */
+    public static boolean rising(long[] values, int warmup, double relative, long absolute) {
+        int count = values.length - warmup;
+        if (count < 4) return false;
+        int quarter = count / 4;
+        long first = median(values, warmup, quarter);
+        long last = median(values, values.length - quarter, quarter);
+        return last > first + (long) (first * relative) + absolute;
+    }
+
+    private static long median(long[] values, int from, int count) {
+        long[] sorted = Arrays.copyOfRange(values, from, from + count);
+        Arrays.sort(sorted);
+        return sorted[(count - 1) / 2];
+    }
+
+    private static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) for (File file : files) file.delete();
+        directory.delete();
+    }
+}
@@ -0,0 +1,467 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A user interface that lets spectators watch the game over HTTP. Every change is published as a small JSON delta,
+ * and the spectators get them as a stream of server-sent events:
+ * <p>
+ * GET /events - a snapshot of the game, then the deltas as they happen (text/event-stream).
+ * GET /state  - a snapshot of the game.
+ * <p>
+ * The deltas (all absolute, so applying one twice is harmless):
+ * {"t":"card","s":slot,"c":card} (card -1 for an empty slot), {"t":"tokens","s":slot,"m":players bitmask},
+ * {"t":"score","p":player,"v":score}, {"t":"freeze","p":player,"v":millis}, {"t":"countdown","v":millis,"w":warn},
+ * {"t":"elapsed","v":millis}, {"t":"winners","p":[players]}.
+ * <p>
+ * Notes:
+ * 1. The game threads only put the delta in a ring buffer shared by all the spectators (and wake the server thread
+ * up), so they never wait for the network, however many spectators there are and however slow they are.
+ * 2. A single selector thread serves all the spectators: when woken up, it moves the new deltas from the ring to the
+ * outbox of each spectator, and sends each outbox as fast as its spectator reads. A spectator whose outbox is full
+ * stays behind in the ring, and one that falls behind by more than the size of the ring gets a new snapshot and
+ * continues from there. A spectator that cannot keep up even with the snapshots is disconnected.
+ * 3. The countdown is published at most once per 10 milliseconds of game time.
+ */
+public class SpectatorServer implements UserInterface, Runnable {
+
+    /**
+     * The size of the outbox of a spectator.
+     */
+    private static final int OUTPUT_BYTES = 64 * 1024;
+
+    /**
+     * The longest request that is read.
+     */
+    private static final int REQUEST_BYTES = 4 * 1024;
+
+    /**
+     * The smallest countdown change that is published.
+     */
+    private static final long COUNTDOWN_RESOLUTION_MILLIS = 10;
+
+    /**
+     * The number of snapshots in a row after which a spectator that still falls behind is disconnected.
+     */
+    private static final int MAX_RESYNCS = 3;
+
+    private final Logger logger;
+    private final EventRing<byte[]> events;
+    private final int maxSpectators;
+    private final AtomicInteger spectators = new AtomicInteger();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+    private volatile boolean stopped;
+
+    /**
+     * The connections (used by the selector thread only).
+     */
+    private final List<Connection> connections = new ArrayList<>();
+    private final List<byte[]> batch = new ArrayList<>();
+
+    /**
+     * The current state, for the snapshots.
+     */
+    private final AtomicIntegerArray cards;
+    private final AtomicLongArray tokens;
+    private final AtomicIntegerArray scores;
+    private final AtomicLongArray freezes;
+    private volatile long countdown;
+    private volatile boolean warn;
+    private volatile long elapsed = -1;
+    private volatile int[] winners;
+    private boolean countdownPublished;
+    private long publishedCountdown;
+    private boolean publishedWarn;
+
+    /**
+     * A connection: its request, then its response (a spectator's outbox while it watches).
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(REQUEST_BYTES);
+        final ByteBuffer out = ByteBuffer.allocate(OUTPUT_BYTES);
+        boolean watching; // gets the deltas
+        boolean closing; // closed once its response is sent
+        long cursor = -1; // the next delta to send, or -1 to send a snapshot
+        int resyncs;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    /**
+     * @param logger        - the game logger.
+     * @param config        - the game configuration.
+     * @param ringSize      - the number of deltas kept for the spectators (rounded up to a power of 2).
+     * @param maxSpectators - the maximum number of spectators connected at the same time.
+     */
+    public SpectatorServer(Logger logger, Config config, int ringSize, int maxSpectators) {
+        if (config.players > Long.SIZE) throw new IllegalArgumentException("too many players: " + config.players);
+        this.logger = logger;
+        this.events = new EventRing<>(ringSize);
+        this.maxSpectators = maxSpectators;
+        cards = new AtomicIntegerArray(config.tableSize);
+        tokens = new AtomicLongArray(config.tableSize);
+        scores = new AtomicIntegerArray(config.players);
+        freezes = new AtomicLongArray(config.players);
+        for (int slot = 0; slot < config.tableSize; slot++) cards.set(slot, -1);
+    }
+
+    /**
+     * Starts serving the spectators.
+     *
+     * @param port - the port to listen on (0 for any free port).
+     * @return - the port the server listens on.
+     */
+    public synchronized int start(int port) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        thread = new Thread(this, "spectators");
+        thread.setDaemon(true);
+        thread.start();
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Disconnects the spectators and stops the server.
+     */
+    public synchronized void stop() {
+        if (thread == null) return;
+        stopped = true;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /**
+     * @return - the number of spectators connected.
+     */
+    public int spectators() {
+        return spectators.get();
+    }
+
+    private void publish(String delta) {
+        events.publish(event(delta));
+        if (wakeupPending.compareAndSet(false, true)) {
+            Selector selector = this.selector;
+            if (selector != null) selector.wakeup();
+        }
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        cards.set(slot, card);
+        publish("{\"t\":\"card\",\"s\":" + slot + ",\"c\":" + card + "}");
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        placeCard(-1, slot);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        synchronized (tokens) { // the deltas of a slot must be published in the order of the changes
+            publishTokens(slot, tokens.accumulateAndGet(slot, 1L << player, (mask, bit) -> mask | bit));
+        }
+    }
+
+    @Override
+    public void removeTokens() {
+        for (int slot = 0; slot < tokens.length(); slot++)
+            removeTokens(slot);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        synchronized (tokens) {
+            if (tokens.getAndSet(slot, 0) != 0) publishTokens(slot, 0);
+        }
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        synchronized (tokens) {
+            publishTokens(slot, tokens.accumulateAndGet(slot, ~(1L << player), (mask, bits) -> mask & bits));
+        }
+    }
+
+    private void publishTokens(int slot, long mask) {
+        publish("{\"t\":\"tokens\",\"s\":" + slot + ",\"m\":" + mask + "}");
+    }
+
+    @Override
+    public synchronized void setCountdown(long millies, boolean warn) {
+        this.countdown = millies;
+        this.warn = warn;
+        if (countdownPublished && warn == publishedWarn
+                && Math.abs(millies - publishedCountdown) < COUNTDOWN_RESOLUTION_MILLIS) return;
+        countdownPublished = true;
+        publishedCountdown = millies;
+        publishedWarn = warn;
+        publish(countdownJson());
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        elapsed = millies;
+        publish("{\"t\":\"elapsed\",\"v\":" + millies + "}");
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        freezes.set(player, millies);
+        publish("{\"t\":\"freeze\",\"p\":" + player + ",\"v\":" + millies + "}");
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        scores.set(player, score);
+        publish("{\"t\":\"score\",\"p\":" + player + ",\"v\":" + score + "}");
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        winners = players.clone();
+        publish(winnersJson(players));
+    }
+
+    @Override
+    public void dispose() {
+        stop();
+    }
+
+    private String countdownJson() {
+        return "{\"t\":\"countdown\",\"v\":" + countdown + ",\"w\":" + warn + "}";
+    }
+
+    private static String winnersJson(int[] players) {
+        StringBuilder sb = new StringBuilder("{\"t\":\"winners\",\"p\":[");
+        for (int i = 0; i < players.length; i++) sb.append(i == 0 ? "" : ",").append(players[i]);
+        return sb.append("]}").toString();
+    }
+
+    /**
+     * @return - the whole state of the game, as a snapshot delta.
+     */
+    String snapshot() {
+        StringBuilder sb = new StringBuilder("{\"t\":\"snapshot\",\"cards\":[");
+        for (int slot = 0; slot < cards.length(); slot++) sb.append(slot == 0 ? "" : ",").append(cards.get(slot));
+        sb.append("],\"tokens\":[");
+        for (int slot = 0; slot < tokens.length(); slot++) sb.append(slot == 0 ? "" : ",").append(tokens.get(slot));
+        sb.append("],\"scores\":[");
+        for (int player = 0; player < scores.length(); player++)
+            sb.append(player == 0 ? "" : ",").append(scores.get(player));
+        sb.append("],\"freezes\":[");
+        for (int player = 0; player < freezes.length(); player++)
+            sb.append(player == 0 ? "" : ",").append(freezes.get(player));
+        sb.append("],\"countdown\":").append(countdown).append(",\"warn\":").append(warn);
+        sb.append(",\"elapsed\":").append(elapsed);
+        int[] winners = this.winners;
+        if (winners != null) {
+            sb.append(",\"winners\":[");
+            for (int i = 0; i < winners.length; i++) sb.append(i == 0 ? "" : ",").append(winners[i]);
+            sb.append("]");
+        }
+        return sb.append("}").toString();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!stopped) {
+                selector.select();
+                wakeupPending.set(false);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (key.isAcceptable()) accept();
+                        else if (key.isReadable()) read(key);
+                        if (key.isValid() && key.isWritable()) write(key, (Connection) key.attachment());
+                    } catch (IOException e) {
+                        disconnected(key, e.getMessage());
+                    }
+                }
+                sendEvents();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            logger.severe("spectator server failed: " + e);
+        } finally {
+            for (SelectionKey key : selector.keys()) close(key);
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection(channel);
+        channel.register(selector, SelectionKey.OP_READ, connection);
+        connections.add(connection);
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        if (connection.watching || connection.closing) connection.in.clear(); // the rest of the request is ignored
+        if (connection.channel.read(connection.in) < 0) {
+            close(key);
+            return;
+        }
+        if (connection.watching || connection.closing) return;
+        String request = new String(connection.in.array(), 0, connection.in.position(), StandardCharsets.ISO_8859_1);
+        if (!request.contains("\r\n\r\n")) {
+            if (connection.in.hasRemaining()) return; // not whole yet
+            respond(connection, "431 Request Header Fields Too Large", null);
+            write(key, connection);
+            return;
+        }
+        String[] line = request.substring(0, request.indexOf("\r\n")).split(" ");
+        String path = line.length == 3 ? line[1].split("\\?", 2)[0] : "";
+        if (!line[0].equals("GET")) respond(connection, "405 Method Not Allowed", null);
+        else if (path.equals("/state")) respond(connection, "200 OK", snapshot());
+        else if (!path.equals("/events")) respond(connection, "404 Not Found", null);
+        else if (spectators.incrementAndGet() > maxSpectators) {
+            spectators.decrementAndGet();
+            respond(connection, "503 Service Unavailable", null);
+        } else {
+            connection.watching = true;
+            String headers = "HTTP/1.1 200 OK\r\nContent-Type: text/event-stream\r\nCache-Control: no-cache\r\n"
+                    + "Access-Control-Allow-Origin: *\r\nConnection: close\r\n\r\n";
+            connection.out.put(headers.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        write(key, connection);
+    }
+
+    /**
+     * Queues a whole response, after which the connection is closed.
+     */
+    private static void respond(Connection connection, String status, String json) {
+        byte[] body = json == null ? new byte[0] : json.getBytes(StandardCharsets.UTF_8);
+        String headers = "HTTP/1.1 " + status + "\r\n"
+                + (json == null ? "" : "Content-Type: application/json\r\nAccess-Control-Allow-Origin: *\r\n")
+                + "Content-Length: " + body.length + "\r\nConnection: close\r\n\r\n";
+        connection.out.put(headers.getBytes(StandardCharsets.ISO_8859_1));
+        if (connection.out.remaining() >= body.length) connection.out.put(body);
+        connection.closing = true;
+    }
+
+    /**
+     * Moves the deltas published since the last time to the outboxes of the spectators, and sends them.
+     */
+    private void sendEvents() {
+        for (Connection connection : connections) {
+            if (!connection.watching) continue;
+            SelectionKey key = connection.channel.keyFor(selector);
+            if (key == null || !key.isValid()) continue;
+            try {
+                if (fill(connection)) write(key, connection);
+                else disconnected(key, "cannot keep up");
+            } catch (IOException e) {
+                disconnected(key, e.getMessage());
+            }
+        }
+        connections.removeIf(connection -> !connection.channel.isOpen());
+    }
+
+    /**
+     * Moves as many of the deltas the spectator did not get yet to its outbox as fit.
+     *
+     * @return - false if the spectator cannot keep up even with the snapshots.
+     */
+    private boolean fill(Connection connection) {
+        ByteBuffer out = connection.out;
+        while (true) {
+            if (connection.cursor < 0) {
+                // a new spectator, or one that fell behind: start over from a snapshot
+                long cursor = events.next();
+                byte[] snapshot = event(snapshot());
+                if (out.remaining() < snapshot.length) return true; // wait for the spectator to catch up
+                if (connection.resyncs++ > MAX_RESYNCS) return false;
+                out.put(snapshot);
+                connection.cursor = cursor;
+            }
+            batch.clear();
+            long next = events.read(connection.cursor, batch);
+            if (next < 0) {
+                connection.cursor = -1;
+                continue;
+            }
+            for (byte[] event : batch) {
+                if (out.remaining() < event.length) break;
+                out.put(event);
+                connection.cursor++;
+                connection.resyncs = 0;
+            }
+            return true;
+        }
+    }
+
+    private void write(SelectionKey key, Connection connection) throws IOException {
+        ByteBuffer out = connection.out;
+        if (out.position() > 0) {
+            out.flip();
+            connection.channel.write(out);
+            out.compact();
+        }
+        if (out.position() == 0 && connection.closing) close(key);
+        else key.interestOps(out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    private void disconnected(SelectionKey key, String reason) {
+        if (logger.isLoggable(Level.FINE)) logger.log(Level.FINE, "spectator disconnected: {0}", reason);
+        close(key);
+    }
+
+    private void close(SelectionKey key) {
+        Object attachment = key.attachment();
+        if (attachment instanceof Connection && ((Connection) attachment).watching) {
+            ((Connection) attachment).watching = false;
+            spectators.decrementAndGet();
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static byte[] event(String delta) {
+        return ("data: " + delta + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,336 @@
+package bguspl.set;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The players' results across games: an append-only file of fixed-width records, and an index of it in memory (rebuilt
+ * from the file when the store opens) with the standing of every player and the positions of the player's records, for
+ * the leaderboard and the players' histories.
+ * <p>
+ * The file: the magic "SETS" and the version (4 bytes each), and then the records of RECORD_BYTES bytes each: the time
+ * the game ended (8 bytes, epoch milliseconds), the seed of the game (8), the name of the player (16, UTF-8 padded with
+ * zeros), the number of players in the game (1), whether the player won (1), the sets the player found (2) and the
+ * average time from the player's claims to the dealer's verdicts (4, microseconds). A record torn by a crash is cut
+ * off when the store opens.
+ * <p>
+ * Several processes can share the file: an append locks the whole file, indexes the records the others appended since
+ * (so the index only misses the records appended after the store's last append), and writes at the end of the file.
+ * <p>
+ * Usage: StatsStore stats-file [top [k] | history name [count]] (the default is the top 10).
+ */
+public class StatsStore implements Closeable {
+
+    private static final int MAGIC = 0x53455453; // "SETS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int NAME_BYTES = 16;
+    public static final int RECORD_BYTES = 40;
+
+    /**
+     * The records read at once when the index is rebuilt.
+     */
+    private static final int READ_RECORDS = 4096;
+
+    /**
+     * The stores open in this process, by file, so the games that share a file append through the same store (the
+     * file locks are held by the process, so two stores of the process must not append to the file at the same time).
+     */
+    private static final Map<File, StatsStore> shared = new ConcurrentHashMap<>();
+
+    /**
+     * The result of a player in a game.
+     */
+    public static class Record {
+        public long timeMillis;
+        public long seed;
+        public String name;
+        public int players;
+        public boolean won;
+        public int sets;
+        public int claimLatencyMicros;
+
+        @Override
+        public String toString() {
+            return String.format("%tF %<tT  %-16s %s  sets %3d  claim latency %7.3f ms  (%d players, seed %d)",
+                    new Date(timeMillis), name, won ? "won " : "lost", sets, claimLatencyMicros / 1e3, players, seed);
+        }
+    }
+
+    /**
+     * The results of a player over all the games.
+     */
+    public static class Standing {
+        public final String name;
+        public int games;
+        public int wins;
+        public long sets;
+        private long claimLatencyMicros; // the sum of the averages, weighted by the sets
+        private long weight;
+
+        /**
+         * The positions of the player's records in the file, oldest first (the first count entries).
+         */
+        private int[] records = new int[4];
+        private int count;
+
+        Standing(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return - the average time from the player's claims to the dealer's verdicts (milliseconds).
+         */
+        public double claimLatencyMillis() {
+            return weight == 0 ? 0 : claimLatencyMicros / 1e3 / weight;
+        }
+
+        private void add(int record, boolean won, int sets, int claimLatencyMicros) {
+            games++;
+            if (won) wins++;
+            this.sets += sets;
+            long weight = Math.max(sets, 1);
+            this.claimLatencyMicros += claimLatencyMicros * weight;
+            this.weight += weight;
+            if (count == records.length) records = Arrays.copyOf(records, count * 2);
+            records[count++] = record;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-16s games %5d  wins %5d  sets %7d  claim latency %7.3f ms",
+                    name, games, wins, sets, claimLatencyMillis());
+        }
+    }
+
+    /**
+     * The order of the leaderboard: the most wins, then the most sets, then the name.
+     */
+    private static final Comparator<Standing> RANKING = Comparator.comparingInt((Standing standing) -> standing.wins)
+            .thenComparingLong(standing -> standing.sets)
+            .thenComparing(standing -> standing.name, Comparator.reverseOrder());
+
+    private final FileChannel channel;
+    private final Map<String, Standing> standings = new HashMap<>();
+    private final ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES);
+    private int records;
+
+    /**
+     * Opens the store (creating the file if it does not exist) and rebuilds its index.
+     */
+    public StatsStore(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try (FileLock lock = channel.lock()) {
+            if (channel.size() < HEADER_BYTES) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION);
+                header.flip();
+                channel.truncate(0);
+                channel.write(header, 0);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                channel.read(header, 0);
+                header.flip();
+                if (header.getInt() != MAGIC) throw new IOException(file + " is not a stats store");
+                int version = header.getInt();
+                if (version != VERSION) throw new IOException("unsupported stats store version " + version);
+            }
+            indexNewRecords();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return - the store of the file shared by all the games of this process (it stays open).
+     */
+    public static StatsStore shared(File file) throws IOException {
+        File key = file.getCanonicalFile();
+        StatsStore store = shared.get(key);
+        if (store != null) return store;
+        synchronized (shared) {
+            store = shared.get(key);
+            if (store == null) {
+                store = new StatsStore(key);
+                shared.put(key, store);
+            }
+            return store;
+        }
+    }
+
+    /**
+     * Indexes the records after the ones indexed already. Called with the file locked, so a record that is not whole
+     * was torn by a crash.
+     */
+    private void indexNewRecords() throws IOException {
+        long complete = (channel.size() - HEADER_BYTES) / RECORD_BYTES;
+        if (HEADER_BYTES + complete * RECORD_BYTES < channel.size())
+            channel.truncate(HEADER_BYTES + complete * RECORD_BYTES); // a record torn by a crash
+        ByteBuffer chunk = ByteBuffer.allocate(READ_RECORDS * RECORD_BYTES);
+        Record record = new Record();
+        while (records < complete) {
+            chunk.clear();
+            long position = HEADER_BYTES + (long) records * RECORD_BYTES;
+            while (chunk.hasRemaining() && channel.read(chunk, position + chunk.position()) > 0) ;
+            chunk.flip();
+            while (chunk.remaining() >= RECORD_BYTES) {
+                decode(chunk, record);
+                index(records++, record.name, record);
+            }
+        }
+    }
+
+    private void index(int position, String name, Record record) {
+        Standing standing = standings.get(name);
+        if (standing == null) {
+            standing = new Standing(name);
+            standings.put(name, standing);
+        }
+        standing.add(position, record.won, record.sets, record.claimLatencyMicros);
+    }
+
+    /**
+     * Appends the results of a game at the end of the file (a single write, forced to the disk), with the file locked
+     * against the other processes that append to it.
+     */
+    public synchronized void append(List<Record> results) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(results.size() * RECORD_BYTES);
+        for (Record record : results) encode(record, out);
+        out.flip();
+        try (FileLock lock = channel.lock()) {
+            indexNewRecords(); // appended by the others since
+            long position = channel.size();
+            while (out.hasRemaining()) position += channel.write(out, position);
+            channel.force(false);
+        }
+        for (Record record : results)
+            index(records++, new String(name(record.name), StandardCharsets.UTF_8), record); // the name as read back
+    }
+
+    /**
+     * @return - the number of records in the store.
+     */
+    public synchronized int size() {
+        return records;
+    }
+
+    /**
+     * @return - the standing of the player, or null if the player has no records.
+     */
+    public synchronized Standing standing(String name) {
+        return standings.get(name);
+    }
+
+    /**
+     * @return - the k best players, best first (see RANKING), in O(players log k).
+     */
+    public synchronized List<Standing> leaderboard(int k) {
+        PriorityQueue<Standing> best = new PriorityQueue<>(Math.max(k, 1), RANKING);
+        for (Standing standing : standings.values()) {
+            if (best.size() < k) {
+                best.add(standing);
+            } else if (k > 0 && RANKING.compare(standing, best.peek()) > 0) {
+                best.poll();
+                best.add(standing);
+            }
+        }
+        List<Standing> leaders = new ArrayList<>(best);
+        leaders.sort(RANKING.reversed());
+        return leaders;
+    }
+
+    /**
+     * @return - the player's last results, newest first (read from the file through the index).
+     */
+    public synchronized List<Record> history(String name, int count) throws IOException {
+        Standing standing = standings.get(name);
+        List<Record> history = new ArrayList<>();
+        if (standing == null) return history;
+        for (int i = standing.count - 1; i >= 0 && history.size() < count; i--) {
+            buffer.clear();
+            long position = HEADER_BYTES + (long) standing.records[i] * RECORD_BYTES;
+            while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) ;
+            buffer.flip();
+            Record record = new Record();
+            decode(buffer, record);
+            history.add(record);
+        }
+        return history;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private static void encode(Record record, ByteBuffer out) {
+        out.putLong(record.timeMillis);
+        out.putLong(record.seed);
+        out.put(Arrays.copyOf(name(record.name), NAME_BYTES));
+        out.put((byte) record.players);
+        out.put((byte) (record.won ? 1 : 0));
+        out.putShort((short) Math.min(record.sets, Short.MAX_VALUE));
+        out.putInt(record.claimLatencyMicros);
+    }
+
+    private static void decode(ByteBuffer in, Record record) {
+        record.timeMillis = in.getLong();
+        record.seed = in.getLong();
+        byte[] name = new byte[NAME_BYTES];
+        in.get(name);
+        int length = 0;
+        while (length < NAME_BYTES && name[length] != 0) length++;
+        record.name = new String(name, 0, length, StandardCharsets.UTF_8);
+        record.players = in.get() & 0xff;
+        record.won = in.get() != 0;
+        record.sets = in.getShort();
+        record.claimLatencyMicros = in.getInt();
+    }
+
+    /**
+     * @return - the UTF-8 bytes of the name, cut to NAME_BYTES at a character boundary.
+     */
+    private static byte[] name(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= NAME_BYTES) return bytes;
+        int length = NAME_BYTES;
+        while ((bytes[length] & 0xc0) == 0x80) length--; // not in the middle of a character
+        return Arrays.copyOf(bytes, length);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: StatsStore stats-file [top [k] | history name [count]]");
+            System.exit(2);
+        }
+        try (StatsStore store = new StatsStore(new File(args[0]))) {
+            if (args.length > 2 && args[1].equals("history")) {
+                int count = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+                Standing standing = store.standing(args[2]);
+                System.out.println(standing == null ? "no games of " + args[2] : standing);
+                for (Record record : store.history(args[2], count)) System.out.println(record);
+            } else {
+                int k = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+                System.out.println(store.size() + " results");
+                int rank = 1;
+                for (Standing standing : store.leaderboard(k)) System.out.printf("%3d. %s%n", rank++, standing);
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package bguspl.set;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The resources used by each thread of a game: CPU time, user time, allocated bytes, the number of times it blocked
+ * on a monitor or waited, and its wall time. The threads report their own start and end (see {@link ThreadLogger}),
+ * since the JVM forgets the resources of a thread once it terminates; the live threads are sampled on demand.
+ * Resources the JVM does not measure are reported as -1.
+ */
+public class ThreadAccounting implements ThreadAccountingMBean {
+
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * The resources used by a thread.
+     */
+    public static final class Usage {
+        public final String name;
+        public final LockProfiler.Role role;
+        public final boolean alive;
+        public final long cpuNanos;
+        public final long userNanos;
+        public final long allocatedBytes;
+        public final long blockedCount;
+        public final long waitedCount;
+        public final long wallNanos;
+
+        Usage(Thread thread, LockProfiler.Role role, long startNanos, boolean alive) {
+            long id = thread.getId();
+            this.name = thread.getName();
+            this.role = role;
+            this.alive = alive;
+            this.cpuNanos = threadBean.isThreadCpuTimeSupported() ? threadBean.getThreadCpuTime(id) : -1;
+            this.userNanos = threadBean.isThreadCpuTimeSupported() ? threadBean.getThreadUserTime(id) : -1;
+            this.allocatedBytes = allocatedBytes(id);
+            ThreadInfo info = threadBean.getThreadInfo(id);
+            this.blockedCount = info != null ? info.getBlockedCount() : -1;
+            this.waitedCount = info != null ? info.getWaitedCount() : -1;
+            this.wallNanos = System.nanoTime() - startNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-12s %-6s%s cpu %.1f ms, user %.1f ms, allocated %.1f MB, blocked %d, waited %d, wall %.1f ms",
+                    name, role, alive ? " (live)" : "", cpuNanos / 1e6, userNanos / 1e6, allocatedBytes / 1e6,
+                    blockedCount, waitedCount, wallNanos / 1e6);
+        }
+    }
+
+    /**
+     * A live thread: its role and start time.
+     */
+    private static final class Entry {
+        final LockProfiler.Role role;
+        final long startNanos = System.nanoTime();
+
+        Entry(LockProfiler.Role role) {
+            this.role = role;
+        }
+    }
+
+    private final Map<Thread, Entry> live = new ConcurrentHashMap<>();
+    private final List<Usage> finished = new ArrayList<>();
+    private ObjectName name;
+
+    /**
+     * Called by a thread when it starts.
+     *
+     * @param role - the role of the thread in the game.
+     */
+    public void started(LockProfiler.Role role) {
+        live.put(Thread.currentThread(), new Entry(role));
+    }
+
+    /**
+     * Called by a thread right before it terminates.
+     */
+    public void finished() {
+        Thread thread = Thread.currentThread();
+        Entry entry = live.get(thread);
+        if (entry == null) return;
+        Usage usage = new Usage(thread, entry.role, entry.startNanos, false);
+        synchronized (finished) {
+            finished.add(usage);
+        }
+        live.remove(thread);
+    }
+
+    /**
+     * @return - the resources used by the threads that terminated, and so far by the live ones.
+     */
+    public List<Usage> usage() {
+        List<Usage> usage;
+        synchronized (finished) {
+            usage = new ArrayList<>(finished);
+        }
+        live.forEach((thread, entry) -> usage.add(new Usage(thread, entry.role, entry.startNanos, true)));
+        return usage;
+    }
+
+    @Override
+    public String[] getThreads() {
+        List<Usage> usage = usage();
+        String[] lines = new String[usage.size()];
+        for (int i = 0; i < lines.length; i++) lines[i] = usage.get(i).toString();
+        return lines;
+    }
+
+    @Override
+    public String getSummary() {
+        return summary(usage());
+    }
+
+    /**
+     * @param threads - the resources used by threads (e.g. of several games).
+     * @return - the resources used per role.
+     */
+    public static String summary(List<Usage> threads) {
+        Map<LockProfiler.Role, long[]> roles = new EnumMap<>(LockProfiler.Role.class);
+        for (Usage usage : threads) {
+            long[] total = roles.computeIfAbsent(usage.role, role -> new long[4]);
+            total[0]++;
+            total[1] += Math.max(0, usage.cpuNanos);
+            total[2] += Math.max(0, usage.userNanos);
+            total[3] += Math.max(0, usage.allocatedBytes);
+        }
+        StringBuilder sb = new StringBuilder("thread usage per role:");
+        roles.forEach((role, total) -> sb.append(String.format("%n%-6s %3d threads, cpu %.1f ms, user %.1f ms, allocated %.1f MB",
+                role, total[0], total[1] / 1e6, total[2] / 1e6, total[3] / 1e6)));
+        return sb.toString();
+    }
+
+    /**
+     * @return - the summary per role followed by a line per thread.
+     */
+    public String report() {
+        StringBuilder sb = new StringBuilder(getSummary());
+        for (String line : getThreads()) sb.append(String.format("%n")).append(line);
+        return sb.toString();
+    }
+
+    /**
+     * Registers the accounting with the platform MBean server, replacing the one registered under the same name.
+     *
+     * @param game - the name of the game (unique in the process).
+     */
+    public synchronized void register(String game) throws JMException {
+        ObjectName objectName = new ObjectName("bguspl.set:type=ThreadAccounting,name=" + ObjectName.quote(game));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, objectName);
+        } catch (InstanceAlreadyExistsException e) {
+            server.unregisterMBean(objectName);
+            server.registerMBean(this, objectName);
+        }
+        name = objectName;
+    }
+
+    /**
+     * Removes the accounting from the platform MBean server (if it was registered).
+     */
+    public synchronized void unregister() {
+        if (name == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException ignored) {
+            // someone else registered an accounting under the same name since
+        }
+        name = null;
+    }
+
+    private static long allocatedBytes(long id) {
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) return -1;
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+        return bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()
+                ? bean.getThreadAllocatedBytes(id) : -1;
+    }
+}
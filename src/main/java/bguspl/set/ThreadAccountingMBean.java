@@ -0,0 +1,17 @@
+package bguspl.set;
+
+/**
+ * The JMX view of the {@link ThreadAccounting} of a game.
+ */
+public interface ThreadAccountingMBean {
+
+    /**
+     * @return - the resources used by each thread of the game, live or terminated.
+     */
+    String[] getThreads();
+
+    /**
+     * @return - the resources used by the threads of the game, per role.
+     */
+    String getSummary();
+}
@@ -1,34 +1,91 @@
-package bguspl.set;
-
-import java.util.logging.Logger;
-
-public class ThreadLogger extends Thread {
-
-    final Logger logger;
-
-    public ThreadLogger(Runnable target, String name, Logger logger) {
-        super(target, name);
-        this.logger = logger;
-    }
-
-    public void startWithLog() {
-        logStart(logger, getName());
-        super.start();
-    }
-
-    public void joinWithLog() throws InterruptedException {
-        try {
-            join();
-        } finally {
-            logStop(logger, getName());
-        }
-    }
-
-    public static void logStart(Logger logger, String name) {
-        logger.info("thread " + name + " starting.");
-    }
-
-    public static void logStop(Logger logger, String name) {
-        logger.info("thread " + name + " terminated.");
-    }
-}
+package bguspl.set;
+
+import java.util.logging.Logger;
+
+public class ThreadLogger extends Thread {
+
+    final Logger logger;
+
+    /**
+     * The accounting the thread reports its resources to (null for none), and its role there.
+     */
+    private final ThreadAccounting accounting;
+    private final LockProfiler.Role role;
+
+    /**
+     * The clock the thread waits on (null for none), which is told when the thread starts and ends.
+     */
+    private final Clock clock;
+
+    public ThreadLogger(Runnable target, String name, Logger logger) {
+        this(null, target, name, logger, null, null);
+    }
+
+    public ThreadLogger(ThreadGroup group, Runnable target, String name, Logger logger) {
+        this(group, target, name, logger, null, null);
+    }
+
+    /**
+     * @param group      - the thread group (null for the group of the creating thread).
+     * @param target     - the code of the thread.
+     * @param name       - the name of the thread.
+     * @param logger     - the logger.
+     * @param accounting - the accounting the thread reports its resources to when it starts and ends.
+     * @param role       - the role of the thread in the game.
+     */
+    public ThreadLogger(ThreadGroup group, Runnable target, String name, Logger logger, ThreadAccounting accounting,
+                        LockProfiler.Role role) {
+        this(group, target, name, logger, accounting, role, null);
+    }
+
+    /**
+     * @param clock - the clock the thread waits on (see Clock.register).
+     */
+    public ThreadLogger(ThreadGroup group, Runnable target, String name, Logger logger, ThreadAccounting accounting,
+                        LockProfiler.Role role, Clock clock) {
+        super(group, target, name);
+        this.logger = logger;
+        this.accounting = accounting;
+        this.role = role;
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (clock != null) clock.register(this);
+        super.start();
+    }
+
+    @Override
+    public void run() {
+        if (clock != null) clock.started();
+        if (accounting != null) accounting.started(role);
+        try {
+            super.run();
+        } finally {
+            if (accounting != null) accounting.finished();
+            if (clock != null) clock.finished();
+        }
+    }
+
+    public void startWithLog() {
+        logStart(logger, getName());
+        start();
+    }
+
+    public void joinWithLog() throws InterruptedException {
+        try {
+            join();
+        } finally {
+            logStop(logger, getName());
+        }
+    }
+
+    public static void logStart(Logger logger, String name) {
+        logger.info("thread " + name + " starting.");
+    }
+
+    public static void logStop(Logger logger, String name) {
+        logger.info("thread " + name + " terminated.");
+    }
+}
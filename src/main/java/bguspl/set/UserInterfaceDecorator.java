@@ -1,104 +1,124 @@
-package bguspl.set;
-
-import java.util.Arrays;
-import java.util.List;
-import java.util.logging.Logger;
-import java.util.stream.Collectors;
-
-public class UserInterfaceDecorator implements UserInterface {
-
-    private final Logger logger;
-    private final Util util;
-    private final UserInterface ui;
-
-    public UserInterfaceDecorator(Logger logger, Util util, UserInterface ui) {
-        this.ui = ui;
-        this.logger = logger;
-        this.util = util;
-
-        if (ui == null) System.out.println("running without a user interface. Check logs.");
-    }
-
-    @Override
-    public void placeCard(int card, int slot) {
-        logger.severe("placing card " + card + " in slot " + slot);
-        util.spin();
-        if (ui != null) ui.placeCard(card, slot);
-    }
-
-    @Override
-    public void removeCard(int slot) {
-        logger.severe("removing card from slot " + slot);
-        util.spin();
-        if (ui != null) ui.removeCard(slot);
-    }
-
-    @Override
-    public void placeToken(int player, int slot) {
-        logger.severe("player " + (player + 1) + " placing token on slot " + slot);
-        util.spin();
-        if (ui != null) ui.placeToken(player, slot);
-    }
-
-    @Override
-    public void removeTokens() {
-        logger.severe("removing all tokens");
-        util.spin();
-        if (ui != null) ui.removeTokens();
-    }
-
-    @Override
-    public void removeTokens(int slot) {
-        logger.severe("removing tokens from slot " + slot);
-        util.spin();
-        if (ui != null) ui.removeTokens(slot);
-    }
-
-    @Override
-    public void removeToken(int player, int slot) {
-        logger.severe("removing player " + (player + 1) + " token from slot " + slot);
-        util.spin();
-        if (ui != null) ui.removeToken(player, slot);
-    }
-
-    @Override
-    public void setCountdown(long millies, boolean warn) {
-        if (!warn || millies % 1000L == 0L)
-            logger.severe("updating countdown to " + millies);
-        if (ui != null) ui.setCountdown(millies, warn);
-    }
-
-    @Override
-    public void setElapsed(long millies) {
-        logger.severe("updating elapsed time to " + millies);
-        util.spin();
-        if (ui != null) ui.setElapsed(millies);
-    }
-
-    @Override
-    public void setFreeze(int player, long millies) {
-        logger.severe("setting player " + (player + 1) + " freeze to " + millies);
-        util.spin();
-        if (ui != null) ui.setFreeze(player, millies);
-    }
-
-    @Override
-    public void setScore(int player, int score) {
-        logger.severe("setting player " + (player + 1) + " score to " + score);
-        util.spin();
-        if (ui != null) ui.setScore(player, score);
-    }
-
-    @Override
-    public void announceWinner(int[] players) {
-        List<String> winners = Arrays.stream(players).mapToObj(id -> "player " + (id + 1)).collect(Collectors.toList());
-        logger.severe("announcing winner(s): " + String.join(", ", winners));
-        if (ui != null) ui.announceWinner(players);
-    }
-
-    @Override
-    public void dispose() {
-        logger.severe("disposing of user interface elements");
-        if (ui != null) ui.dispose();
-    }
-}
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+public class UserInterfaceDecorator implements UserInterface {
+
+    /**
+     * The level of the user interface events (they are too frequent for the levels that are always on).
+     */
+    static final Level EVENT_LEVEL = Level.FINE;
+
+    private final Logger logger;
+    private final Util util;
+    private final UserInterface ui;
+
+    public UserInterfaceDecorator(Logger logger, Util util, UserInterface ui) {
+        this.ui = ui;
+        this.logger = logger;
+        this.util = util;
+
+        if (ui == null) System.out.println("running without a user interface. Check logs.");
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        if (logger.isLoggable(EVENT_LEVEL)) logger.log(EVENT_LEVEL, "placing card {0} in slot {1}", new Object[]{card, slot});
+        util.spin();
+        if (ui != null) ui.placeCard(card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        if (logger.isLoggable(EVENT_LEVEL)) logger.log(EVENT_LEVEL, "removing card from slot {0}", new Object[]{slot});
+        util.spin();
+        if (ui != null) ui.removeCard(slot);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        if (logger.isLoggable(EVENT_LEVEL)) logger.log(EVENT_LEVEL, "player {0} placing token on slot {1}", new Object[]{player + 1, slot});
+        util.spin();
+        if (ui != null) ui.placeToken(player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        logger.log(EVENT_LEVEL, "removing all tokens");
+        util.spin();
+        if (ui != null) ui.removeTokens();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        if (logger.isLoggable(EVENT_LEVEL)) logger.log(EVENT_LEVEL, "removing tokens from slot {0}", new Object[]{slot});
+        util.spin();
+        if (ui != null) ui.removeTokens(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        if (logger.isLoggable(EVENT_LEVEL)) logger.log(EVENT_LEVEL, "removing player {0} token from slot {1}", new Object[]{player + 1, slot});
+        util.spin();
+        if (ui != null) ui.removeToken(player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        if ((!warn || millies % 1000L == 0L) && logger.isLoggable(EVENT_LEVEL))
+            logger.log(EVENT_LEVEL, "updating countdown to {0}", millies);
+        if (ui != null) ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        if (logger.isLoggable(EVENT_LEVEL)) logger.log(EVENT_LEVEL, "updating elapsed time to {0}", new Object[]{millies});
+        util.spin();
+        if (ui != null) ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        if (logger.isLoggable(EVENT_LEVEL)) logger.log(EVENT_LEVEL, "setting player {0} freeze to {1}", new Object[]{player + 1, millies});
+        util.spin();
+        if (ui != null) ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        if (logger.isLoggable(EVENT_LEVEL)) logger.log(EVENT_LEVEL, "setting player {0} score to {1}", new Object[]{player + 1, score});
+        util.spin();
+        if (ui != null) ui.setScore(player, score);
+    }
+
+    @Override
+    public void restoreScore(int player, int score) {
+        if (logger.isLoggable(EVENT_LEVEL)) logger.log(EVENT_LEVEL, "restoring player {0} score to {1}", new Object[]{player + 1, score});
+        if (ui != null) ui.restoreScore(player, score);
+    }
+
+    @Override
+    public void restoreToken(int player, int slot) {
+        if (logger.isLoggable(EVENT_LEVEL)) logger.log(EVENT_LEVEL, "restoring player {0} token on slot {1}", new Object[]{player + 1, slot});
+        if (ui != null) ui.restoreToken(player, slot);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        if (logger.isLoggable(Level.INFO)) {
+            List<String> winners = Arrays.stream(players).mapToObj(id -> "player " + (id + 1)).collect(Collectors.toList());
+            logger.log(Level.INFO, "announcing winner(s): {0}", String.join(", ", winners));
+        }
+        if (ui != null) ui.announceWinner(players);
+    }
+
+    @Override
+    public void dispose() {
+        logger.info("disposing of user interface elements");
+        if (ui != null) ui.dispose();
+    }
+}
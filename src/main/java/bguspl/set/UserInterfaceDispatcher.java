@@ -0,0 +1,195 @@
+package bguspl.set;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects the changes the game threads make to the user interface, and applies them to the wrapped user interface
+ * on the event dispatch thread a fixed number of times per second. The game threads only update the pending state
+ * (lock-free, never waiting for Swing), and all the changes of a frame end up in a single repaint. Changes to the
+ * same element within a frame are coalesced: only the last one is shown (e.g. the countdown, which the dealer
+ * updates every millisecond in the warning phase).
+ * <p>
+ * Notes:
+ * 1. The tokens of each slot are kept as a bitmask of the players, so there can be at most 64 players.
+ * 2. announceWinner and dispose are applied right away (after the pending changes).
+ */
+public class UserInterfaceDispatcher implements UserInterface {
+
+    /**
+     * The value of an element that did not change since the last frame.
+     */
+    private static final int NO_CHANGE = Integer.MIN_VALUE;
+    private static final long NO_CHANGE_LONG = Long.MIN_VALUE;
+
+    /**
+     * The pending card of an empty slot.
+     */
+    private static final int EMPTY = -1;
+
+    private final UserInterface ui;
+    private final Config config;
+
+    /**
+     * The pending state: the cards (per slot), the tokens that should be shown (per slot, a bitmask of the players),
+     * whether the tokens of a slot changed, the countdown (the milliseconds shifted left, with the warning in the
+     * lowest bit), the elapsed time, the freeze times and the scores (per player).
+     */
+    private final AtomicIntegerArray cards;
+    private final AtomicLongArray tokens;
+    private final AtomicIntegerArray tokensChanged;
+    private final AtomicLong countdown = new AtomicLong(NO_CHANGE_LONG);
+    private final AtomicLong elapsed = new AtomicLong(NO_CHANGE_LONG);
+    private final AtomicLongArray freezes;
+    private final AtomicIntegerArray scores;
+
+    /**
+     * The tokens that are shown (used by the event dispatch thread only).
+     */
+    private final long[] shownTokens;
+
+    private final Timer timer;
+
+    /**
+     * @param ui     - the user interface to update (on the event dispatch thread).
+     * @param config - the game configuration. If the frame rate is not positive, the changes are applied only when
+     *               flush is called.
+     */
+    public UserInterfaceDispatcher(UserInterface ui, Config config) {
+        if (config.players > Long.SIZE) throw new IllegalArgumentException("too many players: " + config.players);
+        this.ui = ui;
+        this.config = config;
+        cards = new AtomicIntegerArray(config.tableSize);
+        tokens = new AtomicLongArray(config.tableSize);
+        tokensChanged = new AtomicIntegerArray(config.tableSize);
+        shownTokens = new long[config.tableSize];
+        freezes = new AtomicLongArray(config.players);
+        scores = new AtomicIntegerArray(config.players);
+        for (int slot = 0; slot < config.tableSize; slot++) cards.set(slot, NO_CHANGE);
+        for (int player = 0; player < config.players; player++) {
+            freezes.set(player, NO_CHANGE_LONG);
+            scores.set(player, NO_CHANGE);
+        }
+
+        if (config.frameRate > 0) {
+            timer = new Timer(Math.max(1, 1000 / config.frameRate), e -> flush());
+            timer.setCoalesce(true);
+            timer.start();
+        } else {
+            timer = null;
+        }
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        cards.set(slot, card);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        cards.set(slot, EMPTY);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        tokens.accumulateAndGet(slot, 1L << player, (mask, bit) -> mask | bit);
+        tokensChanged.set(slot, 1);
+    }
+
+    @Override
+    public void removeTokens() {
+        for (int slot = 0; slot < config.tableSize; slot++)
+            removeTokens(slot);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        tokens.set(slot, 0);
+        tokensChanged.set(slot, 1);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        tokens.accumulateAndGet(slot, ~(1L << player), (mask, bits) -> mask & bits);
+        tokensChanged.set(slot, 1);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        countdown.set(millies << 1 | (warn ? 1 : 0));
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        elapsed.set(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        freezes.set(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        scores.set(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        EventQueue.invokeLater(() -> {
+            flush();
+            ui.announceWinner(players);
+        });
+    }
+
+    @Override
+    public void dispose() {
+        if (timer != null) timer.stop();
+        EventQueue.invokeLater(() -> {
+            flush();
+            ui.dispose();
+        });
+    }
+
+    /**
+     * Applies the pending changes to the wrapped user interface. Called by the frame timer on the event dispatch
+     * thread.
+     */
+    void flush() {
+        for (int slot = 0; slot < config.tableSize; slot++) {
+            int card = cards.getAndSet(slot, NO_CHANGE);
+            if (card == EMPTY) ui.removeCard(slot);
+            else if (card != NO_CHANGE) ui.placeCard(card, slot);
+
+            if (tokensChanged.getAndSet(slot, 0) != 0) {
+                long mask = tokens.get(slot);
+                long changed = mask ^ shownTokens[slot];
+                if (mask == 0 && changed != 0) {
+                    ui.removeTokens(slot);
+                } else {
+                    for (int player = 0; changed != 0; player++, changed >>>= 1) {
+                        if ((changed & 1) == 0) continue;
+                        if ((mask & 1L << player) != 0) ui.placeToken(player, slot);
+                        else ui.removeToken(player, slot);
+                    }
+                }
+                shownTokens[slot] = mask;
+            }
+        }
+
+        long time = countdown.getAndSet(NO_CHANGE_LONG);
+        if (time != NO_CHANGE_LONG) ui.setCountdown(time >> 1, (time & 1) != 0);
+        time = elapsed.getAndSet(NO_CHANGE_LONG);
+        if (time != NO_CHANGE_LONG) ui.setElapsed(time);
+
+        for (int player = 0; player < config.players; player++) {
+            long freeze = freezes.getAndSet(player, NO_CHANGE_LONG);
+            if (freeze != NO_CHANGE_LONG) ui.setFreeze(player, freeze);
+            int score = scores.getAndSet(player, NO_CHANGE);
+            if (score != NO_CHANGE) ui.setScore(player, score);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package bguspl.set;
+
+/**
+ * Spins for a random number of cycles (see Config::randomSpinMin and Config::randomSpinMax) before passing a change
+ * on to the wrapped user interface, like UserInterfaceDecorator does but without its logging. It keeps the timing
+ * perturbation of the random spin in games with no window, whose user interface must stay cheap otherwise.
+ */
+public class UserInterfaceSpinner implements UserInterface {
+
+    private final Util util;
+    private final UserInterface ui;
+
+    public UserInterfaceSpinner(Util util, UserInterface ui) {
+        this.util = util;
+        this.ui = ui;
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        util.spin();
+        ui.placeCard(card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        util.spin();
+        ui.removeCard(slot);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        util.spin();
+        ui.placeToken(player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        util.spin();
+        ui.removeTokens();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        util.spin();
+        ui.removeTokens(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        util.spin();
+        ui.removeToken(player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        util.spin();
+        ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        util.spin();
+        ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        util.spin();
+        ui.setScore(player, score);
+    }
+
+    @Override
+    public void restoreScore(int player, int score) {
+        ui.restoreScore(player, score);
+    }
+
+    @Override
+    public void restoreToken(int player, int slot) {
+        ui.restoreToken(player, slot);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        ui.announceWinner(players);
+    }
+
+    @Override
+    public void dispose() {
+        ui.dispose();
+    }
+}
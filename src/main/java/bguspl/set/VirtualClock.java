@@ -0,0 +1,320 @@
+package bguspl.set;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A simulated clock. Time stands still while any of the threads using the clock is running, and as soon as all of
+ * them wait on the clock it jumps straight to the nearest deadline and releases the thread waiting for it. A
+ * multi-minute game therefore takes only as long as the computation it actually does.
+ * <p>
+ * The registered threads (the participants) take turns: exactly one of them runs at a time, and it hands the turn on
+ * when it sleeps, waits, joins another thread or terminates. The next turn goes to the thread that was released first
+ * (by a signal, an interrupt through the clock or the end of a joined thread), and when no thread is released the time
+ * moves to the nearest deadline. The clock thus always knows when everyone is idle, and runs with the same input make
+ * the same moves in the same order.
+ * <p>
+ * Notes:
+ * 1. A participant must not block outside of the clock (e.g. in Thread.join or on a lock held by a waiting thread),
+ * since nobody else runs until it hands the turn on. Sleeps while holding locks go through pause().
+ * 2. A thread that was not registered joins in only while it waits on the clock: it runs in its own time between waits.
+ * 3. A sleep of 0 (or less) milliseconds still lets one millisecond pass, so busy loops cannot stop the time.
+ * 4. The clock never interrupts a thread: waiters are woken up through the monitor they wait on (or the clock's lock).
+ */
+public class VirtualClock implements Clock {
+
+    /**
+     * The deadline of a wait with no timeout.
+     */
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    /**
+     * A thread waiting on the clock for its turn to run.
+     */
+    private static final class Waiter {
+        final Thread thread;
+        final Object monitor; // the monitor of an await, null for the waits on the clock's lock
+        final Thread joined;  // the thread a join waits for
+        final long deadline;
+        final long sequence;
+        boolean released;     // it is in line for the turn (guarded by the clock's lock)
+        boolean interrupted;  // the wait ends with an InterruptedException (guarded by the clock's lock)
+        volatile boolean turn;
+
+        Waiter(Thread thread, Object monitor, Thread joined, long deadline, long sequence) {
+            this.thread = thread;
+            this.monitor = monitor;
+            this.joined = joined;
+            this.deadline = deadline;
+            this.sequence = sequence;
+        }
+    }
+
+    private final Object lock = new Object();
+    private volatile long now;
+    private long sequence;
+
+    /**
+     * The thread whose turn it is, null if none.
+     */
+    private Thread running;
+    private final Set<Thread> participants = new HashSet<>();
+
+    /**
+     * The threads waiting on the clock, in the order they started waiting.
+     */
+    private final Map<Thread, Waiter> waiting = new LinkedHashMap<>();
+    private final ArrayDeque<Waiter> released = new ArrayDeque<>();
+    private final TreeSet<Waiter> timers = new TreeSet<>(
+            Comparator.comparingLong((Waiter waiter) -> waiter.deadline).thenComparingLong(waiter -> waiter.sequence));
+
+    public VirtualClock() {
+        this(0);
+    }
+
+    /**
+     * @param start - the initial time in milliseconds.
+     */
+    public VirtualClock(long start) {
+        now = start;
+    }
+
+    @Override
+    public long millis() {
+        return now;
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        Waiter waiter;
+        Waiter next;
+        synchronized (lock) {
+            waiter = enter(null, null, now + Math.max(millis, 1));
+            next = handOn();
+        }
+        wake(next);
+        waitTurn(waiter);
+        leave(waiter);
+    }
+
+    @Override
+    public void await(Object monitor, long timeout) throws InterruptedException {
+        Waiter waiter;
+        Waiter next;
+        synchronized (lock) {
+            waiter = enter(monitor, null, timeout > 0 ? now + timeout : NO_DEADLINE);
+            next = handOn();
+        }
+        wake(next);
+        waitTurn(waiter);
+        leave(waiter);
+    }
+
+    @Override
+    public void pause(long millis) throws InterruptedException {
+        if (Thread.interrupted()) throw new InterruptedException();
+        if (millis <= 0) return;
+        synchronized (lock) {
+            now += millis;
+        }
+    }
+
+    @Override
+    public void register(Thread thread) {
+        Waiter next = null;
+        synchronized (lock) {
+            if (!participants.add(thread)) return; // already announced
+            Waiter start = new Waiter(thread, null, null, NO_DEADLINE, sequence++);
+            waiting.put(thread, start);
+            release(start);
+            if (running == null) next = pass();
+        }
+        wake(next);
+    }
+
+    @Override
+    public void started() {
+        Waiter waiter;
+        synchronized (lock) {
+            waiter = waiting.get(Thread.currentThread());
+            if (waiter == null) return; // not registered
+        }
+        waitTurn(waiter);
+        boolean interrupted;
+        synchronized (lock) {
+            waiting.remove(waiter.thread);
+            interrupted = waiter.interrupted;
+        }
+        if (interrupted) Thread.currentThread().interrupt(); // kept for the first wait of the thread
+    }
+
+    @Override
+    public void finished() {
+        Waiter next = null;
+        synchronized (lock) {
+            Thread thread = Thread.currentThread();
+            if (!participants.remove(thread)) return;
+            for (Waiter waiter : waiting.values())
+                if (waiter.joined == thread) release(waiter);
+            if (running == thread) next = pass();
+        }
+        wake(next);
+    }
+
+    @Override
+    public void join(Thread thread) throws InterruptedException {
+        Waiter waiter = null;
+        Waiter next = null;
+        synchronized (lock) {
+            if (participants.contains(thread) && thread != Thread.currentThread()) {
+                waiter = enter(null, thread, NO_DEADLINE);
+                next = handOn();
+            }
+        }
+        if (waiter != null) {
+            wake(next);
+            waitTurn(waiter);
+            leave(waiter);
+        }
+        thread.join(); // it is done with the clock, only its last steps are left
+    }
+
+    @Override
+    public void interrupt(Thread thread) {
+        Waiter next;
+        synchronized (lock) {
+            Waiter waiter = waiting.get(thread);
+            if (waiter == null) {
+                thread.interrupt(); // it is running, so its next wait ends right away
+                return;
+            }
+            next = interrupted(waiter);
+        }
+        wake(next);
+    }
+
+    @Override
+    public void signal(Object monitor) {
+        Waiter next = null;
+        synchronized (lock) {
+            for (Waiter waiter : waiting.values())
+                if (waiter.monitor == monitor) release(waiter);
+            if (running == null) next = pass(); // signalled from outside while all the participants wait
+        }
+        wake(next);
+    }
+
+    /**
+     * Starts a wait of the calling thread. Must be called while holding the clock's lock.
+     */
+    private Waiter enter(Object monitor, Thread joined, long deadline) throws InterruptedException {
+        if (Thread.interrupted()) throw new InterruptedException();
+        Thread thread = Thread.currentThread();
+        Waiter waiter = new Waiter(thread, monitor, joined, deadline, sequence++);
+        waiting.put(thread, waiter);
+        if (deadline != NO_DEADLINE) timers.add(waiter);
+        return waiter;
+    }
+
+    /**
+     * Hands the turn on if it is the calling thread's turn (or nobody's). Must be called while holding the clock's lock.
+     *
+     * @return - the waiter to wake up, see pass().
+     */
+    private Waiter handOn() {
+        return running == Thread.currentThread() || running == null ? pass() : null;
+    }
+
+    /**
+     * Gives the turn to the thread that was released first, or else moves the time to the nearest deadline and gives
+     * the turn to the thread waiting for it. Must be called while holding the clock's lock.
+     *
+     * @return - the waiter to wake up through its monitor (after letting go of the clock's lock), or null if none.
+     */
+    private Waiter pass() {
+        running = null;
+        Waiter next = released.poll();
+        if (next == null) {
+            next = timers.pollFirst();
+            if (next == null) return null;
+            now = Math.max(now, next.deadline);
+            next.released = true;
+        }
+        running = next.thread;
+        if (next.monitor != null) return next;
+        next.turn = true;
+        lock.notifyAll();
+        return null;
+    }
+
+    /**
+     * Puts the waiter in line for the turn. Must be called while holding the clock's lock.
+     */
+    private void release(Waiter waiter) {
+        if (waiter.released) return;
+        waiter.released = true;
+        timers.remove(waiter);
+        released.add(waiter);
+    }
+
+    /**
+     * Ends the wait with an InterruptedException once it is the waiter's turn.
+     *
+     * @return - the waiter to wake up, see pass().
+     */
+    private Waiter interrupted(Waiter waiter) {
+        synchronized (lock) {
+            waiter.interrupted = true;
+            if (waiter.released) return null;
+            release(waiter);
+            return running == null ? pass() : null;
+        }
+    }
+
+    /**
+     * Gives a monitor waiter its turn. It is done without holding the clock's lock, since the waiters take the two
+     * locks in the opposite order, and the waiter only goes on once it owns its monitor again.
+     */
+    private void wake(Waiter waiter) {
+        if (waiter == null) return;
+        synchronized (waiter.monitor) {
+            waiter.turn = true;
+            waiter.monitor.notifyAll();
+        }
+    }
+
+    private void waitTurn(Waiter waiter) {
+        Object object = waiter.monitor != null ? waiter.monitor : lock;
+        while (true) {
+            synchronized (object) {
+                try {
+                    while (!waiter.turn) object.wait();
+                    return;
+                } catch (InterruptedException e) {
+                    // an interrupt that did not go through the clock: the thread still waits for its turn
+                }
+            }
+            wake(interrupted(waiter));
+        }
+    }
+
+    /**
+     * Ends a wait of the calling thread, which has the turn. A thread that is not a participant hands it back.
+     */
+    private void leave(Waiter waiter) throws InterruptedException {
+        Waiter next = null;
+        boolean interrupted;
+        synchronized (lock) {
+            waiting.remove(waiter.thread);
+            interrupted = waiter.interrupted;
+            if (!participants.contains(waiter.thread)) next = pass();
+        }
+        wake(next);
+        if (interrupted) throw new InterruptedException();
+    }
+}
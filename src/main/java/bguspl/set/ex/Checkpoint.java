@@ -0,0 +1,148 @@
+package bguspl.set.ex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A snapshot of the complete state of a game, from which the game can be resumed: the dealer's deck, the cards on the
+ * table (which are all the cards left in the game with the deck), the time left to the reshuffle, and per player the score, the tokens, the time left
+ * to the end of the freeze and the state of the player's claim.
+ * <p>
+ * The snapshot is a copy (see Dealer.checkpoint), so it can be written while the game goes on.
+ * The format: the magic "SETC" (4 bytes), the version (1 byte), the configuration hash (8 bytes),
+ * and then the arrays, each as its length followed by its values (cards, slots and scores as 2 byte values, times as
+ * 4 byte milliseconds).
+ */
+public class Checkpoint {
+
+    private static final int MAGIC = 0x53455443; // "SETC"
+    private static final int VERSION = 1;
+
+    /**
+     * The state of a player's claim when the snapshot was taken.
+     */
+    public static final int NO_CLAIM = 0;
+    public static final int CLAIM_PENDING = 1; // waiting for the dealer's verdict (it is handed in again on resume)
+    public static final int CLAIM_LEGAL = 2;   // the verdict was given but not applied yet (it is applied on resume)
+    public static final int CLAIM_ILLEGAL = 3;
+
+    long configHash;
+    int[] deck;
+    int[] table; // the card per slot, -1 for an empty slot
+    long turnMillis;
+    int[] scores;
+    int[][] tokens;
+    long[] freezeMillis;
+    int[] claims;
+
+    Checkpoint(int players) {
+        scores = new int[players];
+        tokens = new int[players][];
+        freezeMillis = new long[players];
+        claims = new int[players];
+    }
+
+    /**
+     * @return - the hash of the configuration of the game (see Config.hash).
+     */
+    public long configHash() {
+        return configHash;
+    }
+
+    public int players() {
+        return scores.length;
+    }
+
+    public int score(int player) {
+        return scores[player];
+    }
+
+    /**
+     * @return - the cards left in the deck and on the table.
+     */
+    public int remainingCards() {
+        int cards = deck.length;
+        for (int card : table) if (card >= 0) cards++;
+        return cards;
+    }
+
+    public void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(configHash);
+        writeShorts(out, deck);
+        writeShorts(out, table);
+        out.writeInt((int) turnMillis);
+        out.writeShort(scores.length);
+        for (int player = 0; player < scores.length; player++) {
+            out.writeShort(scores[player]);
+            writeShorts(out, tokens[player]);
+            out.writeInt((int) freezeMillis[player]);
+            out.writeByte(claims[player]);
+        }
+        out.flush();
+    }
+
+    public static Checkpoint read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC) throw new IOException("not a game checkpoint");
+        int version = in.readUnsignedByte();
+        if (version != VERSION) throw new IOException("unsupported checkpoint version " + version);
+        long configHash = in.readLong();
+        int[] deck = readShorts(in);
+        int[] table = readShorts(in);
+        long turnMillis = in.readInt();
+        Checkpoint checkpoint = new Checkpoint(in.readUnsignedShort());
+        checkpoint.configHash = configHash;
+        checkpoint.deck = deck;
+        checkpoint.table = table;
+        checkpoint.turnMillis = turnMillis;
+        for (int player = 0; player < checkpoint.players(); player++) {
+            checkpoint.scores[player] = in.readShort();
+            checkpoint.tokens[player] = readShorts(in);
+            checkpoint.freezeMillis[player] = in.readInt();
+            checkpoint.claims[player] = in.readUnsignedByte();
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Writes the checkpoint to the file atomically: a crash while saving leaves the previous checkpoint in place.
+     */
+    public void save(File file) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temporary))) {
+            write(out);
+        }
+        Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static Checkpoint load(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return read(in);
+        }
+    }
+
+    private static void writeShorts(DataOutputStream out, int[] values) throws IOException {
+        out.writeShort(values.length);
+        for (int value : values) out.writeShort(value);
+    }
+
+    private static int[] readShorts(DataInputStream in) throws IOException {
+        int[] values = new int[in.readUnsignedShort()];
+        for (int i = 0; i < values.length; i++) values[i] = in.readShort();
+        return values;
+    }
+}
@@ -1,308 +1,636 @@
-package bguspl.set.ex;
-
-import bguspl.set.Env;
-import java.util.List;
-import java.util.Random;
-import java.util.logging.Level;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-import java.util.concurrent.ConcurrentLinkedQueue;
-
-/**
- * This class manages the dealer's threads and data
- */
-public class Dealer implements Runnable {
-
-    /**
-     * The game environment object.
-     */
-    private final Env env;
-
-    /**
-     * Game entities.
-     */
-    private final Table table;
-    private Player[] players;
-
-    /**
-     * The list of card ids that are left in the dealer's deck.
-     */
-    private final List<Integer> deck;
-
-    /**
-     * True iff game should be terminated.
-     */
-    volatile boolean terminate;
-
-    /**
-     * The time when the dealer needs to reshuffle the deck due to turn timeout.
-     */
-    private long reshuffleTime;
-
-    /**
-     * The thread representing the dealer.
-     */
-    private Thread dealerThread;
-
-    /**
-     * represents all the cards from the deck and the table.
-     */
-    private List<Integer> remainingCards;
-
-    /**
-     * The players the dealer needs to check their set.
-     */
-    ConcurrentLinkedQueue<Player> playersToCheck;
-
-    /*
-     * Sleeping time of the dealer.
-     */
-    private long DEALER_SLEEPING_TIME;
-
-    public Dealer(Env env, Table table, Player[] players) {
-        this.env = env;
-        this.table = table;
-        this.players = players;
-        this.DEALER_SLEEPING_TIME = Math.min(950, env.config.turnTimeoutMillis);
-        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
-        this.playersToCheck = new ConcurrentLinkedQueue<Player>();
-        this.remainingCards = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
-    }
-
-    /**
-     * The dealer thread starts here (main loop for the dealer thread).
-     */
-    @Override
-    public void run() {
-        dealerThread = Thread.currentThread();
-        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
-        // creating and starting players threads
-        for(int i = 0; i < players.length; i++){
-            Thread PlayerThread = new Thread(players[i], env.config.playerNames[i]);              
-            players[i].setPlayerThread(PlayerThread);
-            PlayerThread.start();
-        }
-
-        while (!shouldFinish()) {  //loop for new 60 seconds.
-            placeCardsOnTable();
-            updateTimerDisplay(true);
-            timerLoop();
-            removeAllCardsFromTable();
-        }
-
-        announceWinners();
-        this.terminate();
-        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
-
-    }
-
-    /**
-     * The inner loop of the dealer thread that runs as long as the countdown did not time out.
-     */
-    private void timerLoop() { //loop for while 60 seconds.
-        while (!terminate && System.currentTimeMillis() < reshuffleTime) { 
-            sleepUntilWokenOrTimeout();
-            updateTimerDisplay(false);
-        }
-    }
-
-    /**
-     * Called when the game should be terminated.
-     * @throws InterruptedException
-     */
-    public void terminate(){
-        try {
-            players[0].terminate();
-            players[0].getPlayerThread().join();
-        } catch (InterruptedException e) {}
-        this.terminate = true;
-    }
-
-    /**
-     * Check if the game should be terminated or the game end conditions are met.
-     *
-     * @return true iff the game should be finished.
-     * 
-     */
-    boolean shouldFinish() {
-        return terminate || env.util.findSets(remainingCards, 1).size() == 0;
-    }
-
-    /**
-     * Checks cards should be removed from the table and removes them.
-     */
-    private void removeCardsFromTable(int[] slots) {
-        synchronized(table){
-            for(int i=0; i < slots.length; i++){
-                for(Player player : players){
-                    player.removeToken(slots[i]);
-                }
-                remainingCards.remove(this.table.slotToCard[slots[i]]);
-                this.table.removeCard(slots[i]);
-            }
-        }
-    }
-
-    /**
-     * Check if any cards can be removed from the deck and placed on the table.
-     */
-    private void placeCardsOnTable() {
-        synchronized(table){
-            for(int i=0; i < this.table.slotToCard.length; i++){
-                if(!this.deck.isEmpty() && this.table.slotToCard[i] == null){
-                    Random rand = new Random();
-                    Integer randCard = deck.get(rand.nextInt((deck.size())));
-                    table.placeCard(randCard, i);
-                    deck.remove(randCard);
-                }
-            }
-        }       
-    }
-
-    /**
-     * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
-     */
-    private void sleepUntilWokenOrTimeout() {
-        long START_TIME = System.currentTimeMillis();
-            while(System.currentTimeMillis() < START_TIME + DEALER_SLEEPING_TIME){
-                try{
-                    synchronized(this){
-                        boolean wakeUp = false;
-                        while(this.playersToCheck.size() == 0 && !wakeUp){ 
-                            this.wait(Math.max(DEALER_SLEEPING_TIME - (System.currentTimeMillis() - START_TIME),1));
-                            wakeUp = true;
-                        }
-                        if(this.playersToCheck.size() > 0){
-                            this.checkSet(); 
-                        }
-                    }
-                } catch(InterruptedException ignored){}
-            }   
-    }
-
-    private void checkSet(){ 
-        final int LEGAL_SET = 1;
-        final int ILLEGAL_SET = 2;
-        final int OTHER_PLAYER_WITH_SAME_CARD_CASE = 3;
-        
-
-        if(!playersToCheck.isEmpty()){
-            Player player = playersToCheck.poll();
-
-            if(player.getTokenList().size() == env.config.featureSize){
-                int[] playerSet = new int[env.config.featureSize];
-                for(int i=0; i < env.config.featureSize ; i++){
-                    playerSet[i] = this.table.getCardFromSlot(player.getTokenList().get(i));
-                }
-
-                boolean isLegal = env.util.testSet(playerSet);
-                
-                if(isLegal){
-                    synchronized(player){
-                        player.setFlag(LEGAL_SET); //legal set.
-                        player.notifyAll();
-                    }
-                    synchronized(table){
-                        removeCardsFromTable(player.setListToArray(player.getTokenList()));
-                        placeCardsOnTable();
-                    }
-                    updateTimerDisplay(true); //Reset the TurnTimeoutSeconds.
-                }
-                
-                else{  
-                    synchronized(player){
-                        player.setFlag(ILLEGAL_SET); //illegal set.  
-                        player.notifyAll();
-                    }
-                }
-            }
-            else{ // if the player have only two/one/zero cards. (another player did set with same cards and has checked before)
-                synchronized(player){ 
-                    player.setFlag(OTHER_PLAYER_WITH_SAME_CARD_CASE);
-                    player.notifyAll();
-                }
-            }
-        }
-    }
-
-    /**
-     * Reset and/or update the countdown and the countdown display.
-     */
-    private void updateTimerDisplay(boolean reset) {
-        if(reset){
-            this.reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis;
-            env.ui.setCountdown(reshuffleTime - System.currentTimeMillis(), false);
-            DEALER_SLEEPING_TIME = Math.min(950, env.config.turnTimeoutMillis);
-        }
-        else if(reshuffleTime - System.currentTimeMillis() <= env.config.turnTimeoutWarningMillis){
-            env.ui.setCountdown(Math.max(reshuffleTime - System.currentTimeMillis(),0), true);
-            DEALER_SLEEPING_TIME = 1;
-        }
-        else{ 
-            env.ui.setCountdown(reshuffleTime - System.currentTimeMillis(), false);
-        }
-    }
-
-    /**
-     * Returns all the cards from the table to the deck.
-     */
-    void removeAllCardsFromTable() {
-        final int TABLE_SIZE = env.config.columns*env.config.rows;
-        synchronized(table){
-            for(int i = 0; i < TABLE_SIZE; i++){
-                for(Player player : players){
-                    player.removeToken(i);
-                }
-                // Checking if != Null for the ending of the game (when there are not 12 cards on the table).
-                if(this.table.slotToCard[i] != null){ 
-                    deck.add(this.table.slotToCard[i]);
-                    this.table.removeCard(i); 
-                }
-            }
-        }
-    }
-
-    /**
-     * Check who is/are the winner/s and displays them.
-     */
-    private void announceWinners() {
-        int max = -1;
-        for(Player player : players){
-            if(player.score() > max){
-                max = player.score();
-            }
-        }
-        int count = 0;
-        for(Player player : players){
-            if(player.score() == max){
-               count++;
-            }
-        }
-
-        int[] winners = new int[count];
-        int i = 0;
-        for(Player player : players){
-            if(player.score() == max){
-                winners[i] = player.id;
-                i++;
-            }
-        }
-        this.env.ui.announceWinner(winners);
-    }
-    
-    /**
-     * adding the player to the queue of players the dealer needs to check their set
-     * @pre - the queue of playersToCheck is initiallized
-     * @post - the size of the queue of playersToCheck is increased by 1 and the dealer is notified that there is a set he needs to check
-     */
-    public void addPlayerToCheck(Player player){
-        synchronized(this){
-            playersToCheck.add(player);
-            this.notifyAll();
-        }
-    }
-
-    public Player[] getPlayersArray(){
-        return players;
-    }
-}
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+import bguspl.set.GameEvents;
+import bguspl.set.GameJournal;
+import bguspl.set.GameMetrics;
+import bguspl.set.LockProfiler;
+import bguspl.set.ThreadLogger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * This class manages the dealer's threads and data
+ */
+public class Dealer implements Runnable {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * Game entities.
+     */
+    private final Table table;
+    private Player[] players;
+
+    /**
+     * The list of card ids that are left in the dealer's deck.
+     */
+    final List<Integer> deck;
+
+    /**
+     * True iff game should be terminated.
+     */
+    volatile boolean terminate;
+
+    /**
+     * The time when the dealer needs to reshuffle the deck due to turn timeout.
+     */
+    private long reshuffleTime;
+
+    /**
+     * The thread representing the dealer.
+     */
+    private Thread dealerThread;
+
+    /**
+     * represents all the cards from the deck and the table.
+     */
+    private List<Integer> remainingCards;
+
+    /**
+     * The players the dealer needs to check their set.
+     */
+    ConcurrentLinkedQueue<Player> playersToCheck;
+
+    /**
+     * The random stream of the deal.
+     */
+    private final SplittableRandom random;
+
+    /**
+     * True iff the table has no legal set and the dealer should reshuffle without waiting for the timeout.
+     */
+    private boolean reshuffleNow;
+
+    /**
+     * The number of times a table without a legal set was fixed by swapping a drawn card for one that completes a set.
+     */
+    private volatile int deadRoundsAvoided;
+
+    /**
+     * The number of times a table without a legal set could not be fixed, so the dealer reshuffled without waiting for
+     * the timeout.
+     */
+    private volatile int deadRoundsReshuffled;
+
+    /**
+     * Scratch space for the set check of the table: true iff the card is on the table (or about to be placed).
+     */
+    private final boolean[] onTable;
+
+    /**
+     * Scratch space for the deal: the cards drawn for each slot (null for slots that are not dealt to), and the cards
+     * of the table with them. Only the dealer thread uses them, so dealing allocates nothing.
+     */
+    private final Integer[] drawn;
+    private final List<Integer> dealtTable;
+
+    /**
+     * Scratch space for the claim being checked: its slots and its cards. Only the dealer thread uses them, so
+     * checking a claim allocates nothing.
+     */
+    private final int[] claimSlots;
+    private final int[] claimCards;
+
+    /**
+     * Replaces the cards of a legal claim with the table lock held (made once, like the scratch arrays above).
+     */
+    private final LockProfiler.Section<RuntimeException> replaceClaimedCards;
+
+    /**
+     * The metrics of the game.
+     */
+    private final GameMetrics metrics;
+
+    /**
+     * Where the checkpoints of the game go (null for no checkpoints), how often, and when the next one is due.
+     */
+    private volatile Consumer<Checkpoint> checkpoints;
+    private long checkpointMillis;
+    private long nextCheckpoint;
+
+    /**
+     * The time left to the reshuffle in the checkpoint the game resumed from (0 if it did not resume).
+     */
+    private long resumedTurnMillis;
+
+    /**
+     * The ids of the winners (null until they are announced).
+     */
+    private volatile int[] winners;
+
+    /**
+     * The player id of the dealer in the events.
+     */
+    private static final int DEALER = -1;
+
+    /*
+     * Sleeping time of the dealer.
+     */
+    private long DEALER_SLEEPING_TIME;
+
+    public Dealer(Env env, Table table, Player[] players) {
+        this.env = env;
+        this.table = table;
+        this.players = players;
+        this.DEALER_SLEEPING_TIME = Math.min(950, env.config.turnTimeoutMillis);
+        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
+        this.playersToCheck = new ConcurrentLinkedQueue<Player>();
+        this.remainingCards = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
+        this.random = env.splitRandom();
+        this.onTable = new boolean[env.config.deckSize];
+        this.drawn = new Integer[env.config.tableSize];
+        this.dealtTable = new ArrayList<>(env.config.tableSize);
+        this.claimSlots = new int[env.config.featureSize];
+        this.claimCards = new int[env.config.featureSize];
+        this.replaceClaimedCards = () -> {
+            removeCardsFromTable(claimSlots);
+            dealCards();
+        };
+        this.metrics = env.metrics;
+    }
+
+    /**
+     * The dealer thread starts here (main loop for the dealer thread).
+     */
+    @Override
+    public void run() {
+        dealerThread = Thread.currentThread();
+        env.locks.role(LockProfiler.Role.DEALER);
+        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
+        // creating and starting players threads
+        for(int i = 0; i < players.length; i++){
+            Thread PlayerThread = new ThreadLogger(null, players[i], env.config.playerNames[i], env.logger,
+                    env.accounting, LockProfiler.Role.PLAYER, env.clock);
+            players[i].setPlayerThread(PlayerThread);
+            PlayerThread.start();
+        }
+
+        while (!shouldFinish()) {  //loop for new 60 seconds.
+            reshuffleNow = false;
+            GameEvents.DealerPhase deal = GameEvents.dealerPhase();
+            placeCardsOnTable();
+            commitPhase(deal, "placeCardsOnTable");
+            updateTimerDisplay(true);
+            if(resumedTurnMillis > 0){
+                reshuffleTime = env.clock.millis() + resumedTurnMillis;
+                resumedTurnMillis = 0;
+            }
+            GameEvents.DealerPhase round = GameEvents.dealerPhase();
+            timerLoop();
+            commitPhase(round, "timerLoop");
+            if(terminate && checkpoints != null){
+                checkpoints.accept(checkpoint()); // the game was stopped, so it can resume from here
+            }
+            GameEvents.DealerPhase clear = GameEvents.dealerPhase();
+            removeAllCardsFromTable();
+            commitPhase(clear, "removeAllCardsFromTable");
+        }
+
+        announceWinners();
+        if (env.config.guaranteeSet)
+            env.logger.info("dead rounds avoided: " + deadRoundsAvoided + ", reshuffled: " + deadRoundsReshuffled);
+        this.terminate();
+        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
+
+    }
+
+    private void commitPhase(GameEvents.DealerPhase event, String phase) {
+        if (event != null && event.isEnabled()) event.commit(phase, table.countCards(), deck.size());
+    }
+
+    /**
+     * The inner loop of the dealer thread that runs as long as the countdown did not time out.
+     */
+    private void timerLoop() { //loop for while 60 seconds.
+        while (!terminate && !reshuffleNow && env.clock.millis() < reshuffleTime) { 
+            sleepUntilWokenOrTimeout();
+            updateTimerDisplay(false);
+            if(checkpoints != null && env.clock.millis() >= nextCheckpoint){
+                nextCheckpoint = env.clock.millis() + checkpointMillis;
+                checkpoints.accept(checkpoint());
+            }
+        }
+    }
+
+    /**
+     * Sets where the checkpoints of the game go. Checkpoints are taken by the dealer thread between its rounds of
+     * claim checks, at most once in the given period, and once more when the game is stopped.
+     * @param sink         - takes the checkpoints (it should hand them off, it runs on the dealer thread).
+     * @param periodMillis - the minimal time between two checkpoints.
+     */
+    public void checkpointTo(Consumer<Checkpoint> sink, long periodMillis){
+        this.checkpointMillis = periodMillis;
+        this.checkpoints = sink;
+    }
+
+    /**
+     * Takes a checkpoint of the game. The state is copied under the table lock, so the checkpoint is consistent,
+     * and nothing is written while the lock is held.
+     * @pre - called by the dealer thread (which owns the deck, the remaining cards and the reshuffle time).
+     */
+    Checkpoint checkpoint(){
+        long now = env.clock.millis();
+        Checkpoint checkpoint = new Checkpoint(players.length);
+        checkpoint.configHash = env.config.hash;
+        checkpoint.deck = toArray(deck);
+        checkpoint.turnMillis = Math.max(reshuffleTime - now, 0);
+        checkpoint.table = new int[env.config.tableSize];
+        env.locks.run(LockProfiler.Lock.TABLE, table, () -> {
+            for(int i = 0; i < checkpoint.table.length; i++){
+                Integer card = table.slotToCard[i];
+                checkpoint.table[i] = card == null ? -1 : card;
+            }
+            for(Player player : players){
+                player.checkpoint(checkpoint, now);
+            }
+        });
+        return checkpoint;
+    }
+
+    /**
+     * Restores the game from a checkpoint: the deck and the cards on the table (which make the remaining cards), the time left to the reshuffle and the
+     * players. The deal goes on with a new random stream.
+     * @pre - the game did not start yet, and the checkpoint is of a game with the same configuration.
+     */
+    public void resume(Checkpoint checkpoint){
+        deck.clear();
+        for(int card : checkpoint.deck) deck.add(card);
+        remainingCards.clear();
+        remainingCards.addAll(deck);
+        for(int card : checkpoint.table){
+            if(card >= 0) remainingCards.add(card);
+        }
+        table.restoreCards(checkpoint.table);
+        resumedTurnMillis = checkpoint.turnMillis;
+        for(Player player : players){
+            player.resume(checkpoint);
+        }
+    }
+
+    private static int[] toArray(List<Integer> cards){
+        int[] array = new int[cards.size()];
+        for(int i = 0; i < array.length; i++) array[i] = cards.get(i);
+        return array;
+    }
+
+    /**
+     * Called when the game should be terminated.
+     * @throws InterruptedException
+     */
+    public void terminate(){
+        // the player threads do not exist yet if the game is stopped before the dealer thread got to create them
+        Thread firstPlayerThread = players.length > 0 && players[0] != null ? players[0].getPlayerThread() : null;
+        if (firstPlayerThread != null) {
+            try {
+                players[0].terminate();
+                env.clock.join(firstPlayerThread);
+            } catch (InterruptedException e) {}
+        }
+        this.terminate = true;
+        // so the dealer does not sleep out its timeout before noticing
+        env.locks.run(LockProfiler.Lock.DEALER, this, () -> env.clock.signal(this));
+    }
+
+    /**
+     * Check if the game should be terminated or the game end conditions are met.
+     *
+     * @return true iff the game should be finished.
+     * 
+     */
+    boolean shouldFinish() {
+        if (terminate) return true;
+        long start = System.nanoTime();
+        boolean finished = env.util.findSets(remainingCards, 1).size() == 0;
+        metrics.shouldFinish(start);
+        return finished;
+    }
+
+    /**
+     * Checks cards should be removed from the table and removes them. Called with the table lock held.
+     */
+    private void removeCardsFromTable(int[] slots) {
+        GameEvents.TableLock lock = GameEvents.tableLock();
+        for(int i=0; i < slots.length; i++){
+            for(Player player : players){
+                player.removeTokenLocked(slots[i]);
+            }
+            remainingCards.remove(this.table.slotToCard[slots[i]]);
+            this.table.removeCard(slots[i]);
+        }
+        if (lock != null) lock.commit("removeCardsFromTable", DEALER);
+    }
+
+    /**
+     * Check if any cards can be removed from the deck and placed on the table.
+     */
+    void placeCardsOnTable() {
+        env.locks.run(LockProfiler.Lock.TABLE, table, this::dealCards);
+    }
+
+    /**
+     * Places cards from the deck on the empty slots of the table. Called with the table lock held.
+     */
+    private void dealCards() {
+        GameEvents.TableLock lock = GameEvents.tableLock();
+        // the cards are drawn first, so the deal policy can still change them before they are shown
+        for(int i=0; i < drawn.length; i++){
+            drawn[i] = null;
+            if(!this.deck.isEmpty() && this.table.slotToCard[i] == null){
+                drawn[i] = deck.remove(random.nextInt(deck.size()));
+            }
+        }
+        if(env.config.guaranteeSet){
+            guaranteeSet(drawn);
+        }
+        for(int i=0; i < drawn.length; i++){
+            if(drawn[i] != null){
+                table.placeCard(drawn[i], i);
+            }
+        }
+        if (lock != null) lock.commit("placeCardsOnTable", DEALER);
+    }
+
+    /**
+     * Makes sure the table will have a legal set after the drawn cards are placed: if it does not, one of the drawn
+     * cards is swapped with a deck card that completes a set, and if there is no such card the dealer reshuffles
+     * without waiting for the timeout.
+     * @param drawn - the cards about to be placed, per slot (null for slots that are not dealt to).
+     */
+    private void guaranteeSet(Integer[] drawn) {
+        List<Integer> cards = dealtTable;
+        cards.clear();
+        for(int i=0; i < drawn.length; i++){
+            Integer card = drawn[i] != null ? drawn[i] : this.table.slotToCard[i];
+            if(card != null) cards.add(card);
+        }
+        if(hasSet(cards)) return;
+
+        if(env.config.featureSize == 3){
+            for(int card : cards) onTable[card] = true;
+            for(int first = 0; first < cards.size(); first++){
+                for(int second = first + 1; second < cards.size(); second++){
+                    int third = completeSet(cards.get(first), cards.get(second));
+                    int swapSlot = drawnSlotOtherThan(drawn, cards.get(first), cards.get(second));
+                    if(!onTable[third] && swapSlot >= 0 && deck.remove((Integer) third)){
+                        deck.add(drawn[swapSlot]);
+                        drawn[swapSlot] = third;
+                        for(int card : cards) onTable[card] = false;
+                        deadRoundsAvoided++;
+                        return;
+                    }
+                }
+            }
+            for(int card : cards) onTable[card] = false;
+        }
+        deadRoundsReshuffled++;
+        reshuffleNow = true;
+    }
+
+    /**
+     * Checks if the cards contain a legal set. For sets of 3 cards, every pair is completed to the only card that
+     * makes a set with it, which is a lot cheaper than testing all the triplets.
+     */
+    private boolean hasSet(List<Integer> cards) {
+        if(env.config.featureSize != 3){
+            return !env.util.findSets(cards, 1).isEmpty();
+        }
+        for(int card : cards) onTable[card] = true;
+        boolean found = false;
+        for(int first = 0; first < cards.size() && !found; first++){
+            for(int second = first + 1; second < cards.size() && !found; second++){
+                found = onTable[completeSet(cards.get(first), cards.get(second))];
+            }
+        }
+        for(int card : cards) onTable[card] = false;
+        return found;
+    }
+
+    /**
+     * @return - the only card that forms a legal set with the two given cards (for a feature size of 3): in every
+     * feature it is either the same as both (if they are the same) or the third value.
+     */
+    private int completeSet(int first, int second) {
+        final int SIZE = 3;
+        int third = 0;
+        int weight = 1;
+        for(int i = 0; i < env.config.featureCount; i++){
+            third += ((2 * SIZE - first % SIZE - second % SIZE) % SIZE) * weight;
+            first /= SIZE;
+            second /= SIZE;
+            weight *= SIZE;
+        }
+        return third;
+    }
+
+    /**
+     * @return - a slot that is about to be dealt a card other than the two given ones, or -1 if there is none.
+     */
+    private int drawnSlotOtherThan(Integer[] drawn, int first, int second) {
+        for(int i = 0; i < drawn.length; i++){
+            if(drawn[i] != null && drawn[i] != first && drawn[i] != second) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return - the number of times a table without a legal set was fixed by swapping in a card that completes a set.
+     */
+    public int deadRoundsAvoided() {
+        return deadRoundsAvoided;
+    }
+
+    /**
+     * @return - the number of times a table without a legal set was reshuffled at once instead of waiting for the timeout.
+     */
+    public int deadRoundsReshuffled() {
+        return deadRoundsReshuffled;
+    }
+
+    /**
+     * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
+     */
+    private void sleepUntilWokenOrTimeout() {
+        long START_TIME = env.clock.millis();
+            while(!terminate && !reshuffleNow && env.clock.millis() < START_TIME + DEALER_SLEEPING_TIME){
+                try{
+                    env.locks.run(LockProfiler.Lock.DEALER, this, () -> {
+                        boolean wakeUp = false;
+                        while(this.playersToCheck.size() == 0 && !wakeUp){ 
+                            env.locks.await(LockProfiler.Lock.DEALER, env.clock, this, Math.max(DEALER_SLEEPING_TIME - (env.clock.millis() - START_TIME),1));
+                            wakeUp = true;
+                        }
+                        if(this.playersToCheck.size() > 0){
+                            this.checkSet(); 
+                        }
+                    });
+                } catch(InterruptedException ignored){}
+            }   
+    }
+
+    void checkSet(){ 
+        final int LEGAL_SET = 1;
+        final int ILLEGAL_SET = 2;
+        final int OTHER_PLAYER_WITH_SAME_CARD_CASE = 3;
+        
+
+        if(!playersToCheck.isEmpty()){
+            long start = System.nanoTime();
+            GameEvents.Verdict verdict = GameEvents.verdict();
+            Player player = playersToCheck.poll();
+            metrics.claimPickedUp(player.claimNanos);
+            int[] slots = null;
+            int[] playerSet = null;
+            String outcome = GameEvents.Verdict.STALE;
+            int journaled = GameJournal.STALE;
+
+            List<Integer> tokens = player.getTokenList();
+            if(tokens.size() == env.config.featureSize){
+                slots = claimSlots;
+                playerSet = claimCards;
+                for(int i=0; i < env.config.featureSize ; i++){
+                    slots[i] = tokens.get(i);
+                    playerSet[i] = this.table.getCardFromSlot(slots[i]);
+                }
+
+                boolean isLegal = env.util.testSet(playerSet);
+                metrics.verdict(player.id, player.claimNanos, isLegal);
+                outcome = isLegal ? GameEvents.Verdict.LEGAL : GameEvents.Verdict.ILLEGAL;
+                journaled = isLegal ? GameJournal.LEGAL : GameJournal.ILLEGAL;
+                
+                if(isLegal){
+                    synchronized(player){
+                        player.verdictNanos = System.nanoTime();
+                        player.setFlag(LEGAL_SET); //legal set.
+                        env.clock.signal(player);
+                    }
+                    env.locks.run(LockProfiler.Lock.TABLE, table, replaceClaimedCards);
+                    updateTimerDisplay(true); //Reset the TurnTimeoutSeconds.
+                }
+                
+                else{  
+                    synchronized(player){
+                        player.verdictNanos = System.nanoTime();
+                        player.setFlag(ILLEGAL_SET); //illegal set.  
+                        env.clock.signal(player);
+                    }
+                }
+            }
+            else{ // if the player have only two/one/zero cards. (another player did set with same cards and has checked before)
+                synchronized(player){ 
+                    player.verdictNanos = System.nanoTime();
+                    player.setFlag(OTHER_PLAYER_WITH_SAME_CARD_CASE);
+                    env.clock.signal(player);
+                }
+            }
+            metrics.checkSet(start);
+            env.journal.verdict(player.id, journaled);
+            if(verdict != null){
+                verdict.end();
+                if(verdict.shouldCommit()){
+                    verdict.player = player.id;
+                    verdict.slots = slots == null ? "" : GameEvents.join(slots);
+                    verdict.cards = playerSet == null ? "" : GameEvents.join(playerSet);
+                    verdict.outcome = outcome;
+                    verdict.claimLatency = System.nanoTime() - player.claimNanos;
+                    verdict.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reset and/or update the countdown and the countdown display.
+     */
+    private void updateTimerDisplay(boolean reset) {
+        if(reset){
+            this.reshuffleTime = env.clock.millis() + env.config.turnTimeoutMillis;
+            env.ui.setCountdown(reshuffleTime - env.clock.millis(), false);
+            DEALER_SLEEPING_TIME = Math.min(950, env.config.turnTimeoutMillis);
+        }
+        else if(reshuffleTime - env.clock.millis() <= env.config.turnTimeoutWarningMillis){
+            env.ui.setCountdown(Math.max(reshuffleTime - env.clock.millis(),0), true);
+            DEALER_SLEEPING_TIME = 1;
+        }
+        else{ 
+            env.ui.setCountdown(reshuffleTime - env.clock.millis(), false);
+        }
+    }
+
+    /**
+     * Returns all the cards from the table to the deck.
+     */
+    void removeAllCardsFromTable() {
+        final int TABLE_SIZE = env.config.columns*env.config.rows;
+        metrics.reshuffle();
+        env.locks.run(LockProfiler.Lock.TABLE, table, () -> {
+            GameEvents.TableLock lock = GameEvents.tableLock();
+            for(int i = 0; i < TABLE_SIZE; i++){
+                for(Player player : players){
+                    player.removeTokenLocked(i);
+                }
+                // Checking if != Null for the ending of the game (when there are not 12 cards on the table).
+                if(this.table.slotToCard[i] != null){ 
+                    deck.add(this.table.slotToCard[i]);
+                    this.table.removeCard(i); 
+                }
+            }
+            if (lock != null) lock.commit("removeAllCardsFromTable", DEALER);
+        });
+    }
+
+    /**
+     * Check who is/are the winner/s and displays them.
+     */
+    private void announceWinners() {
+        int max = -1;
+        int count = 0;
+        int[] winners = new int[players.length];
+        for(Player player : players){
+            int score = player.score();
+            if(score > max){ // a new leader, the ones before are not winners
+                max = score;
+                count = 0;
+            }
+            if(score == max){
+                winners[count++] = player.id;
+            }
+        }
+        this.winners = Arrays.copyOf(winners, count);
+        this.env.ui.announceWinner(this.winners);
+    }
+
+    /**
+     * @return - the ids of the winners, or null if the game did not finish.
+     */
+    public int[] winners(){
+        return winners;
+    }
+    
+    /**
+     * adding the player to the queue of players the dealer needs to check their set
+     * @pre - the queue of playersToCheck is initiallized
+     * @post - the size of the queue of playersToCheck is increased by 1 and the dealer is notified that there is a set he needs to check
+     */
+    public void addPlayerToCheck(Player player){
+        env.locks.run(LockProfiler.Lock.DEALER, this, () -> {
+            playersToCheck.add(player);
+            metrics.queueDepth(playersToCheck.size());
+            env.clock.signal(this);
+        });
+    }
+
+    public Player[] getPlayersArray(){
+        return players;
+    }
+}
@@ -1,342 +1,514 @@
-package bguspl.set.ex;
-
-import java.util.List;
-import java.util.Random;
-import java.util.logging.Level;
-
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ConcurrentLinkedQueue;
-
-import bguspl.set.Env;
-
-/**
- * This class manages the players' threads and data
- *
- * @inv id >= 0
- * @inv score >= 0
- */
-public class Player implements Runnable {
-
-    /**
-     * The game environment object.
-     */
-    private final Env env;
-
-    /**
-     * The dealer of the game.
-     */
-    private final Dealer dealer;
-
-    /**
-     * Game entities.
-     */
-    private final Table table;
-
-    /**
-     * The id of the player (starting from 0).
-     */
-    public final int id;
-
-    /**
-     * The thread representing the current player.
-     */
-    private Thread playerThread;
-
-    /**
-     * The thread of the AI (computer) player (an additional thread used to generate key presses).
-     */
-    private Thread aiThread;
-
-    /**
-     * True iff the player is human (not a computer player).
-     */
-    private final boolean human;
-
-    /**
-     * True iff game should be terminated.
-     */
-    private volatile boolean terminate;
-
-    /**
-     * The current score of the player.
-     */
-    private int score;
-
-    /**
-     * The tokens that the player has in the table, represent by slots.
-     */
-    private CopyOnWriteArrayList<Integer> tokensList; 
-
-    /**
-     * Actions that the player want to do, represent by slots.
-     */
-    ConcurrentLinkedQueue<Integer> queueOfActions;
-
-    /**
-     * 0 - The player dont have a set / the player need to wait to the dealer for checking his set
-     * 1 - The checked set is legal
-     * 2 - The checked set is illegal
-     * 3 - Other player had set with the same card/s and has checked before this player.
-     */
-    public volatile int flag ;
-   
-    /*
-     * Lock for the player.
-     */
-    private Object playerLock;
-
-    
-
-    /**
-     * The class constructor.
-     *
-     * @param env    - the environment object.
-     * @param dealer - the dealer object.
-     * @param table  - the table object.
-     * @param id     - the id of the player.
-     * @param human  - true iff the player is a human player (i.e. input is provided manually, via the keyboard).
-     */
-    public Player(Env env, Dealer dealer, Table table, int id, boolean human) {
-        this.env = env;
-        this.dealer = dealer;
-        this.table = table;
-        this.id = id;
-        this.human = human;
-        this.queueOfActions = new ConcurrentLinkedQueue<Integer>();
-        this.tokensList = new CopyOnWriteArrayList<Integer>();
-        this.playerLock = new Object();
-    }
-
-    /**
-     * The main player thread of each player starts here (main loop for the player thread).
-     */
-    @Override
-    public void run() {
-        playerThread = Thread.currentThread();
-        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + "starting.");
-        if (!human) createArtificialIntelligence();
-
-        try {
-        while (!terminate) {
-            final int PLAYER_NEEDS_TO_WAIT = 0;
-            final int LEGAL_SET = 1;
-            final int ILLEGAL_SET = 2;
-            final int OTHER_PLAYER_WITH_SAME_CARD_CASE = 3;
-
-            synchronized(playerLock){
-                while(queueOfActions.isEmpty()){   
-                        playerLock.wait();
-                }
-            }
-
-            if(!queueOfActions.isEmpty()){
-                int slot = queueOfActions.poll();
-                if(tokensList.contains((Integer) slot)){                 
-                    removeToken(slot);
-                }
-                else{
-                    if(tokensList.size() < env.config.featureSize){
-                        placeToken(slot);
-                        if(tokensList.size() == env.config.featureSize){
-                            dealer.addPlayerToCheck(this);
-                            synchronized(this){
-                                try {
-                                    while(flag == PLAYER_NEEDS_TO_WAIT){
-                                        this.wait();
-                                    }
-                                }
-                                catch (InterruptedException e) {}
-                                if(flag == LEGAL_SET){
-                                    point();
-                                }
-                                else if(flag == ILLEGAL_SET){
-                                    penalty();
-                                }
-                                else if(flag == OTHER_PLAYER_WITH_SAME_CARD_CASE){
-                                    flag = PLAYER_NEEDS_TO_WAIT;
-                                }
-                            }  
-                        }
-                    }
-                }
-            }
-        }
-    } catch (InterruptedException e) {}
-        finished();
-        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
-    }
-
-    /*
-     * This function responsable of terminate the threads in reverse order.
-     */
-    private void finished (){
-        if(this.id != (dealer.getPlayersArray().length - 1)){
-            try {
-                dealer.getPlayersArray()[id+1].terminate();
-                dealer.getPlayersArray()[id+1].getPlayerThread().join();
-            } catch (InterruptedException e) {}
-             
-            if(!human){
-                try {
-                    aiThread.join();
-                } catch (InterruptedException e) {}
-            }
-        }
-
-    }
-
-    
-    /**
-     * Called when the game should be terminated.
-     */
-    public void terminate() { 
-        playerThread.interrupt(); 
-        this.terminate = true;  
-    }
-
-    /**
-     * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly generates
-     * key presses. If the queue of key presses is full, the thread waits until it is not full.
-     */
-    private void createArtificialIntelligence() {
-        // note: this is a very, very smart AI (!)
-        aiThread = new Thread(() -> {
-            env.logger.info("Thread " + Thread.currentThread().getName() + " starting.");
-            while (!terminate) {
-                Random rand = new Random();
-                int randSlot = (int) rand.nextInt(env.config.columns*env.config.rows);
-                keyPressed(randSlot);
-                try{
-                    Thread.sleep(0);}
-                catch(InterruptedException ex){
-                };
-            }
-            env.logger.info("Thread " + Thread.currentThread().getName() + " terminated.");
-        }, "computer-" + id);
-        aiThread.start();
-    }
-
-    /**
-     * This method is called when a key is pressed.
-     *
-     * @param slot - the slot corresponding to the key pressed.
-     * 
-     * @pre - the players flag need to be set to 0 i.e the player is waiting As long as no keys are pressed
-     * @post - the size of queueOfActions in increased by 1 if the the size is less than the number of features and the player is waiting for a key press.
-     * 
-     */
-    public void keyPressed(int slot) {
-        int PLAYER_NEEDS_TO_WAIT = 0;
-
-        synchronized(playerLock){
-            if(queueOfActions.size() < env.config.featureSize && flag == PLAYER_NEEDS_TO_WAIT){
-                queueOfActions.add(slot);
-                playerLock.notifyAll(); 
-            }
-        }
-    }
-
-    /**
-     * Award a point to a player and perform other related actions.
-     *
-     * @post - the player's score is increased by 1.
-     * @post - the player's score is updated in the ui.
-     */
-    public void point() {
-        int ignored = table.countCards(); // this part is just for demonstration in the unit tests
-        env.ui.setScore(id, ++score);
-        final int STOP_SHOW = 0;
-        final int SLEEPING_TIME = 950; 
-        try{
-            env.ui.setFreeze(id, env.config.pointFreezeMillis);
-            long freezeTime =System.currentTimeMillis() + env.config.pointFreezeMillis;
-            while(System.currentTimeMillis()<freezeTime){
-                env.ui.setFreeze(id, freezeTime - System.currentTimeMillis());
-                Thread.sleep(Math.min(SLEEPING_TIME, Math.max(freezeTime - System.currentTimeMillis(),1)));
-            }
-        } catch(InterruptedException e){}
-   
-        env.ui.setFreeze(this.id , STOP_SHOW); 
-        //Updating the flag.
-        flag = 0;
-    }
-
-    /**
-     * Penalize a player and perform other related actions.
-     * @post - the player's score doesnt change.
-     * @post - the flag of the player that determines what the player need to do is reset to 0.
-     */
-    public void penalty() {
-        final int STOP_SHOW = 0;
-        final int SLEEPING_TIME = 950; 
-        try{
-            env.ui.setFreeze(id, env.config.penaltyFreezeMillis);
-            long freezeTime= System.currentTimeMillis() + env.config.penaltyFreezeMillis;
-            while(System.currentTimeMillis()< freezeTime){
-                env.ui.setFreeze(id, freezeTime - System.currentTimeMillis());
-                Thread.sleep(Math.min(SLEEPING_TIME, Math.max(freezeTime - System.currentTimeMillis(),1)));
-            }
-        } catch(InterruptedException e){}
-        
-        env.ui.setFreeze(this.id ,STOP_SHOW);
-        //Updating the flag.
-        flag = 0;
-    }
-
-    public int score() {
-        return score;
-    }
-
-    public int[] setListToArray(List<Integer> list){
-        int[] arr = new int[env.config.featureSize];
-        for(int i = 0; i < list.size(); i++){
-            arr[i] = list.get(i);
-        }
-        return arr;
-    }
-
-
-    public CopyOnWriteArrayList<Integer> getTokenList(){
-        return tokensList;
-    }
-
-
-    public boolean removeToken(int slot){
-        synchronized(table){
-            if(tokensList.contains(slot) && table.slotToCard[slot] != null){
-                tokensList.remove((Integer)slot);
-                table.removeToken(this.id, slot);
-                return true;
-            }
-            return false;
-        }
-    }
-
-    public boolean placeToken(int slot){
-        synchronized(table){
-            if(tokensList.size() < env.config.featureSize && table.slotToCard[slot]!=null){
-                tokensList.add(slot);
-                table.placeToken(this.id, slot);
-                return true;
-            }
-            return false;
-        }
-    }
-
-    public boolean isHuman(){
-        return human;        
-    }
-
-    public void setPlayerThread(Thread playerThread){
-        this.playerThread = playerThread;
-    }
-
-    public Thread getPlayerThread (){
-        return playerThread;
-    }
-
-    public void setFlag(int newFlag){
-        this.flag = newFlag;
-    }
-
-}
+package bguspl.set.ex;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.logging.Level;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import bguspl.set.Env;
+import bguspl.set.GameEvents;
+import bguspl.set.LockProfiler;
+import bguspl.set.ThreadLogger;
+
+/**
+ * This class manages the players' threads and data
+ *
+ * @inv id >= 0
+ * @inv score >= 0
+ */
+public class Player implements Runnable {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The dealer of the game.
+     */
+    private final Dealer dealer;
+
+    /**
+     * Game entities.
+     */
+    private final Table table;
+
+    /**
+     * The id of the player (starting from 0).
+     */
+    public final int id;
+
+    /**
+     * The thread representing the current player.
+     */
+    private Thread playerThread;
+
+    /**
+     * The thread of the AI (computer) player (an additional thread used to generate key presses).
+     */
+    private Thread aiThread;
+
+    /**
+     * True iff the player is human (not a computer player).
+     */
+    private final boolean human;
+
+    /**
+     * True iff game should be terminated.
+     */
+    private volatile boolean terminate;
+
+    /**
+     * The current score of the player.
+     */
+    private int score;
+
+    /**
+     * The tokens that the player has in the table, represent by slots.
+     */
+    private CopyOnWriteArrayList<Integer> tokensList; 
+
+    /**
+     * Actions that the player want to do, represent by slots.
+     */
+    ConcurrentLinkedQueue<Integer> queueOfActions;
+
+    /**
+     * 0 - The player dont have a set / the player need to wait to the dealer for checking his set
+     * 1 - The checked set is legal
+     * 2 - The checked set is illegal
+     * 3 - Other player had set with the same card/s and has checked before this player.
+     */
+    public volatile int flag ;
+
+    private static final int PLAYER_NEEDS_TO_WAIT = 0;
+    private static final int LEGAL_SET = 1;
+    private static final int ILLEGAL_SET = 2;
+    private static final int OTHER_PLAYER_WITH_SAME_CARD_CASE = 3;
+
+    /**
+     * True iff the player handed a claim in and did not get its verdict applied yet (set under the table lock with
+     * the last token of the claim, cleared under the player lock with the score, for consistent checkpoints).
+     */
+    private volatile boolean awaitingVerdict;
+
+    /**
+     * The clock time the current freeze ends at (0 if the player is not frozen).
+     */
+    private volatile long frozenUntil;
+
+    /**
+     * The System.nanoTime when the player claimed its last set (for the dealer's metrics).
+     */
+    volatile long claimNanos;
+
+    /**
+     * The System.nanoTime when the dealer gave the verdict on the player's claim (0 if it was not timed).
+     */
+    volatile long verdictNanos;
+   
+    /*
+     * Lock for the player.
+     */
+    private Object playerLock;
+
+    /**
+     * The random stream of the AI (computer) player.
+     */
+    private final SplittableRandom random;
+
+    
+
+    /**
+     * The class constructor.
+     *
+     * @param env    - the environment object.
+     * @param dealer - the dealer object.
+     * @param table  - the table object.
+     * @param id     - the id of the player.
+     * @param human  - true iff the player is a human player (i.e. input is provided manually, via the keyboard).
+     */
+    public Player(Env env, Dealer dealer, Table table, int id, boolean human) {
+        this.env = env;
+        this.dealer = dealer;
+        this.table = table;
+        this.id = id;
+        this.human = human;
+        this.queueOfActions = new ConcurrentLinkedQueue<Integer>();
+        this.tokensList = new CopyOnWriteArrayList<Integer>();
+        this.playerLock = new Object();
+        this.random = env.splitRandom();
+    }
+
+    /**
+     * The main player thread of each player starts here (main loop for the player thread).
+     */
+    @Override
+    public void run() {
+        playerThread = Thread.currentThread();
+        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + "starting.");
+        env.locks.role(LockProfiler.Role.PLAYER);
+        if (!human) createArtificialIntelligence();
+
+        try {
+        resumeClaim();
+        while (!terminate) {
+            env.locks.run(LockProfiler.Lock.PLAYER, playerLock, () -> {
+                while(queueOfActions.isEmpty()){   
+                        env.locks.await(LockProfiler.Lock.PLAYER, env.clock, playerLock, 0);
+                }
+            });
+
+            if(!queueOfActions.isEmpty()){
+                int slot = queueOfActions.poll();
+                if(tokensList.contains((Integer) slot)){                 
+                    removeToken(slot);
+                }
+                else{
+                    if(tokensList.size() < env.config.featureSize){
+                        placeToken(slot);
+                        if(tokensList.size() == env.config.featureSize){
+                            handInClaim();
+                            awaitVerdict();
+                        }
+                    }
+                }
+            }
+        }
+    } catch (InterruptedException e) {}
+        finished();
+        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
+    }
+
+    /**
+     * Hands the claim of the player's tokens in to the dealer.
+     */
+    private void handInClaim(){
+        claimNanos = System.nanoTime();
+        GameEvents.Claim claim = GameEvents.claim();
+        if(claim != null && claim.shouldCommit()) claim.commit(id, setListToArray(tokensList));
+        env.journal.claim(id, tokensList);
+        dealer.addPlayerToCheck(this);
+    }
+
+    /**
+     * Waits for the dealer's verdict on the player's claim and applies it.
+     */
+    private void awaitVerdict(){
+        int verdict;
+        synchronized(this){
+            try {
+                while(flag == PLAYER_NEEDS_TO_WAIT){
+                    env.clock.await(this, 0);
+                }
+            }
+            catch (InterruptedException e) {}
+            verdict = flag;
+        }
+        if(verdictNanos != 0){
+            env.metrics.verdictWakeup(verdictNanos);
+            verdictNanos = 0;
+        }
+        // the freeze is slept out of the monitor, so no thread can get stuck on it while the player sleeps
+        if(verdict == LEGAL_SET){
+            point();
+        }
+        else if(verdict == ILLEGAL_SET){
+            penalty();
+        }
+        else if(verdict == OTHER_PLAYER_WITH_SAME_CARD_CASE){
+            settle(0, 0);
+            flag = PLAYER_NEEDS_TO_WAIT;
+        }
+    }
+
+    /**
+     * Picks up where the player was when the game was checkpointed (see resume): finishes the freeze, and hands the
+     * claim in again or applies its verdict.
+     */
+    private void resumeClaim(){
+        if(frozenUntil != 0){
+            freeze("resume");
+        }
+        if(awaitingVerdict){
+            if(flag == PLAYER_NEEDS_TO_WAIT){
+                handInClaim();
+            }
+            awaitVerdict();
+        }
+    }
+
+    /*
+     * This function responsable of terminate the threads in reverse order.
+     */
+    private void finished (){
+        if(this.id != (dealer.getPlayersArray().length - 1)){
+            try {
+                dealer.getPlayersArray()[id+1].terminate();
+                env.clock.join(dealer.getPlayersArray()[id+1].getPlayerThread());
+            } catch (InterruptedException e) {}
+        }
+        // the last player has an AI thread as well, so it is joined outside of the chain above.
+        if(!human){
+            try {
+                env.clock.join(aiThread);
+            } catch (InterruptedException e) {}
+        }
+    }
+
+    
+    /**
+     * Called when the game should be terminated.
+     */
+    public void terminate() { 
+        // the flag is raised first, so an interrupt that gets swallowed can never hide the termination.
+        this.terminate = true;  
+        env.clock.interrupt(playerThread); 
+    }
+
+    /**
+     * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly generates
+     * key presses. If the queue of key presses is full, the thread waits until it is not full.
+     */
+    private void createArtificialIntelligence() {
+        // note: this is a very, very smart AI (!)
+        aiThread = new ThreadLogger(null, () -> {
+            env.logger.info("Thread " + Thread.currentThread().getName() + " starting.");
+            env.locks.role(LockProfiler.Role.AI);
+            GameEvents.KeyBurst burst = null;
+            int presses = 0;
+            while (!terminate) {
+                int randSlot = random.nextInt(env.config.columns*env.config.rows);
+                if (burst == null) burst = GameEvents.keyBurst();
+                if (keyPressed(randSlot)) {
+                    presses++;
+                } else {
+                    // the burst ends when the player cannot take more presses
+                    if (burst != null && presses > 0) burst.commit(id, presses);
+                    burst = null;
+                    presses = 0;
+                }
+                try{
+                    env.clock.sleep(0);}
+                catch(InterruptedException ex){
+                };
+            }
+            env.logger.info("Thread " + Thread.currentThread().getName() + " terminated.");
+        }, "computer-" + id, env.logger, env.accounting, LockProfiler.Role.AI, env.clock);
+        aiThread.start();
+    }
+
+    /**
+     * This method is called when a key is pressed.
+     *
+     * @param slot - the slot corresponding to the key pressed.
+     * 
+     * @pre - the players flag need to be set to 0 i.e the player is waiting As long as no keys are pressed
+     * @post - the size of queueOfActions in increased by 1 if the the size is less than the number of features and the player is waiting for a key press.
+     *
+     * @return - true iff the press was queued.
+     */
+    public boolean keyPressed(int slot) {
+        int PLAYER_NEEDS_TO_WAIT = 0;
+
+        return env.locks.call(LockProfiler.Lock.PLAYER, playerLock, () -> {
+            if(queueOfActions.size() < env.config.featureSize && flag == PLAYER_NEEDS_TO_WAIT && frozenUntil == 0){
+                queueOfActions.add(slot);
+                env.clock.signal(playerLock); 
+                env.metrics.keyPressed(id, true);
+                return true;
+            }
+            else{
+                env.metrics.keyPressed(id, false);
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Award a point to a player and perform other related actions.
+     *
+     * @post - the player's score is increased by 1.
+     * @post - the player's score is updated in the ui.
+     */
+    public void point() {
+        int ignored = table.countCards(); // this part is just for demonstration in the unit tests
+        settle(1, env.config.pointFreezeMillis);
+        env.ui.setScore(id, score);
+        freeze("point");
+        //Updating the flag.
+        flag = 0;
+    }
+
+    /**
+     * Penalize a player and perform other related actions.
+     * @post - the player's score doesnt change.
+     * @post - the flag of the player that determines what the player need to do is reset to 0.
+     */
+    public void penalty() {
+        settle(0, env.config.penaltyFreezeMillis);
+        freeze("penalty");
+        //Updating the flag.
+        flag = 0;
+    }
+
+    /**
+     * Applies the verdict on the player's claim: the score and the freeze change together, under the player lock, so
+     * a checkpoint never sees one without the other.
+     * @param points       - the points to add to the score.
+     * @param freezeMillis - the time to freeze the player for.
+     */
+    private void settle(int points, long freezeMillis) {
+        env.locks.run(LockProfiler.Lock.PLAYER, playerLock, () -> {
+            score += points;
+            frozenUntil = freezeMillis > 0 ? env.clock.millis() + freezeMillis : 0;
+            awaitingVerdict = false;
+        });
+    }
+
+    /**
+     * Freezes the player until frozenUntil, showing the time left. A freeze interrupted by the end of the game keeps
+     * its end time, so a checkpoint of the stopped game still has it.
+     * @param reason - what the player is frozen for.
+     */
+    private void freeze(String reason) {
+        final int STOP_SHOW = 0;
+        final int SLEEPING_TIME = 950; 
+        long frozenSince = env.clock.millis();
+        GameEvents.Freeze freeze = GameEvents.freeze();
+        try{
+            long freezeTime = frozenUntil;
+            env.ui.setFreeze(id, Math.max(freezeTime - env.clock.millis(), 0));
+            while(env.clock.millis() < freezeTime){
+                env.ui.setFreeze(id, freezeTime - env.clock.millis());
+                env.clock.sleep(Math.min(SLEEPING_TIME, Math.max(freezeTime - env.clock.millis(),1)));
+            }
+            frozenUntil = 0;
+        } catch(InterruptedException e){}
+        if (freeze != null) freeze.commit(id, reason);
+        env.metrics.frozen(env.clock.millis() - frozenSince);
+
+        env.ui.setFreeze(this.id , STOP_SHOW);
+    }
+
+    public int score() {
+        return score;
+    }
+
+    public int[] setListToArray(List<Integer> list){
+        int[] arr = new int[env.config.featureSize];
+        for(int i = 0; i < list.size(); i++){
+            arr[i] = list.get(i);
+        }
+        return arr;
+    }
+
+
+    public CopyOnWriteArrayList<Integer> getTokenList(){
+        return tokensList;
+    }
+
+
+    public boolean removeToken(int slot){
+        return env.locks.call(LockProfiler.Lock.TABLE, table, () -> removeTokenLocked(slot));
+    }
+
+    /**
+     * Removes the player's token from the slot, if it is there. Called with the table lock held (e.g. by the dealer
+     * while it replaces cards, which then does not make a critical section per token).
+     * @param slot - the slot to remove the token from.
+     * @return - true if the token was removed.
+     */
+    boolean removeTokenLocked(int slot){
+        GameEvents.TableLock lock = GameEvents.tableLock();
+        boolean removed = false;
+        if(tokensList.contains(slot) && table.slotToCard[slot] != null){
+            tokensList.remove((Integer)slot);
+            table.removeToken(this.id, slot);
+            removed = true;
+        }
+        if (lock != null) lock.commit("removeToken", id);
+        return removed;
+    }
+
+    public boolean placeToken(int slot){
+        return env.locks.call(LockProfiler.Lock.TABLE, table, () -> {
+            GameEvents.TableLock lock = GameEvents.tableLock();
+            boolean placed = false;
+            if(tokensList.size() < env.config.featureSize && table.slotToCard[slot]!=null){
+                tokensList.add(slot);
+                table.placeToken(this.id, slot);
+                env.metrics.tokenPlaced(id);
+                awaitingVerdict = tokensList.size() == env.config.featureSize;
+                placed = true;
+            }
+            if (lock != null) lock.commit("placeToken", id);
+            return placed;
+        });
+    }
+
+    /**
+     * Copies the player's state into the checkpoint. Called by the dealer thread (so no verdict is given meanwhile)
+     * with the table lock held (so the tokens do not change meanwhile).
+     * @param checkpoint - the checkpoint to fill.
+     * @param now        - the clock time of the checkpoint.
+     */
+    void checkpoint(Checkpoint checkpoint, long now){
+        int[] tokens = new int[tokensList.size()];
+        for(int i = 0; i < tokens.length; i++){
+            tokens[i] = tokensList.get(i);
+        }
+        checkpoint.tokens[id] = tokens;
+        env.locks.run(LockProfiler.Lock.PLAYER, playerLock, () -> {
+            checkpoint.scores[id] = score;
+            checkpoint.freezeMillis[id] = frozenUntil == 0 ? 0 : Math.max(frozenUntil - now, 0);
+            int claim = Checkpoint.NO_CLAIM;
+            if(awaitingVerdict){
+                if(flag == PLAYER_NEEDS_TO_WAIT) claim = Checkpoint.CLAIM_PENDING;
+                else if(flag == LEGAL_SET) claim = Checkpoint.CLAIM_LEGAL;
+                else if(flag == ILLEGAL_SET) claim = Checkpoint.CLAIM_ILLEGAL;
+            }
+            checkpoint.claims[id] = claim;
+        });
+    }
+
+    /**
+     * Restores the player's state from a checkpoint. Called before the player thread starts, after the table cards
+     * were restored.
+     * @param checkpoint - the checkpoint to restore.
+     */
+    void resume(Checkpoint checkpoint){
+        // restored, not played: they are shown without counting as points or placed tokens
+        score = checkpoint.scores[id];
+        env.ui.restoreScore(id, score);
+        for(int slot : checkpoint.tokens[id]){
+            tokensList.add(slot);
+            table.restoreToken(id, slot);
+        }
+        long freezeMillis = checkpoint.freezeMillis[id];
+        frozenUntil = freezeMillis > 0 ? env.clock.millis() + freezeMillis : 0;
+        int claim = checkpoint.claims[id];
+        awaitingVerdict = claim != Checkpoint.NO_CLAIM;
+        flag = claim == Checkpoint.CLAIM_LEGAL ? LEGAL_SET : claim == Checkpoint.CLAIM_ILLEGAL ? ILLEGAL_SET
+                : PLAYER_NEEDS_TO_WAIT;
+    }
+
+    public boolean isHuman(){
+        return human;        
+    }
+
+    public void setPlayerThread(Thread playerThread){
+        this.playerThread = playerThread;
+    }
+
+    public Thread getPlayerThread (){
+        return playerThread;
+    }
+
+    public void setFlag(int newFlag){
+        this.flag = newFlag;
+    }
+
+}
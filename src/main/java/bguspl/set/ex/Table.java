@@ -1,149 +1,171 @@
-package bguspl.set.ex;
-
-import bguspl.set.Env;
-
-import java.util.Arrays;
-import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
-
-/**
- * This class contains the data that is visible to the player.
- *
- * @inv slotToCard[x] == y iff cardToSlot[y] == x
- */
-public class Table {
-
-    /**
-     * The game environment object.
-     */
-    private final Env env;
-
-    /**
-     * Mapping between a slot and the card placed in it (null if none).
-     */
-    protected final Integer[] slotToCard; // card per slot (if any)
-
-    /**
-     * Mapping between a card and the slot it is in (null if none).
-     */
-    protected final Integer[] cardToSlot; // slot per card (if any)
-
-
-    /**
-     * Constructor for testing.
-     *
-     * @param env        - the game environment objects.
-     * @param slotToCard - mapping between a slot and the card placed in it (null if none).
-     * @param cardToSlot - mapping between a card and the slot it is in (null if none).
-     */
-    public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
-
-        this.env = env;
-        this.slotToCard = slotToCard;
-        this.cardToSlot = cardToSlot;
-    }
-
-    /**
-     * Constructor for actual usage.
-     *
-     * @param env - the game environment objects.
-     */
-    public Table(Env env) {
-
-        this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
-    }
-
-    /**
-     * This method prints all possible legal sets of cards that are currently on the table.
-     */
-    public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
-            StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
-            List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted().collect(Collectors.toList());
-            int[][] features = env.util.cardsToFeatures(set);
-            System.out.println(sb.append("slots: ").append(slots).append(" features: ").append(Arrays.deepToString(features)));
-        });
-    }
-
-    /**
-     * Count the number of cards currently on the table.
-     *
-     * @return - the number of cards on the table.
-     */
-    public int countCards() {
-        int cards = 0;
-        for (Integer card : slotToCard)
-            if (card != null)
-                ++cards;
-        return cards;
-    }
-
-    /**
-     * Places a card on the table in a grid slot.
-     * @param card - the card id to place in the slot.
-     * @param slot - the slot in which the card should be placed.
-     * @pre - the given slot is in the range of the table size and the given card is in the range of the number of cards
-     * @post - the card placed is on the table, in the assigned slot.
-     */
-    public synchronized void placeCard(int card, int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {}
-
-        cardToSlot[card] = slot;
-        slotToCard[slot] = card;
-
-        env.ui.placeCard(card, slot);
-    }
-
-    /**
-     * Removes a card from a grid slot on the table.
-     * @param slot - the slot from which to remove the card.
-     * @pre - the given slot is in the range of the table size
-     * @post - the card the was in the given slot is no longer there and the assignment of that that slot to that card os erased.
-     */
-    public synchronized void removeCard(int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {}
-
-        if(slotToCard[slot] != null){ 
-            int card = slotToCard[slot]; 
-            slotToCard[slot] = null;
-            cardToSlot[card] = null;
-    
-            env.ui.removeCard(slot);
-        }
-
-    }
-
-    /**
-     * Places a player token on a grid slot.
-     * @param player - the player the token belongs to.
-     * @param slot   - the slot on which to place the token.
-     */
-    public synchronized void placeToken(int player, int slot) {
-            env.ui.placeToken(player, slot);
-    }
-
-    /**
-     * Removes a token of a player from a grid slot.
-     * @param player - the player the token belongs to.
-     * @param slot   - the slot from which to remove the token.
-     * @return       - true iff a token was successfully removed.
-     */
-    public synchronized boolean removeToken(int player, int slot) {
-            env.ui.removeToken(player, slot);
-        return false;
-    }
-
-    public int getCardFromSlot(int slot){
-        return slotToCard[slot];
-    }
-
-    public int getSlotFromCard(int card){
-        return cardToSlot[card];
-    }
-}
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * This class contains the data that is visible to the player.
+ *
+ * @inv slotToCard[x] == y iff cardToSlot[y] == x
+ */
+public class Table {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * Mapping between a slot and the card placed in it (null if none).
+     */
+    protected final Integer[] slotToCard; // card per slot (if any)
+
+    /**
+     * Mapping between a card and the slot it is in (null if none).
+     */
+    protected final Integer[] cardToSlot; // slot per card (if any)
+
+
+    /**
+     * Constructor for testing.
+     *
+     * @param env        - the game environment objects.
+     * @param slotToCard - mapping between a slot and the card placed in it (null if none).
+     * @param cardToSlot - mapping between a card and the slot it is in (null if none).
+     */
+    public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
+
+        this.env = env;
+        this.slotToCard = slotToCard;
+        this.cardToSlot = cardToSlot;
+    }
+
+    /**
+     * Constructor for actual usage.
+     *
+     * @param env - the game environment objects.
+     */
+    public Table(Env env) {
+
+        this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
+    }
+
+    /**
+     * This method prints all possible legal sets of cards that are currently on the table.
+     */
+    public void hints() {
+        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
+        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
+            StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
+            List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted().collect(Collectors.toList());
+            int[][] features = env.util.cardsToFeatures(set);
+            System.out.println(sb.append("slots: ").append(slots).append(" features: ").append(Arrays.deepToString(features)));
+        });
+    }
+
+    /**
+     * Count the number of cards currently on the table.
+     *
+     * @return - the number of cards on the table.
+     */
+    public int countCards() {
+        int cards = 0;
+        for (Integer card : slotToCard)
+            if (card != null)
+                ++cards;
+        return cards;
+    }
+
+    /**
+     * Places a card on the table in a grid slot.
+     * @param card - the card id to place in the slot.
+     * @param slot - the slot in which the card should be placed.
+     * @pre - the given slot is in the range of the table size and the given card is in the range of the number of cards
+     * @post - the card placed is on the table, in the assigned slot.
+     */
+    public synchronized void placeCard(int card, int slot) {
+        try {
+            env.clock.pause(env.config.tableDelayMillis);
+        } catch (InterruptedException ignored) {}
+
+        cardToSlot[card] = slot;
+        slotToCard[slot] = card;
+
+        env.ui.placeCard(card, slot);
+    }
+
+    /**
+     * Puts the cards of a checkpoint on the empty table at once (without the table delay of placeCard).
+     * @param cards - the card per slot, -1 for an empty slot.
+     */
+    synchronized void restoreCards(int[] cards) {
+        for(int slot = 0; slot < cards.length; slot++){
+            if(cards[slot] >= 0){
+                cardToSlot[cards[slot]] = slot;
+                slotToCard[slot] = cards[slot];
+                env.ui.placeCard(cards[slot], slot);
+            }
+        }
+    }
+
+    /**
+     * Shows a token restored from a checkpoint (the player keeps its own list of tokens).
+     * @param player - the player the token belongs to.
+     * @param slot   - the slot the token is on.
+     */
+    synchronized void restoreToken(int player, int slot) {
+        env.ui.restoreToken(player, slot);
+    }
+
+    /**
+     * Removes a card from a grid slot on the table.
+     * @param slot - the slot from which to remove the card.
+     * @pre - the given slot is in the range of the table size
+     * @post - the card the was in the given slot is no longer there and the assignment of that that slot to that card os erased.
+     */
+    public synchronized void removeCard(int slot) {
+        try {
+            env.clock.pause(env.config.tableDelayMillis);
+        } catch (InterruptedException ignored) {}
+
+        if(slotToCard[slot] != null){ 
+            int card = slotToCard[slot]; 
+            slotToCard[slot] = null;
+            cardToSlot[card] = null;
+    
+            env.ui.removeCard(slot);
+        }
+    }
+
+    /**
+     * Places a player token on a grid slot.
+     * @param player - the player the token belongs to.
+     * @param slot   - the slot on which to place the token.
+     */
+    public synchronized void placeToken(int player, int slot) {
+        env.ui.placeToken(player, slot);
+    }
+
+    /**
+     * Removes a token of a player from a grid slot.
+     * @param player - the player the token belongs to.
+     * @param slot   - the slot from which to remove the token.
+     * @return       - true iff a token was successfully removed.
+     */
+    public synchronized boolean removeToken(int player, int slot) {
+        env.ui.removeToken(player, slot);
+        return false;
+    }
+
+    public int getCardFromSlot(int slot){
+        return slotToCard[slot];
+    }
+
+    public int getSlotFromCard(int card){
+        return cardToSlot[card];
+    }
+}
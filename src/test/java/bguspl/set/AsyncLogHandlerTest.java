@@ -0,0 +1,95 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AsyncLogHandlerTest {
+
+    /**
+     * A handler that keeps what it was given.
+     */
+    static class CollectingHandler extends Handler {
+        final List<LogRecord> records = new ArrayList<>();
+
+        @Override
+        public synchronized void publish(LogRecord record) {
+            records.add(record);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    void publish_KeepsOrderOfEachThread() throws InterruptedException {
+        CollectingHandler target = new CollectingHandler();
+        AsyncLogHandler handler = new AsyncLogHandler(target, 1 << 16);
+        int threads = 4, perThread = 5_000;
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int producer = t;
+            producers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++)
+                    handler.publish(new LogRecord(Level.INFO, producer + ":" + i));
+            }));
+        }
+        producers.forEach(Thread::start);
+        for (Thread producer : producers) producer.join();
+        handler.flush();
+
+        assertEquals(threads * perThread, target.records.size());
+        int[] next = new int[threads];
+        for (LogRecord record : target.records) {
+            String[] parts = record.getMessage().split(":");
+            int producer = Integer.parseInt(parts[0]);
+            assertEquals(next[producer]++, Integer.parseInt(parts[1]));
+        }
+        handler.close();
+    }
+
+    @Test
+    void publish_DropsWhenFull() {
+        CollectingHandler target = new CollectingHandler();
+        AsyncLogHandler handler = new AsyncLogHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                synchronized (target) {
+                    target.publish(record);
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        }, 4);
+        synchronized (target) { // the writer is stuck on the first record
+            for (int i = 0; i < 100; i++)
+                handler.publish(new LogRecord(Level.INFO, "record " + i));
+        }
+        handler.close();
+        assertEquals(100, target.records.size() - 1 + handler.dropped()); // the drop warning is a record too
+    }
+
+    @Test
+    void formatMessage_ReplacesParameters() {
+        LogRecord record = new LogRecord(Level.FINE, "setting player {0} freeze to {1} {2}");
+        record.setParameters(new Object[]{2, 60000L});
+        assertEquals("setting player 2 freeze to 60000 {2}", new GameLogFormatter("%3$s").formatMessage(record));
+    }
+}
@@ -0,0 +1,41 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.UncheckedIOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CardImageCacheTest {
+
+    @Test
+    void get_DecodesOnce() {
+        CardImageCache cache = new CardImageCache();
+        cache.preload("cards/0000.png", "cards/0001.png");
+        BufferedImage image = cache.get("cards/0000.png");
+        assertEquals(258, image.getWidth());
+        assertEquals(167, image.getHeight());
+        assertSame(image, cache.get("cards/0000.png"));
+    }
+
+    @Test
+    void get_EvictsLeastRecentlyUsed() {
+        CardImageCache cache = new CardImageCache();
+        cache.requireSize(2);
+        BufferedImage first = cache.get("cards/0000.png");
+        BufferedImage second = cache.get("cards/0001.png");
+        cache.get("cards/0000.png"); // now the second is the least recently used
+        cache.get("cards/0002.png");
+        assertSame(first, cache.get("cards/0000.png"));
+        assertNotSame(second, cache.get("cards/0001.png"));
+    }
+
+    @Test
+    void get_MissingImage() {
+        assertThrows(UncheckedIOException.class, () -> new CardImageCache().get("cards/missing.png"));
+    }
+}
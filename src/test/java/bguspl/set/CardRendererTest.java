@@ -0,0 +1,48 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.awt.image.BufferedImage;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+class CardRendererTest {
+
+    @Mock
+    Logger logger;
+
+    @Test
+    void card_LargeDeck() {
+        Properties properties = new Properties();
+        properties.put("FeatureCount", "6");
+        Config config = new Config(logger, properties);
+        CardRenderer renderer = new CardRenderer(config, new UtilImpl(config), 2);
+
+        BufferedImage first = renderer.card(0);
+        BufferedImage last = renderer.card(config.deckSize - 1);
+        assertEquals(config.cellWidth, first.getWidth());
+        assertEquals(config.cellHeight, first.getHeight());
+        assertTrue(differ(first, last));
+
+        assertSame(first, renderer.card(0));
+        renderer.card(1);
+        renderer.card(2); // the last card is evicted
+        assertNotSame(last, renderer.card(config.deckSize - 1));
+    }
+
+    private static boolean differ(BufferedImage a, BufferedImage b) {
+        for (int x = 0; x < a.getWidth(); x++)
+            for (int y = 0; y < a.getHeight(); y++)
+                if (a.getRGB(x, y) != b.getRGB(x, y)) return true;
+        return false;
+    }
+}
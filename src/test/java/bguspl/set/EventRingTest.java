@@ -0,0 +1,27 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EventRingTest {
+
+    @Test
+    void read_ReportsOverrun() {
+        EventRing<String> ring = new EventRing<>(4);
+        List<String> read = new ArrayList<>();
+        ring.publish("a");
+        ring.publish("b");
+        assertEquals(2, ring.read(0, read));
+        assertEquals(2, read.size());
+
+        for (int i = 0; i < 10; i++) ring.publish("c" + i);
+        assertEquals(-1, ring.read(2, read));
+        read.clear();
+        assertEquals(12, ring.read(8, read));
+        assertEquals("c9", read.get(3));
+    }
+}
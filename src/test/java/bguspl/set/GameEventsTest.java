@@ -0,0 +1,91 @@
+package bguspl.set;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameEventsTest {
+
+    private Configuration profile() throws Exception {
+        try (Reader reader = new InputStreamReader(getClass().getResourceAsStream("/set-game.jfc"), StandardCharsets.UTF_8)) {
+            return Configuration.create(reader);
+        }
+    }
+
+    @Test
+    void verdict_IsRecordedWithTheProfile() throws Exception {
+        Configuration configuration = profile();
+        Path file = Files.createTempFile("set-game", ".jfr");
+        try (Recording recording = new Recording(configuration)) {
+            recording.start();
+            GameEvents.Verdict verdict = new GameEvents.Verdict();
+            verdict.begin();
+            verdict.player = 1;
+            verdict.slots = GameEvents.join(new int[]{0, 4, 7});
+            verdict.outcome = GameEvents.Verdict.LEGAL;
+            verdict.commit();
+            recording.stop();
+            recording.dump(file);
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            events.removeIf(event -> !event.getEventType().getName().equals("bguspl.set.Verdict"));
+            assertEquals(1, events.size());
+            assertEquals(1, events.get(0).getInt("player"));
+            assertEquals("0,4,7", events.get(0).getString("slots"));
+            assertEquals("legal", events.get(0).getString("outcome"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void game_IsRecordedWithTheProfile() throws Exception {
+        assertNull(GameEvents.tableLock(), "no event is created while no recording enables it");
+        assertNull(GameEvents.claim());
+
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Properties properties = new Properties();
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("ComputerPlayers", "2");
+        properties.setProperty("FeatureCount", "3");
+        properties.setProperty("TurnTimeoutSeconds", "0.5");
+        properties.setProperty("PointFreezeSeconds", "0");
+        properties.setProperty("PenaltyFreezeSeconds", "0");
+        properties.setProperty("TableDelaySeconds", "0.002"); // so a deal holds the table lock over the threshold
+        properties.setProperty("EndGamePauseSeconds", "0");
+        properties.setProperty("LogLevel", "OFF");
+        Config config = new Config(logger, properties);
+
+        Path file = Files.createTempFile("set-game", ".jfr");
+        try (Recording recording = new Recording(profile())) {
+            recording.start();
+            new Game(1, logger, config, new MetricsUserInterface(config, new RealClock())).run();
+            recording.stop();
+            recording.dump(file);
+            Set<String> recorded = new HashSet<>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file))
+                recorded.add(event.getEventType().getName());
+            for (String event : new String[]{"DealerPhase", "Claim", "Verdict", "TableLock"})
+                assertTrue(recorded.contains("bguspl.set." + event), event + " events in " + recorded);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameHostTest {
+
+    GameHost host;
+    Properties properties;
+
+    @BeforeEach
+    void setUp() {
+        host = new GameHost(1, 4, null);
+        properties = new Properties();
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        properties.put("TurnTimeoutSeconds", "0.1");
+        properties.put("TurnTimeoutWarningSeconds", "0.01");
+        properties.put("PointFreezeSeconds", "0");
+        properties.put("PenaltyFreezeSeconds", "0");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("LogLevel", "OFF");
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        host.shutdown();
+    }
+
+    @Test
+    void stop_QueuedGameNeverStarts() throws InterruptedException {
+        Game running = host.start(properties, new MockUserInterface());
+        Game queued = host.start(properties, new MockUserInterface());
+        queued.stop();
+        running.stop();
+
+        assertTrue(host.drain(10, TimeUnit.SECONDS));
+        assertEquals(Game.State.STOPPED, running.state());
+        assertEquals(Game.State.STOPPED, queued.state());
+        assertEquals(0, queued.stats().wallNanos);
+    }
+
+    @Test
+    void start_GamesAreIsolated() throws InterruptedException {
+        Game first = host.start(properties, new MockUserInterface());
+        properties.put("ComputerPlayers", "3");
+        Game second = host.start(properties, new MockUserInterface());
+
+        assertNotEquals(first.env, second.env);
+        assertEquals(2, first.env.config.players);
+        assertEquals(3, second.env.config.players);
+        first.stop();
+        second.stop();
+        assertTrue(host.drain(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void drain_RejectsNewGames() throws InterruptedException {
+        assertTrue(host.drain(10, TimeUnit.SECONDS));
+        assertThrows(RejectedExecutionException.class, () -> host.start(properties, new MockUserInterface()));
+    }
+
+    /**
+     * A user interface that displays nothing.
+     */
+    static class MockUserInterface implements UserInterface {
+        @Override
+        public void dispose() {}
+        @Override
+        public void placeCard(int card, int slot) {}
+        @Override
+        public void removeCard(int slot) {}
+        @Override
+        public void setCountdown(long millies, boolean warn) {}
+        @Override
+        public void setElapsed(long millies) {}
+        @Override
+        public void setScore(int player, int score) {}
+        @Override
+        public void setFreeze(int player, long millies) {}
+        @Override
+        public void placeToken(int player, int slot) {}
+        @Override
+        public void removeTokens() {}
+        @Override
+        public void removeTokens(int slot) {}
+        @Override
+        public void removeToken(int player, int slot) {}
+        @Override
+        public void announceWinner(int[] players) {}
+    }
+}
@@ -0,0 +1,164 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameJournalTest {
+
+    private final Logger logger = Logger.getAnonymousLogger();
+
+    {
+        logger.setUseParentHandlers(false);
+    }
+
+    @Test
+    void readBack_SameEvents(@TempDir File directory) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("Seed", "-42");
+        Config config = new Config(logger, properties);
+        GameJournal journal = new GameJournal(config, 1024);
+        journal.placeCard(80, 11); // not journaled, the journal is not open yet
+        File file = new File(directory, "game.journal");
+        journal.open(file);
+        journal.placeCard(80, 11);
+        journal.placeToken(1, 11);
+        journal.claim(1, Arrays.asList(11, 0, 5));
+        journal.verdict(1, GameJournal.ILLEGAL);
+        journal.setCountdown(59_999, true);
+        journal.announceWinner(new int[]{0, 1});
+        journal.close();
+        assertEquals(6, journal.written());
+
+        try (GameJournal.Reader reader = new GameJournal.Reader(file)) {
+            assertEquals(-42, reader.seed);
+            assertEquals(config.hash, reader.configHash);
+            assertEquals(config.players, reader.players);
+            assertEquals(config.rows, reader.rows);
+            assertEquals(config.columns, reader.columns);
+            assertEquals(config.tableSize, reader.tableSize);
+            long[][] expected = {
+                    {GameJournal.PLACE_CARD, 80, 11},
+                    {GameJournal.PLACE_TOKEN, 1, 11},
+                    {GameJournal.CLAIM, 1, (1 << 11) | 1 | (1 << 5)},
+                    {GameJournal.VERDICT, 1, GameJournal.ILLEGAL},
+                    {GameJournal.COUNTDOWN, 59_999, 1},
+                    {GameJournal.WINNERS, 3, 0}};
+            long micros = 0;
+            for (long[] event : expected) {
+                assertTrue(reader.next());
+                assertArrayEquals(event, new long[]{reader.type, reader.first, reader.second});
+                assertTrue(reader.micros >= micros);
+                micros = reader.micros;
+            }
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    void varint_RoundTrip() throws IOException {
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        long[] values = {0, 1, -1, 63, -64, 64, 300, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : values) GameJournal.writeVarint(out, value);
+        java.io.ByteArrayInputStream in = new java.io.ByteArrayInputStream(out.toByteArray());
+        for (long value : values) assertEquals(value, GameJournal.readVarint(in));
+        out.reset();
+        GameJournal.writeVarint(out, -64);
+        assertEquals(1, out.size(), "small values take a single byte");
+    }
+
+    @Test
+    void replay_WholeGame(@TempDir File directory) throws IOException, InterruptedException {
+        Properties properties = new Properties();
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("ComputerPlayers", "3");
+        properties.setProperty("FeatureCount", "3");
+        properties.setProperty("Rows", "3");
+        properties.setProperty("Columns", "3");
+        properties.setProperty("TurnTimeoutSeconds", "0.1");
+        properties.setProperty("PointFreezeSeconds", "0");
+        properties.setProperty("PenaltyFreezeSeconds", "0");
+        properties.setProperty("TableDelaySeconds", "0");
+        properties.setProperty("EndGamePauseSeconds", "0");
+        properties.setProperty("LogLevel", "OFF");
+        properties.setProperty("JournalDirectory", directory.getPath());
+        Config config = new Config(logger, properties);
+        MetricsUserInterface played = new MetricsUserInterface(config, new RealClock());
+        Game game = new Game(7, logger, config, played);
+        game.run();
+
+        File[] journals = directory.listFiles();
+        assertNotNull(journals);
+        assertEquals(1, journals.length);
+        assertTrue(journals[0].getName().endsWith("-game-7.journal"));
+
+        MetricsUserInterface replayed = new MetricsUserInterface(config, new RealClock());
+        JournalReplay.Summary summary;
+        try (GameJournal.Reader reader = new GameJournal.Reader(journals[0])) {
+            // the default configuration has another table, the replay takes the game's
+            Config replay = new Config(logger, JournalReplay.replayProperties(new Properties(), reader));
+            assertEquals(config.rows, replay.rows);
+            assertEquals(config.columns, replay.columns);
+            summary = JournalReplay.replay(reader, replayed, 0);
+        }
+        assertEquals(0, summary.dropped);
+        assertEquals(game.env.metrics.getLegalSets(), summary.legal);
+        assertEquals(game.env.metrics.getIllegalSets(), summary.illegal);
+        assertEquals(summary.legal + summary.illegal + summary.stale, summary.claims);
+        assertArrayEquals(played.getScores(), replayed.getScores());
+        assertArrayEquals(played.getWinners(), replayed.getWinners());
+        assertEquals(played.getCardsPlaced(), replayed.getCardsPlaced());
+        assertEquals(played.getTokensPlaced(), replayed.getTokensPlaced());
+    }
+
+    @Test
+    void virtualTime_SameSeedSameGame(@TempDir File directory) throws IOException {
+        List<String> first = virtualTimeGame(new File(directory, "first"));
+        List<String> second = virtualTimeGame(new File(directory, "second"));
+        assertTrue(first.size() > 100, first.size() + " events");
+        assertEquals(first, second);
+    }
+
+    /**
+     * Plays a whole seeded game on the simulated clock, with the default freezes and table delay.
+     *
+     * @return - the events of the game's journal, without their times.
+     */
+    private List<String> virtualTimeGame(File directory) throws IOException {
+        assertTrue(directory.mkdir());
+        Properties properties = new Properties();
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("ComputerPlayers", "2");
+        properties.setProperty("FeatureCount", "3");
+        properties.setProperty("TurnTimeoutSeconds", "1");
+        properties.setProperty("Seed", "29");
+        properties.setProperty("VirtualTime", "True");
+        properties.setProperty("LogLevel", "OFF");
+        properties.setProperty("JournalDirectory", directory.getPath());
+        Config config = new Config(logger, properties);
+        Game game = new Game(1, logger, config, new MetricsUserInterface(config, new RealClock()));
+        game.run();
+
+        File[] journals = directory.listFiles();
+        assertNotNull(journals);
+        assertEquals(1, journals.length);
+        List<String> events = new ArrayList<>();
+        try (GameJournal.Reader reader = new GameJournal.Reader(journals[0])) {
+            while (reader.next()) events.add(reader.type + " " + reader.first + " " + reader.second);
+        }
+        return events;
+    }
+}
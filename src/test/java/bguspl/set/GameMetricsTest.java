@@ -0,0 +1,61 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameMetricsTest {
+
+    @Test
+    void keyPressed_CountsPerPlayer() {
+        GameMetrics metrics = new GameMetrics(2);
+        metrics.keyPressed(0, true);
+        metrics.keyPressed(0, true);
+        metrics.keyPressed(1, false);
+        assertArrayEquals(new long[]{2, 0}, metrics.getKeyPressesAccepted());
+        assertArrayEquals(new long[]{0, 1}, metrics.getKeyPressesRejected());
+    }
+
+    @Test
+    void verdict_CountsSetsAndLatency() {
+        GameMetrics metrics = new GameMetrics(3);
+        metrics.verdict(0, System.nanoTime(), true);
+        metrics.verdict(1, System.nanoTime(), false);
+        metrics.verdict(1, System.nanoTime(), false);
+        assertEquals(1, metrics.getLegalSets());
+        assertEquals(2, metrics.getIllegalSets());
+        assertTrue(metrics.getClaimLatency().startsWith("count 3,"));
+        double[] averages = metrics.getAverageClaimLatency();
+        assertTrue(averages[0] > 0 && averages[1] > 0);
+        assertEquals(0, averages[2], "no claims, no latency");
+    }
+
+    @Test
+    void claimHops_AreTimed() {
+        GameMetrics metrics = new GameMetrics(1);
+        long claim = System.nanoTime();
+        metrics.claimPickedUp(claim);
+        metrics.verdictWakeup(System.nanoTime());
+        assertTrue(metrics.getClaimQueueWait().startsWith("count 1,"));
+        assertTrue(metrics.getVerdictWakeup().startsWith("count 1,"));
+        assertTrue(metrics.getSnapshot().contains("claim queue wait: count 1,"));
+    }
+
+    @Test
+    void register_PublishesTheMBean() throws JMException {
+        GameMetrics metrics = new GameMetrics(1);
+        metrics.reshuffle();
+        metrics.register("test");
+        ObjectName name = new ObjectName("bguspl.set:type=GameMetrics,name=\"test\"");
+        assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Reshuffles"));
+        metrics.unregister();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
@@ -0,0 +1,51 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+
+    @Test
+    void percentile_SmallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 50; i++) histogram.record(i);
+        assertEquals(25, histogram.percentile(0.5));
+        assertEquals(50, histogram.percentile(1.0));
+        assertEquals(25.5, histogram.mean());
+    }
+
+    @Test
+    void percentile_LargeValuesWithinThreePercent() {
+        Histogram histogram = new Histogram();
+        for (long i = 1; i <= 1_000_000; i++) histogram.record(i * 1000);
+        assertWithin(500_000_000L, histogram.percentile(0.5));
+        assertWithin(990_000_000L, histogram.percentile(0.99));
+        assertEquals(1_000_000_000L, histogram.max());
+    }
+
+    @Test
+    void add_MergesTheValues() {
+        Histogram first = new Histogram();
+        Histogram second = new Histogram();
+        for (long i = 1; i <= 25; i++) first.record(i);
+        for (long i = 26; i <= 50; i++) second.record(i);
+        first.add(second);
+        assertEquals(50, first.count());
+        assertEquals(25, first.percentile(0.5));
+        assertEquals(50, first.max());
+        assertEquals(25.5, first.mean());
+    }
+
+    @Test
+    void bucket_MiddleIsInsideTheBucket() {
+        for (long value = 0; value < 1 << 20; value += 7)
+            assertEquals(Histogram.bucket(value), Histogram.bucket(Histogram.middle(Histogram.bucket(value))));
+        assertTrue(Histogram.bucket(Long.MAX_VALUE) > 0);
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(Math.abs(expected - actual) <= expected * 0.03, expected + " vs " + actual);
+    }
+}
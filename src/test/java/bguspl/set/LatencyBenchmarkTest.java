@@ -0,0 +1,27 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyBenchmarkTest {
+
+    @Test
+    void run_MeasuresEveryStage() throws InterruptedException {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        LatencyBenchmark.Stages stages = LatencyBenchmark.run(logger, 2, 5);
+        assertTrue(stages.claims() >= 10);
+        assertEquals(stages.claims(), stages.tokenToVerdict.count());
+        assertEquals(stages.claims(), stages.pressToVerdict.count());
+        assertTrue(stages.pressToToken.count() >= stages.claims());
+        assertTrue(stages.claimToDealerVerdict.count() >= stages.claims());
+        assertTrue(stages.claimToPickup.count() >= stages.claimToDealerVerdict.count());
+        assertTrue(stages.dealerCheck.count() >= stages.claimToDealerVerdict.count());
+        assertTrue(stages.verdictToWakeup.count() >= stages.claims());
+        assertTrue(stages.report(2).contains("last key press -> verdict shown"));
+    }
+}
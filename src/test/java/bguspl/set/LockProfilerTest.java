@@ -0,0 +1,55 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LockProfilerTest {
+
+    @Test
+    void run_RecordsOnlyTheOutermostAcquisition() {
+        LockProfiler locks = new LockProfiler(true);
+        locks.role(LockProfiler.Role.DEALER);
+        Object table = new Object();
+        locks.run(LockProfiler.Lock.TABLE, table, () -> locks.run(LockProfiler.Lock.TABLE, table, () -> {}));
+        String report = locks.report();
+        assertTrue(report.contains("table      DEALER        1 acquisitions"), report);
+        assertEquals(2, report.split("\n").length, report);
+    }
+
+    @Test
+    void report_PerRole() throws InterruptedException {
+        LockProfiler locks = new LockProfiler(true);
+        Thread ai = new Thread(() -> {
+            locks.role(LockProfiler.Role.AI);
+            locks.run(LockProfiler.Lock.PLAYER, this, () -> {});
+        });
+        ai.start();
+        ai.join();
+        locks.run(LockProfiler.Lock.PLAYER, this, () -> {});
+        String report = locks.report();
+        assertTrue(report.contains("playerLock AI"), report);
+        assertTrue(report.contains("playerLock OTHER"), report);
+    }
+
+    @Test
+    void disabled_RecordsNothing() {
+        LockProfiler locks = new LockProfiler(false);
+        assertEquals(1, (int) locks.call(LockProfiler.Lock.DEALER, this, () -> 1));
+        assertEquals("lock profiling is disabled", locks.report());
+    }
+
+    @Test
+    void await_DoesNotCountTheWaitAsHeld() throws InterruptedException {
+        LockProfiler locks = new LockProfiler(true);
+        locks.role(LockProfiler.Role.DEALER);
+        Object dealer = new Object();
+        locks.run(LockProfiler.Lock.DEALER, dealer, () -> locks.await(LockProfiler.Lock.DEALER, new RealClock(), dealer, 50));
+        String report = locks.report();
+        // a hold before the wait and one after it, each of them far shorter than the wait
+        assertTrue(report.contains("dealer     DEALER        1 acquisitions"), report);
+        assertTrue(Double.parseDouble(report.replaceAll("(?s).*hold mean [0-9.]+ p99 [0-9.]+ max ([0-9.]+).*", "$1")) < 25_000,
+                report);
+    }
+}
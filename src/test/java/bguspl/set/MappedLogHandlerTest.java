@@ -0,0 +1,44 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedLogHandlerTest {
+
+    @TempDir
+    File directory;
+
+    @Test
+    void publish_RollsSegmentsAndDumps() throws IOException {
+        MappedLogHandler handler = new MappedLogHandler(directory, 256);
+        handler.setFormatter(new GameLogFormatter("%3$s"));
+        for (int i = 0; i < 20; i++) {
+            LogRecord record = new LogRecord(Level.FINE, "placing card {0} in slot {1}");
+            record.setParameters(new Object[]{i, i % 12});
+            handler.publish(record);
+        }
+        handler.close();
+
+        File[] segments = directory.listFiles();
+        assertTrue(segments != null && segments.length > 1);
+        java.util.Arrays.sort(segments);
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        int records = 0;
+        for (File segment : segments) {
+            assertEquals(256, segment.length());
+            records += LogDump.dump(segment, new PrintStream(text, true));
+        }
+        assertEquals(20, records);
+        assertTrue(text.toString().contains("placing card 19 in slot 7"));
+    }
+}
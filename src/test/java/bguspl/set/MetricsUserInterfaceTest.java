@@ -0,0 +1,74 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+class MetricsUserInterfaceTest {
+
+    @Mock
+    Logger logger;
+
+    VirtualClock clock;
+    MetricsUserInterface metrics;
+
+    @BeforeEach
+    void setUp() {
+        clock = new VirtualClock();
+        metrics = new MetricsUserInterface(new Config(logger, new Properties()), clock);
+    }
+
+    @Test
+    void tokens_CountsChurn() {
+        metrics.placeToken(0, 1);
+        metrics.placeToken(0, 1); // already there
+        metrics.placeToken(1, 1);
+        metrics.placeToken(1, 2);
+        metrics.removeToken(1, 2);
+        metrics.removeTokens(1);
+        assertEquals(3, metrics.getTokensPlaced());
+        assertEquals(3, metrics.getTokensRemoved());
+        assertEquals(0, metrics.getTokensOnTable());
+    }
+
+    @Test
+    void setScore_RecordsTimeline() throws InterruptedException {
+        clock.sleep(1000);
+        metrics.setScore(1, 1);
+        clock.sleep(500);
+        metrics.setScore(0, 1);
+        assertArrayEquals(new long[]{1000, 1500}, metrics.getScoreTimeline());
+        assertArrayEquals(new int[]{1, 1}, metrics.getScores());
+    }
+
+    @Test
+    void setFreeze_RecordsOnlyTheStart() {
+        for (long millies = 3000; millies >= 0; millies -= 1000)
+            metrics.setFreeze(0, millies);
+        assertTrue(metrics.getFreezeDurations().startsWith("count 1, mean 3000.0,"));
+    }
+
+    @Test
+    void register_ReadableThroughJmx() throws JMException {
+        metrics.placeCard(5, 0);
+        ObjectName name = metrics.register("metrics-test");
+        try {
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "CardsPlaced"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class RemotePlayerServerTest {
+
+    @Mock
+    Logger logger;
+    @Mock
+    Player player;
+
+    RemotePlayerServer server;
+    SocketChannel client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "1");
+        properties.put("ComputerPlayers", "1");
+        Config config = new Config(logger, properties);
+        server = new RemotePlayerServer(logger, config, new Player[]{player, null}, 64);
+        server.placeCard(42, 0);
+        int port = server.start(0);
+        client = SocketChannel.open(new InetSocketAddress("localhost", port));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.stop();
+    }
+
+    @Test
+    void join_GetsTableAndPressesReachThePlayer() throws IOException {
+        client.write(ByteBuffer.wrap(RemotePlayerProtocol.join(0)));
+        ByteBuffer welcome = readFrame();
+        assertEquals(RemotePlayerProtocol.WELCOME, welcome.get());
+        assertEquals(0, welcome.get());
+        ByteBuffer card = readFrame();
+        assertEquals(RemotePlayerProtocol.CARD, card.get());
+        assertEquals(0, card.get());
+        assertEquals(42, card.getShort());
+
+        client.write(ByteBuffer.wrap(RemotePlayerProtocol.press(5)));
+        verify(player, timeout(1000)).keyPressed(5);
+    }
+
+    @Test
+    void join_ComputerSeatIsRejected() throws IOException {
+        client.write(ByteBuffer.wrap(RemotePlayerProtocol.join(1)));
+        ByteBuffer rejected = readFrame();
+        assertEquals(RemotePlayerProtocol.REJECTED, rejected.get());
+        assertEquals(RemotePlayerProtocol.NO_SUCH_SEAT, rejected.get());
+    }
+
+    private ByteBuffer readFrame() throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(RemotePlayerProtocol.LENGTH_BYTES);
+        while (length.hasRemaining()) client.read(length);
+        ByteBuffer frame = ByteBuffer.allocate(length.getShort(0));
+        while (frame.hasRemaining()) client.read(frame);
+        frame.flip();
+        return frame;
+    }
+}
@@ -0,0 +1,38 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimulationTest {
+
+    @Test
+    @Timeout(60)
+    void probe_RecordsTheLegalClaims() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Properties properties = new Properties();
+        properties.setProperty("ComputerPlayers", "2");
+        properties.setProperty("FeatureCount", "3");
+        properties.setProperty("TurnTimeoutSeconds", "0.1");
+        properties.setProperty("PointFreezeSeconds", "0");
+        properties.setProperty("PenaltyFreezeSeconds", "0");
+        properties.setProperty("Seed", "11");
+        Config config = new Config(logger, Simulation.headless(properties));
+        Simulation.Probe probe = new Simulation.Probe(config);
+        Game game = new Game(1, logger, config, probe);
+        game.run();
+
+        Simulation.GameResult result = probe.result();
+        assertEquals(game.stats().totalScore, result.points);
+        assertTrue(result.points > 0);
+        assertTrue(result.claimLatencies.length >= result.points,
+                result.claimLatencies.length + " claim latencies for " + result.points + " points");
+        assertEquals(result.points, result.legalClaims, "every point ends a measured claim");
+    }
+}
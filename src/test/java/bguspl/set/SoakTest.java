@@ -0,0 +1,47 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SoakTest {
+
+    @Test
+    void rising_LeakedThreadPerGame() {
+        long[] threads = {9, 6, 6, 7, 7, 8, 8, 9, 9, 10, 10, 11, 11};
+        assertTrue(Soak.rising(threads, 1, 0, 0));
+    }
+
+    @Test
+    void rising_NoisyButFlat() {
+        long[] heap = {50, 10, 12, 30, 11, 10, 13, 11, 40, 12, 10, 11, 12};
+        assertFalse(Soak.rising(heap, 1, 0.25, 0));
+        assertFalse(Soak.rising(new long[]{1, 2, 3}, 0, 0, 0), "too few samples to tell");
+    }
+
+    @Test
+    void run_BackToBackGames(@TempDir File logs) throws InterruptedException, IOException {
+        Properties properties = new Properties();
+        properties.setProperty("FeatureCount", "3");
+        properties.setProperty("Rows", "3");
+        properties.setProperty("Columns", "3");
+        properties.setProperty("ComputerPlayers", "4");
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("TurnTimeoutSeconds", "0.1");
+        properties.setProperty("PointFreezeSeconds", "0.002");
+        properties.setProperty("PenaltyFreezeSeconds", "0.004");
+        Soak.Report report = Soak.run(properties, 10, logs);
+        assertTrue(report.passed(), report.toString());
+        for (Soak.Metric metric : Soak.Metric.values()) assertEquals(10, report.samples(metric).length);
+        assertTrue(report.samples(Soak.Metric.THREADS)[9] > 0);
+        File[] left = logs.listFiles();
+        assertEquals(0, left == null ? 0 : left.length, "the log files of every game are deleted");
+    }
+}
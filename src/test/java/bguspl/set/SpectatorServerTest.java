@@ -0,0 +1,98 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+class SpectatorServerTest {
+
+    @Mock
+    Logger logger;
+
+    @Test
+    void events_SnapshotThenDeltas() throws IOException {
+        SpectatorServer server = new SpectatorServer(logger, new Config(logger, new Properties()), 64, 10);
+        server.placeCard(17, 3);
+        int port = server.start(0);
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/events").openConnection();
+            BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+            String snapshot = in.readLine();
+            assertTrue(snapshot.startsWith("data: {\"t\":\"snapshot\",\"cards\":[-1,-1,-1,17,"), snapshot);
+            in.readLine();
+
+            server.placeToken(1, 3);
+            server.setScore(1, 4);
+            assertEquals("data: {\"t\":\"tokens\",\"s\":3,\"m\":2}", in.readLine());
+            in.readLine();
+            assertEquals("data: {\"t\":\"score\",\"p\":1,\"v\":4}", in.readLine());
+            in.readLine();
+
+            server.setCountdown(0, false); // the first countdown is published, whatever its value
+            assertEquals("data: {\"t\":\"countdown\",\"v\":0,\"w\":false}", in.readLine());
+            assertEquals(1, server.spectators());
+            connection.disconnect();
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void events_OneThreadForAllTheSpectators() throws IOException {
+        SpectatorServer server = new SpectatorServer(logger, new Config(logger, new Properties()), 64, 2);
+        int port = server.start(0);
+        try {
+            List<BufferedReader> spectators = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                URL url = new URL("http://localhost:" + port + "/events");
+                BufferedReader in = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8));
+                assertTrue(in.readLine().startsWith("data: {\"t\":\"snapshot\""));
+                in.readLine();
+                spectators.add(in);
+            }
+            HttpURLConnection third = (HttpURLConnection) new URL("http://localhost:" + port + "/events").openConnection();
+            assertEquals(503, third.getResponseCode());
+
+            server.placeCard(5, 0);
+            for (BufferedReader in : spectators) assertEquals("data: {\"t\":\"card\",\"s\":0,\"c\":5}", in.readLine());
+            assertEquals(2, server.spectators());
+            assertEquals(1, Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> thread.getName().startsWith("spectator")).count());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void state_Snapshot() throws IOException {
+        SpectatorServer server = new SpectatorServer(logger, new Config(logger, new Properties()), 64, 10);
+        server.setScore(1, 3);
+        int port = server.start(0);
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/state").openConnection();
+            assertEquals("application/json", connection.getContentType());
+            BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+            assertEquals(server.snapshot(), in.readLine());
+            assertNull(in.readLine());
+        } finally {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatsStoreTest {
+
+    private static StatsStore.Record record(long time, String name, boolean won, int sets, int claimLatencyMicros) {
+        StatsStore.Record record = new StatsStore.Record();
+        record.timeMillis = time;
+        record.seed = 7;
+        record.name = name;
+        record.players = 2;
+        record.won = won;
+        record.sets = sets;
+        record.claimLatencyMicros = claimLatencyMicros;
+        return record;
+    }
+
+    @Test
+    void reopen_RebuildsTheIndex(@TempDir File directory) throws IOException {
+        File file = new File(directory, "stats.bin");
+        try (StatsStore store = new StatsStore(file)) {
+            store.append(Arrays.asList(record(1, "alice", true, 5, 100), record(1, "bob", false, 3, 300)));
+            store.append(Arrays.asList(record(2, "alice", false, 1, 400), record(2, "bob", true, 4, 200)));
+            store.append(Collections.singletonList(record(3, "a very long player name", true, 2, 0)));
+        }
+        assertEquals(8 + 5 * StatsStore.RECORD_BYTES, file.length());
+        try (RandomAccessFile torn = new RandomAccessFile(file, "rw")) {
+            torn.setLength(file.length() + StatsStore.RECORD_BYTES / 2); // a crash in the middle of an append
+        }
+
+        try (StatsStore store = new StatsStore(file)) {
+            assertEquals(5, store.size());
+            assertEquals(8 + 5 * StatsStore.RECORD_BYTES, file.length());
+            StatsStore.Standing alice = store.standing("alice");
+            assertEquals(2, alice.games);
+            assertEquals(1, alice.wins);
+            assertEquals(6, alice.sets);
+            assertEquals((5 * 0.1 + 1 * 0.4) / 6, alice.claimLatencyMillis(), 1e-9);
+            assertNull(store.standing("carol"));
+            assertNotNull(store.standing("a very long play"), "names are cut to 16 bytes");
+
+            List<StatsStore.Record> history = store.history("bob", 10);
+            assertEquals(2, history.size());
+            assertEquals(2, history.get(0).timeMillis, "newest first");
+            assertTrue(history.get(0).won);
+            assertEquals(4, history.get(0).sets);
+            assertEquals(200, history.get(0).claimLatencyMicros);
+            assertFalse(history.get(1).won);
+            assertEquals(1, store.history("bob", 1).size());
+
+            List<StatsStore.Standing> leaders = store.leaderboard(2);
+            assertEquals(2, leaders.size());
+            assertEquals("bob", leaders.get(0).name); // 1 win and 7 sets
+            assertEquals("alice", leaders.get(1).name); // 1 win and 6 sets
+        }
+    }
+
+    @Test
+    void append_AfterTheRecordsOfOtherWriters(@TempDir File directory) throws IOException {
+        File file = new File(directory, "stats.bin");
+        try (StatsStore first = new StatsStore(file); StatsStore second = new StatsStore(file)) {
+            first.append(Collections.singletonList(record(1, "alice", true, 5, 100)));
+            second.append(Collections.singletonList(record(2, "bob", true, 3, 300)));
+            first.append(Collections.singletonList(record(3, "alice", false, 1, 400)));
+            assertEquals(3, first.size());
+            assertEquals(1, first.standing("bob").games);
+            assertEquals(2, second.size());
+            assertEquals(1, second.standing("alice").games);
+        }
+        assertEquals(8 + 3 * StatsStore.RECORD_BYTES, file.length());
+        try (StatsStore store = new StatsStore(file)) {
+            assertEquals(2, store.standing("alice").games);
+            assertEquals(1, store.standing("bob").games);
+            assertEquals(2, store.history("bob", 10).get(0).timeMillis);
+        }
+    }
+
+    @Test
+    void leaderboard_ManyRecords(@TempDir File directory) throws IOException {
+        File file = new File(directory, "stats.bin");
+        java.util.SplittableRandom random = new java.util.SplittableRandom(1);
+        try (StatsStore store = new StatsStore(file)) {
+            List<StatsStore.Record> game = new ArrayList<>();
+            for (int i = 0; i < 200_000; i++) {
+                game.add(record(i, "player" + random.nextInt(5_000), random.nextBoolean(), random.nextInt(20), 0));
+                if (game.size() == 1000) {
+                    store.append(game);
+                    game.clear();
+                }
+            }
+        }
+        try (StatsStore store = new StatsStore(file)) {
+            assertEquals(200_000, store.size());
+            List<StatsStore.Standing> all = new ArrayList<>();
+            for (int player = 0; player < 5_000; player++) {
+                StatsStore.Standing standing = store.standing("player" + player);
+                if (standing != null) all.add(standing);
+            }
+            all.sort(Comparator.comparingInt((StatsStore.Standing standing) -> -standing.wins)
+                    .thenComparingLong(standing -> -standing.sets)
+                    .thenComparing(standing -> standing.name));
+            List<StatsStore.Standing> leaders = store.leaderboard(10);
+            assertEquals(all.subList(0, 10), leaders);
+            assertEquals(all.size(), store.leaderboard(all.size() + 1).size());
+            assertTrue(store.leaderboard(0).isEmpty());
+        }
+    }
+
+    @Test
+    void finishedGame_RecordsItsResults(@TempDir File directory) throws IOException {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Properties properties = new Properties();
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("ComputerPlayers", "3");
+        properties.setProperty("FeatureCount", "3");
+        properties.setProperty("TurnTimeoutSeconds", "0.1");
+        properties.setProperty("PointFreezeSeconds", "0");
+        properties.setProperty("PenaltyFreezeSeconds", "0");
+        properties.setProperty("TableDelaySeconds", "0");
+        properties.setProperty("EndGamePauseSeconds", "0");
+        properties.setProperty("LogLevel", "OFF");
+        File file = new File(directory, "stats.bin");
+        properties.setProperty("StatsFile", file.getPath());
+        Config config = new Config(logger, properties);
+        MetricsUserInterface ui = new MetricsUserInterface(config, new RealClock());
+        Game game = new Game(1, logger, config, ui);
+        game.run();
+
+        try (StatsStore store = new StatsStore(file)) {
+            assertEquals(config.players, store.size());
+            int max = Arrays.stream(ui.getScores()).max().getAsInt();
+            List<Integer> winners = new ArrayList<>();
+            for (int player = 0; player < config.players; player++) {
+                List<StatsStore.Record> history = store.history(config.playerNames[player], 1);
+                assertEquals(1, history.size());
+                StatsStore.Record record = history.get(0);
+                assertEquals(ui.getScores()[player], record.sets);
+                assertEquals(ui.getScores()[player] == max, record.won);
+                assertEquals(config.seed, record.seed);
+                if (record.won) winners.add(player);
+            }
+            assertArrayEquals(winners.stream().mapToInt(Integer::intValue).toArray(), ui.getWinners());
+        }
+    }
+}
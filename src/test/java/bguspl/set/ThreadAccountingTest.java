@@ -0,0 +1,50 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ThreadAccountingTest {
+
+    @Test
+    void usage_LiveAndTerminatedThreads() throws InterruptedException {
+        ThreadAccounting accounting = new ThreadAccounting();
+        Logger logger = Logger.getAnonymousLogger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ThreadLogger live = new ThreadLogger(null, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ignored) {
+            }
+        }, "player-test", logger, accounting, LockProfiler.Role.PLAYER);
+        ThreadLogger done = new ThreadLogger(null, () -> {
+            long[] garbage = new long[100_000];
+            garbage[0] = 1;
+        }, "dealer-test", logger, accounting, LockProfiler.Role.DEALER);
+        live.start();
+        done.start();
+        done.join();
+        started.await();
+
+        List<ThreadAccounting.Usage> usage = accounting.usage();
+        assertEquals(2, usage.size());
+        ThreadAccounting.Usage dealer = usage.get(0);
+        assertEquals("dealer-test", dealer.name);
+        assertFalse(dealer.alive);
+        assertTrue(dealer.allocatedBytes < 0 || dealer.allocatedBytes >= 800_000, String.valueOf(dealer.allocatedBytes));
+        assertTrue(usage.get(1).alive);
+        assertTrue(accounting.getSummary().contains("PLAYER   1 threads"), accounting.getSummary());
+
+        release.countDown();
+        live.join();
+        assertFalse(accounting.usage().get(1).alive);
+    }
+}
@@ -0,0 +1,73 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class UserInterfaceDispatcherTest {
+
+    @Mock
+    UserInterface ui;
+    @Mock
+    Logger logger;
+
+    UserInterfaceDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("FrameRate", "0"); // flush by hand
+        dispatcher = new UserInterfaceDispatcher(ui, new Config(logger, properties));
+    }
+
+    @Test
+    void flush_CoalescesCountdown() {
+        for (long millies = 5000; millies > 0; millies--)
+            dispatcher.setCountdown(millies, true);
+        verifyNoInteractions(ui);
+        dispatcher.flush();
+        verify(ui, times(1)).setCountdown(anyLong(), anyBoolean());
+        verify(ui).setCountdown(1, true);
+    }
+
+    @Test
+    void flush_AppliesOnlyTheLastCardOfASlot() {
+        dispatcher.placeCard(3, 0);
+        dispatcher.removeCard(0);
+        dispatcher.placeCard(7, 0);
+        dispatcher.removeCard(1);
+        dispatcher.flush();
+        verify(ui).placeCard(7, 0);
+        verify(ui, never()).placeCard(3, 0);
+        verify(ui).removeCard(1);
+    }
+
+    @Test
+    void flush_AppliesTheTokenDifference() {
+        dispatcher.placeToken(0, 2);
+        dispatcher.placeToken(1, 2);
+        dispatcher.flush();
+        verify(ui).placeToken(0, 2);
+        verify(ui).placeToken(1, 2);
+
+        dispatcher.removeToken(1, 2);
+        dispatcher.placeToken(1, 2); // back to what is shown
+        dispatcher.removeToken(0, 2);
+        dispatcher.flush();
+        verify(ui).removeToken(0, 2);
+        verify(ui, never()).removeToken(1, 2);
+    }
+}
@@ -0,0 +1,43 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class UserInterfaceSpinnerTest {
+
+    @Mock
+    UserInterface ui;
+    @Mock
+    Util util;
+
+    UserInterfaceSpinner spinner;
+
+    @BeforeEach
+    void setUp() {
+        spinner = new UserInterfaceSpinner(util, ui);
+    }
+
+    @Test
+    void placeToken_SpinsThenPassesOn() {
+        spinner.placeToken(1, 3);
+        InOrder order = inOrder(util, ui);
+        order.verify(util).spin();
+        order.verify(ui).placeToken(1, 3);
+    }
+
+    @Test
+    void restoreScore_PassesOnWithoutSpinning() {
+        spinner.restoreScore(0, 2);
+        verify(ui).restoreScore(0, 2);
+        verify(util, never()).spin();
+    }
+}
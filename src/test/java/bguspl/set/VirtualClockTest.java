@@ -0,0 +1,164 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualClockTest {
+
+    VirtualClock clock;
+    Logger logger = Logger.getAnonymousLogger();
+
+    @BeforeEach
+    void setUp() {
+        clock = new VirtualClock();
+    }
+
+    @Test
+    void sleep_JumpsToDeadline() throws InterruptedException {
+        long start = System.nanoTime();
+        clock.sleep(60_000);
+        assertEquals(60_000, clock.millis());
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+    }
+
+    @Test
+    void sleep_ZeroStillLetsTimePass() throws InterruptedException {
+        clock.sleep(0);
+        assertEquals(1, clock.millis());
+    }
+
+    @Test
+    void sleep_ThreadsWakeUpInDeadlineOrder() throws InterruptedException {
+        List<String> order = new CopyOnWriteArrayList<>();
+        Thread late = participant(() -> sleepAndRecord(300, "late", order));
+        Thread early = participant(() -> sleepAndRecord(100, "early", order));
+        clock.register(late); // both are announced before either one can move the time
+        clock.register(early);
+        late.start();
+        early.start();
+        late.join();
+        early.join();
+
+        assertEquals("early@100", order.get(0));
+        assertEquals("late@300", order.get(1));
+    }
+
+    @Test
+    void await_TimesOutWithoutSignal() throws InterruptedException {
+        Object monitor = new Object();
+        synchronized (monitor) {
+            clock.await(monitor, 950);
+        }
+        assertEquals(950, clock.millis());
+    }
+
+    @Test
+    void await_SignalWakesUpWithoutAdvancingTime() throws InterruptedException {
+        Object monitor = new Object();
+        Thread signaller = participant(() -> {
+            try {
+                clock.sleep(10);
+            } catch (InterruptedException ignored) {}
+            synchronized (monitor) {
+                clock.signal(monitor);
+            }
+        });
+        synchronized (monitor) {
+            signaller.start();
+            clock.await(monitor, 1000);
+        }
+        signaller.join();
+        assertEquals(10, clock.millis());
+    }
+
+    @Test
+    void await_TimeoutReleasesWithoutInterrupting() throws InterruptedException {
+        Object monitor = new Object();
+        List<String> order = new CopyOnWriteArrayList<>();
+        Thread waiter = participant(() -> {
+            try {
+                synchronized (monitor) {
+                    clock.await(monitor, 500);
+                }
+                order.add("timeout@" + clock.millis() + (Thread.currentThread().isInterrupted() ? " interrupted" : ""));
+                clock.sleep(100); // would end right away if the release had left an interrupt behind
+                order.add("slept@" + clock.millis());
+            } catch (InterruptedException e) {
+                order.add("interrupted@" + clock.millis());
+            }
+        });
+        waiter.start();
+        waiter.join();
+        assertEquals("[timeout@500, slept@600]", order.toString());
+    }
+
+    @Test
+    void interrupt_EndsTheWaitInTurn() throws InterruptedException {
+        Object monitor = new Object();
+        List<String> order = new CopyOnWriteArrayList<>();
+        Thread waiter = participant(() -> {
+            try {
+                synchronized (monitor) {
+                    clock.await(monitor, 0);
+                }
+                order.add("signalled");
+            } catch (InterruptedException e) {
+                order.add("interrupted@" + clock.millis());
+            }
+        });
+        Thread terminator = participant(() -> {
+            try {
+                clock.sleep(50);
+                clock.interrupt(waiter);
+                order.add("interrupting");
+                clock.join(waiter); // hands the turn to the interrupted thread
+                order.add("joined@" + clock.millis());
+            } catch (InterruptedException ignored) {}
+        });
+        waiter.start();
+        terminator.start();
+        terminator.join();
+        assertEquals("[interrupting, interrupted@50, joined@50]", order.toString());
+        assertFalse(waiter.isAlive());
+    }
+
+    @Test
+    void participants_TakeTurns() throws InterruptedException {
+        List<String> order = new CopyOnWriteArrayList<>();
+        Thread[] threads = new Thread[3];
+        for (int i = 0; i < threads.length; i++) {
+            String name = "t" + i;
+            threads[i] = participant(() -> {
+                try {
+                    for (int round = 0; round < 3; round++) {
+                        order.add(name + "@" + clock.millis());
+                        clock.sleep(0);
+                    }
+                } catch (InterruptedException ignored) {}
+            });
+        }
+        for (Thread thread : threads) clock.register(thread);
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+        assertEquals("[t0@0, t1@0, t2@0, t0@1, t1@1, t2@1, t0@2, t1@2, t2@2]", order.toString());
+    }
+
+    private Thread participant(Runnable body) {
+        return new ThreadLogger(null, body, "participant", logger, null, null, clock);
+    }
+
+    private void sleepAndRecord(long millis, String name, List<String> order) {
+        try {
+            clock.sleep(millis);
+            order.add(name + "@" + clock.millis());
+        } catch (InterruptedException ignored) {}
+    }
+}
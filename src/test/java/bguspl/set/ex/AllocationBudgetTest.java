@@ -0,0 +1,168 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.MetricsUserInterface;
+import bguspl.set.RealClock;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Gates the allocations of the dealer's hot paths: checking claims and dealing cards. The bytes are counted with
+ * ThreadMXBean.getThreadAllocatedBytes on the test thread, which runs the dealer's code directly. Each path runs for
+ * a few rounds and the best round counts, so the JIT warmup (and a GC or a compilation in the middle of a round)
+ * does not.
+ */
+class AllocationBudgetTest {
+
+    /**
+     * The budgets, in bytes.
+     * A legal claim also takes the tokens of the claimed slots off the table, and the players keep their tokens in
+     * copy-on-write lists, which copy the list on every token removed.
+     */
+    private static final double CLAIM_BYTES = 0;
+    private static final double LEGAL_CLAIM_BYTES = 64;
+    private static final double DEALT_CARD_BYTES = 0;
+
+    private static final int ROUNDS = 10;
+    private static final int OPERATIONS = 10_000;
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Env env;
+    private Table table;
+    private Dealer dealer;
+    private Player player;
+
+    private void setUp(boolean guaranteeSet) {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Properties properties = new Properties();
+        properties.setProperty("HumanPlayers", "2");
+        properties.setProperty("ComputerPlayers", "0");
+        properties.setProperty("TableDelaySeconds", "0");
+        properties.setProperty("GuaranteeSet", Boolean.toString(guaranteeSet));
+        properties.setProperty("Seed", "1");
+        properties.setProperty("LogLevel", "OFF");
+        Config config = new Config(logger, properties);
+        // the user interface of headless games, which only updates counters
+        env = new Env(logger, config, new MetricsUserInterface(config, new RealClock()), new UtilImpl(config));
+        table = new Table(env);
+        Player[] players = new Player[config.players];
+        dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++) players[i] = new Player(env, dealer, table, i, true);
+        player = players[0];
+        dealer.placeCardsOnTable();
+    }
+
+    @Test
+    void checkSet_IllegalClaim() {
+        setUp(false);
+        int[] slots = findSlots(false);
+        double bytes = bytesPerOperation(() -> claim(slots), () -> {
+            dealer.checkSet();
+            player.flag = 0;
+        });
+        assertEquals(0, env.metrics.getLegalSets());
+        assertTrue(env.metrics.getIllegalSets() >= OPERATIONS);
+        assertTrue(bytes <= CLAIM_BYTES, "bytes per checked claim: " + bytes + " (budget " + CLAIM_BYTES + ")");
+    }
+
+    @Test
+    void checkSet_LegalClaim() {
+        setUp(false);
+        double bytes = bytesPerOperation(() -> {
+            int[] slots;
+            while ((slots = findSlots(true)) == null) redeal();
+            claim(slots);
+        }, () -> {
+            dealer.checkSet();
+            player.flag = 0;
+        });
+        assertEquals(0, env.metrics.getIllegalSets());
+        assertTrue(bytes <= LEGAL_CLAIM_BYTES,
+                "bytes per legal claim: " + bytes + " (budget " + LEGAL_CLAIM_BYTES + ")");
+    }
+
+    @Test
+    void placeCardsOnTable_GuaranteeSet() {
+        setUp(true);
+        double bytes = bytesPerOperation(dealer::removeAllCardsFromTable, dealer::placeCardsOnTable)
+                / env.config.tableSize;
+        assertTrue(bytes <= DEALT_CARD_BYTES, "bytes per dealt card: " + bytes + " (budget " + DEALT_CARD_BYTES + ")");
+    }
+
+    /**
+     * @param prepare   - prepares an operation (not counted).
+     * @param operation - the operation to count the allocations of.
+     * @return - the bytes allocated per operation in the best round.
+     */
+    private static double bytesPerOperation(Runnable prepare, Runnable operation) {
+        long best = Long.MAX_VALUE;
+        long id = Thread.currentThread().getId();
+        for (int round = 0; round < ROUNDS && best > 0; round++) {
+            long bytes = 0;
+            for (int i = 0; i < OPERATIONS; i++) {
+                prepare.run();
+                long start = threads.getThreadAllocatedBytes(id);
+                operation.run();
+                bytes += threads.getThreadAllocatedBytes(id) - start;
+            }
+            best = Math.min(best, bytes);
+        }
+        return (double) best / OPERATIONS;
+    }
+
+    /**
+     * Places the player's tokens on the slots and hands the claim in to the dealer.
+     */
+    private void claim(int[] slots) {
+        player.getTokenList().clear();
+        for (int slot : slots) player.getTokenList().add(slot);
+        dealer.playersToCheck.add(player);
+    }
+
+    /**
+     * @return - the slots of a legal (or illegal) set on the table, or null if there is none.
+     */
+    private int[] findSlots(boolean legal) {
+        List<Integer> slots = new ArrayList<>();
+        for (int slot = 0; slot < table.slotToCard.length; slot++) if (table.slotToCard[slot] != null) slots.add(slot);
+        int size = env.config.featureSize;
+        int[] combination = new int[size];
+        for (int i = 0; i < size; i++) combination[i] = i;
+        while (size <= slots.size() && combination[size - 1] < slots.size()) {
+            int[] claim = new int[size], cards = new int[size];
+            for (int i = 0; i < size; i++) {
+                claim[i] = slots.get(combination[i]);
+                cards[i] = table.slotToCard[claim[i]];
+            }
+            if (env.util.testSet(cards) == legal) return claim;
+            int t = size - 1;
+            while (t != 0 && combination[t] == slots.size() - size + t) --t;
+            combination[t]++;
+            for (int i = t + 1; i < size; i++) combination[i] = combination[i - 1] + 1;
+        }
+        return null;
+    }
+
+    /**
+     * Starts the deck over (the legal claims take cards out of the game).
+     */
+    private void redeal() {
+        dealer.removeAllCardsFromTable();
+        dealer.deck.clear();
+        for (int card = 0; card < env.config.deckSize; card++) dealer.deck.add(card);
+        dealer.placeCardsOnTable();
+    }
+}
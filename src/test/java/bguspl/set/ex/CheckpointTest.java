@@ -0,0 +1,168 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.Game;
+import bguspl.set.MetricsUserInterface;
+import bguspl.set.RealClock;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckpointTest {
+
+    private final Logger logger = Logger.getAnonymousLogger();
+
+    {
+        logger.setUseParentHandlers(false);
+    }
+
+    private Properties properties() {
+        Properties properties = new Properties();
+        properties.setProperty("HumanPlayers", "0");
+        properties.setProperty("ComputerPlayers", "2");
+        properties.setProperty("TableDelaySeconds", "0");
+        properties.setProperty("PointFreezeSeconds", "0");
+        properties.setProperty("PenaltyFreezeSeconds", "5");
+        properties.setProperty("Seed", "3");
+        properties.setProperty("LogLevel", "OFF");
+        return properties;
+    }
+
+    /**
+     * A dealer and its players, with no threads running.
+     */
+    private class Setup {
+        final Env env;
+        final Table table;
+        final Dealer dealer;
+        final Player[] players;
+
+        Setup(Config config) {
+            env = new Env(logger, config, new MetricsUserInterface(config, new RealClock()), new UtilImpl(config));
+            table = new Table(env);
+            players = new Player[config.players];
+            dealer = new Dealer(env, table, players);
+            for (int i = 0; i < players.length; i++) players[i] = new Player(env, dealer, table, i, false);
+        }
+    }
+
+    @Test
+    void resume_SameState(@TempDir File directory) throws IOException {
+        Config config = new Config(logger, properties());
+        Setup before = new Setup(config);
+        before.dealer.placeCardsOnTable();
+        before.players[0].point();
+        before.players[0].placeToken(0);
+        before.players[0].placeToken(4);
+        before.players[0].placeToken(7); // a claim waiting for its verdict
+        before.players[1].placeToken(2);
+        Thread.currentThread().interrupt(); // the freeze is cut short, as when the game is stopped
+        before.players[1].penalty();
+        Thread.interrupted();
+
+        File file = new File(directory, "game.checkpoint");
+        Checkpoint taken = before.dealer.checkpoint();
+        taken.save(file);
+        Checkpoint loaded = Checkpoint.load(file);
+        assertEquals(config.hash, loaded.configHash());
+        assertArrayEquals(taken.deck, loaded.deck);
+        assertEquals(config.deckSize, loaded.remainingCards());
+        assertArrayEquals(taken.table, loaded.table);
+        assertArrayEquals(taken.scores, loaded.scores);
+        assertArrayEquals(new int[]{Checkpoint.CLAIM_PENDING, Checkpoint.NO_CLAIM}, loaded.claims);
+        assertArrayEquals(new int[]{0, 4, 7}, loaded.tokens[0]);
+        assertArrayEquals(new int[]{2}, loaded.tokens[1]);
+        assertEquals(0, loaded.freezeMillis[0]);
+        assertTrue(loaded.freezeMillis[1] > 0 && loaded.freezeMillis[1] <= config.penaltyFreezeMillis);
+        assertTrue(file.length() < 256, "checkpoint of " + file.length() + " bytes");
+
+        Setup after = new Setup(config);
+        after.dealer.resume(loaded);
+        assertArrayEquals(before.table.slotToCard, after.table.slotToCard);
+        assertArrayEquals(before.table.cardToSlot, after.table.cardToSlot);
+        assertEquals(before.dealer.deck, after.dealer.deck);
+        for (int i = 0; i < config.players; i++) {
+            assertEquals(before.players[i].score(), after.players[i].score());
+            assertEquals(before.players[i].getTokenList(), after.players[i].getTokenList());
+        }
+        assertFalse(after.players[1].keyPressed(1), "a frozen player takes no key presses");
+        Checkpoint again = after.dealer.checkpoint();
+        assertArrayEquals(loaded.claims, again.claims);
+        assertArrayEquals(loaded.table, again.table);
+    }
+
+    @Test
+    void resume_NotCountedAsPlay() {
+        Config config = new Config(logger, properties());
+        Setup before = new Setup(config);
+        before.dealer.placeCardsOnTable();
+        before.players[0].point();
+        before.players[1].placeToken(3);
+        before.players[1].placeToken(5);
+
+        Setup after = new Setup(config);
+        after.dealer.resume(before.dealer.checkpoint());
+        MetricsUserInterface ui = (MetricsUserInterface) after.env.ui;
+        assertArrayEquals(new int[]{1, 0}, ui.getScores());
+        assertEquals(2, ui.getTokensOnTable());
+        assertEquals(0, ui.getPoints(), "restored scores are not points scored");
+        assertEquals(0, ui.getScoreTimeline().length);
+        assertEquals(0, ui.getTokensPlaced(), "restored tokens are not tokens placed");
+        assertArrayEquals(new double[config.players], after.env.metrics.getTokensPerSecond());
+        assertEquals(Arrays.asList(3, 5), after.players[1].getTokenList());
+
+        after.players[1].placeToken(7); // and the game goes on from there
+        assertEquals(1, ui.getTokensPlaced());
+        assertEquals(3, ui.getTokensOnTable());
+    }
+
+    @Test
+    @Timeout(60)
+    void stoppedGame_Resumes(@TempDir File directory) throws InterruptedException, IOException {
+        Properties properties = properties();
+        properties.setProperty("ComputerPlayers", "3");
+        properties.setProperty("PenaltyFreezeSeconds", "0");
+        properties.setProperty("TurnTimeoutSeconds", "0.1");
+        properties.setProperty("EndGamePauseSeconds", "0");
+        properties.setProperty("CheckpointDirectory", directory.getPath());
+        properties.setProperty("CheckpointSeconds", "0");
+        Config config = new Config(logger, properties);
+        File file = new File(directory, "game-1.checkpoint");
+
+        Game stopped = new Game(1, logger, config, new MetricsUserInterface(config, new RealClock()));
+        Thread thread = new Thread(stopped);
+        thread.start();
+        while (stopped.stats().totalScore < 3) Thread.sleep(1);
+        stopped.stop();
+        thread.join();
+        assertEquals(Game.State.STOPPED, stopped.state());
+        assertTrue(file.exists());
+        Checkpoint checkpoint = Checkpoint.load(file);
+        int[] scores = Arrays.copyOf(checkpoint.scores, checkpoint.players());
+        assertEquals(stopped.stats().totalScore, Arrays.stream(scores).sum());
+        // a legal set whose point was not given yet is off the table too (the point is given on resume)
+        long sets = Arrays.stream(scores).sum()
+                + Arrays.stream(checkpoint.claims).filter(claim -> claim == Checkpoint.CLAIM_LEGAL).count();
+        assertEquals(config.featureSize * sets, config.deckSize - checkpoint.remainingCards(),
+                "the cards of the legal sets are out of the game");
+
+        Game resumed = new Game(1, logger, config, new MetricsUserInterface(config, new RealClock()));
+        resumed.run();
+        assertEquals(Game.State.FINISHED, resumed.state());
+        for (int i = 0; i < scores.length; i++) assertTrue(resumed.players()[i].score() >= scores[i]);
+        assertFalse(file.exists(), "a finished game deletes its checkpoint");
+    }
+}
@@ -0,0 +1,317 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterface;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the real dealer, player and table threads together and checks the table invariants and the scoring under
+ * contention. Util.spin is injected into the callbacks the game makes while it holds its locks (the user interface
+ * and the set checks), so every run explores different interleavings.
+ */
+class ConcurrencyStressTest {
+
+    private final Logger logger = Logger.getAnonymousLogger();
+
+    {
+        logger.setUseParentHandlers(false);
+    }
+
+    @Test
+    @Timeout(60)
+    void fullGames_KeepTheInvariants() throws InterruptedException {
+        for (int seed = 0; seed < 3; seed++) {
+            Properties properties = properties(0, 6);
+            properties.setProperty("Seed", Integer.toString(seed));
+            properties.setProperty("TurnTimeoutSeconds", "0.5");
+            properties.setProperty("PointFreezeSeconds", "0.01");
+            properties.setProperty("PenaltyFreezeSeconds", "0.01");
+            Config config = new Config(logger, properties);
+            CheckingUserInterface ui = new CheckingUserInterface(config);
+            SpinningUtil util = new SpinningUtil(new UtilImpl(config));
+            ui.util = util;
+            Env env = new Env(logger, config, ui, util);
+            Table table = new Table(env);
+            Player[] players = new Player[config.players];
+            Dealer dealer = new Dealer(env, table, players);
+            for (int i = 0; i < players.length; i++) players[i] = new Player(env, dealer, table, i, false);
+
+            Thread dealerThread = new Thread(dealer, "dealer");
+            dealerThread.start();
+            Thread.sleep(2000);
+            dealer.terminate();
+            dealerThread.join();
+
+            assertEquals(Collections.emptyList(), ui.violations);
+            int scores = 0;
+            for (Player player : players) scores += player.score();
+            assertEquals(util.legalSets(), scores, "a point per legal set");
+            assertEquals(env.metrics.getLegalSets(), scores);
+            assertTableConsistent(table);
+            // every card is on the table, in the deck or was taken in a legal set
+            assertEquals(config.deckSize, dealer.deck.size() + table.countCards() + scores * config.featureSize);
+        }
+    }
+
+    @Test
+    @Timeout(60)
+    void sameSetClaimedTwice_OnlyOnePoint() throws InterruptedException {
+        Properties properties = properties(2, 0);
+        properties.setProperty("TurnTimeoutSeconds", "600");
+        properties.setProperty("PointFreezeSeconds", "0");
+        properties.setProperty("PenaltyFreezeSeconds", "0");
+        Config config = new Config(logger, properties);
+        CheckingUserInterface ui = new CheckingUserInterface(config);
+        SpinningUtil util = new SpinningUtil(new UtilImpl(config));
+        ui.util = util;
+        Env env = new Env(logger, config, ui, util);
+        Table table = new Table(env);
+        Player[] players = new Player[config.players];
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++) players[i] = new Player(env, dealer, table, i, true);
+
+        Thread dealerThread = new Thread(dealer, "dealer");
+        dealerThread.start();
+        try {
+            final int ROUNDS = 15;
+            for (int round = 1; round <= ROUNDS; round++) {
+                int[] slots = awaitSet(table, util);
+                assertNotNull(slots, "no set on the table");
+                // hold the dealer back until both players placed their tokens, so both claims reference the set
+                synchronized (dealer) {
+                    for (int slot : slots)
+                        for (Player player : players) player.keyPressed(slot);
+                    await(() -> players[0].getTokenList().size() == config.featureSize
+                            && players[1].getTokenList().size() == config.featureSize);
+                }
+                final int points = round;
+                await(() -> players[0].score() + players[1].score() == points
+                        && idle(players[0]) && idle(players[1]) && dealer.playersToCheck.isEmpty());
+            }
+            assertEquals(ROUNDS, env.metrics.getLegalSets());
+            assertEquals(0, env.metrics.getIllegalSets(), "the second claim of a set is not a penalty");
+            assertEquals(Collections.emptyList(), ui.violations);
+            assertTableConsistent(table);
+        } finally {
+            dealer.terminate();
+            dealerThread.join();
+        }
+    }
+
+    private Properties properties(int humans, int computers) {
+        Properties properties = new Properties();
+        properties.setProperty("HumanPlayers", Integer.toString(humans));
+        properties.setProperty("ComputerPlayers", Integer.toString(computers));
+        properties.setProperty("TableDelaySeconds", "0");
+        properties.setProperty("EndGamePauseSeconds", "0");
+        properties.setProperty("GuaranteeSet", "True");
+        properties.setProperty("Hints", "False");
+        properties.setProperty("RandomSpinMin", "0");
+        properties.setProperty("RandomSpinMax", "20");
+        return properties;
+    }
+
+    private static void assertTableConsistent(Table table) {
+        synchronized (table) {
+            for (int slot = 0; slot < table.slotToCard.length; slot++) {
+                Integer card = table.slotToCard[slot];
+                if (card != null) assertEquals(Integer.valueOf(slot), table.cardToSlot[card]);
+            }
+            for (int card = 0; card < table.cardToSlot.length; card++) {
+                Integer slot = table.cardToSlot[card];
+                if (slot != null) assertEquals(Integer.valueOf(card), table.slotToCard[slot]);
+            }
+        }
+    }
+
+    /**
+     * @return - the slots of a legal set on the table, once the table has one.
+     */
+    private static int[] awaitSet(Table table, Util util) throws InterruptedException {
+        for (int attempt = 0; attempt < 1000; attempt++) {
+            synchronized (table) {
+                List<Integer> cards = new ArrayList<>();
+                for (Integer card : table.slotToCard) if (card != null) cards.add(card);
+                List<int[]> sets = util.findSets(cards, 1);
+                if (!sets.isEmpty()) {
+                    int[] slots = new int[sets.get(0).length];
+                    for (int i = 0; i < slots.length; i++) slots[i] = table.cardToSlot[sets.get(0)[i]];
+                    return slots;
+                }
+            }
+            Thread.sleep(10);
+        }
+        return null;
+    }
+
+    /**
+     * @return - true iff the player has no tokens and waits for key presses (and not e.g. to hand in a claim).
+     */
+    private static boolean idle(Player player) {
+        return player.flag == 0 && player.getTokenList().isEmpty() && player.queueOfActions.isEmpty()
+                && player.getPlayerThread().getState() == Thread.State.WAITING;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Spins in the set checks the dealer makes while it holds its locks, and counts the legal sets.
+     */
+    private static class SpinningUtil implements Util {
+
+        private final Util util;
+        private int legalSets;
+
+        SpinningUtil(Util util) {
+            this.util = util;
+        }
+
+        synchronized int legalSets() {
+            return legalSets;
+        }
+
+        @Override
+        public int[] cardToFeatures(int card) {
+            return util.cardToFeatures(card);
+        }
+
+        @Override
+        public int[][] cardsToFeatures(int[] cards) {
+            return util.cardsToFeatures(cards);
+        }
+
+        @Override
+        public boolean testSet(int[] cards) {
+            spin();
+            boolean legal = util.testSet(cards);
+            if (legal) synchronized (this) {
+                legalSets++;
+            }
+            return legal;
+        }
+
+        @Override
+        public List<int[]> findSets(List<Integer> deck, int count) {
+            return util.findSets(deck, count);
+        }
+
+        @Override
+        public void spin() {
+            util.spin();
+        }
+    }
+
+    /**
+     * Checks every change the game shows against the table as shown so far, and spins while the game holds the
+     * table lock. The checks run on the game threads, so the violations are collected instead of thrown.
+     */
+    private static class CheckingUserInterface implements UserInterface {
+
+        final List<String> violations = Collections.synchronizedList(new ArrayList<>());
+        volatile Util util;
+        private final int setSize;
+        private final Integer[] cards;
+        private final boolean[][] tokens;
+        private final int[] scores;
+
+        CheckingUserInterface(Config config) {
+            setSize = config.featureSize;
+            cards = new Integer[config.tableSize];
+            tokens = new boolean[config.players][config.tableSize];
+            scores = new int[config.players];
+        }
+
+        private void check(boolean condition, String violation) {
+            if (!condition) violations.add(violation);
+            if (util != null) util.spin();
+        }
+
+        private int tokenCount(int player) {
+            int count = 0;
+            for (boolean token : tokens[player]) if (token) count++;
+            return count;
+        }
+
+        @Override
+        public synchronized void placeCard(int card, int slot) {
+            check(cards[slot] == null, "card " + card + " placed on the card in slot " + slot);
+            for (Integer other : cards) check(other == null || other != card, "card " + card + " placed twice");
+            cards[slot] = card;
+        }
+
+        @Override
+        public synchronized void removeCard(int slot) {
+            check(cards[slot] != null, "card removed from the empty slot " + slot);
+            for (int player = 0; player < tokens.length; player++)
+                check(!tokens[player][slot], "card removed from under a token of player " + player);
+            cards[slot] = null;
+        }
+
+        @Override
+        public synchronized void placeToken(int player, int slot) {
+            check(cards[slot] != null, "token of player " + player + " placed on the empty slot " + slot);
+            check(!tokens[player][slot], "second token of player " + player + " on slot " + slot);
+            check(tokenCount(player) < setSize, "too many tokens for player " + player);
+            tokens[player][slot] = true;
+        }
+
+        @Override
+        public synchronized void removeTokens() {
+            for (boolean[] playerTokens : tokens) java.util.Arrays.fill(playerTokens, false);
+        }
+
+        @Override
+        public synchronized void removeTokens(int slot) {
+            for (boolean[] playerTokens : tokens) playerTokens[slot] = false;
+        }
+
+        @Override
+        public synchronized void removeToken(int player, int slot) {
+            check(tokens[player][slot], "missing token of player " + player + " removed from slot " + slot);
+            tokens[player][slot] = false;
+        }
+
+        @Override
+        public synchronized void setScore(int player, int score) {
+            check(score == scores[player] + 1, "player " + player + " score jumped to " + score);
+            scores[player] = score;
+        }
+
+        @Override
+        public void setCountdown(long millies, boolean warn) {}
+
+        @Override
+        public void setElapsed(long millies) {}
+
+        @Override
+        public void setFreeze(int player, long millies) {}
+
+        @Override
+        public void announceWinner(int[] players) {}
+
+        @Override
+        public void dispose() {}
+    }
+}
@@ -1,64 +1,154 @@
-package bguspl.set.ex;
-
-import bguspl.set.Config;
-import bguspl.set.Env;
-import bguspl.set.UserInterface;
-import bguspl.set.Util;
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
-
-import java.util.List;
-import java.util.logging.Logger;
-
-import static org.junit.jupiter.api.Assertions.assertEquals;
-
-@ExtendWith(MockitoExtension.class)
-class DealerTest {
-
-    Dealer dealer;
-    @Mock
-    Env env;
-    @Mock
-    Table table;
-    @Mock
-    private UserInterface ui;
-    @Mock
-    Util util;
-    @Mock
-    private Logger logger;
-    @Mock
-    private List<Integer> remainingCards;
-
-    @BeforeEach
-    void setUp() {
-        // purposely do not find the configuration files (use defaults here).
-        Env env = new Env(logger, new Config(logger, (String) null), ui, util);
-        Player[] players = new Player[env.config.players];
-        dealer = new Dealer(env, table, players);
-    }
-
-    void tearDown() {
-        
-    }
-
-    @Test
-    void addPlayerToCheck(){
-        int expectedPlayersToCheckSize = dealer.playersToCheck.size() + 1;
-        dealer.addPlayerToCheck(new Player(env, dealer, table, 1, true));
-        assertEquals(expectedPlayersToCheckSize, dealer.playersToCheck.size());
-    }
-
-    
-    @Test
-    void shouldFinish(){
-        dealer.terminate = true;
-        assertEquals(dealer.terminate, dealer.shouldFinish());
-    }
-    
-
-
-
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterface;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+class DealerTest {
+
+    Dealer dealer;
+    @Mock
+    Env env;
+    @Mock
+    Table table;
+    @Mock
+    private UserInterface ui;
+    @Mock
+    Util util;
+    @Mock
+    private Logger logger;
+    @Mock
+    private List<Integer> remainingCards;
+
+    @BeforeEach
+    void setUp() {
+        // purposely do not find the configuration files (use defaults here).
+        Env env = new Env(logger, new Config(logger, (String) null), ui, util);
+        Player[] players = new Player[env.config.players];
+        dealer = new Dealer(env, table, players);
+    }
+
+    void tearDown() {
+        
+    }
+
+    @Test
+    void addPlayerToCheck(){
+        int expectedPlayersToCheckSize = dealer.playersToCheck.size() + 1;
+        dealer.addPlayerToCheck(new Player(env, dealer, table, 1, true));
+        assertEquals(expectedPlayersToCheckSize, dealer.playersToCheck.size());
+    }
+
+    
+    @Test
+    void shouldFinish(){
+        dealer.terminate = true;
+        assertEquals(dealer.terminate, dealer.shouldFinish());
+    }
+
+    @Test
+    void placeCardsOnTable_SameSeedSameDeal(){
+        assertArrayEquals(dealWithSeed("42"), dealWithSeed("42"));
+        assertFalse(Arrays.equals(dealWithSeed("42"), dealWithSeed("43")));
+    }
+
+    @Test
+    void placeCardsOnTable_GuaranteeSet(){
+        int avoided = 0;
+        for (int seed = 0; seed < 200; seed++) {
+            Properties properties = new Properties();
+            properties.put("Seed", Integer.toString(seed));
+            properties.put("TableDelaySeconds", "0");
+            properties.put("GuaranteeSet", "True");
+            Config config = new Config(logger, properties);
+            Util util = new UtilImpl(config);
+            Env env = new Env(logger, config, ui, util);
+            Table table = new Table(env);
+            Dealer dealer = new Dealer(env, table, new Player[env.config.players]);
+            dealer.placeCardsOnTable();
+
+            List<Integer> cards = Arrays.asList(table.slotToCard);
+            assertEquals(config.tableSize, new HashSet<>(cards).size());
+            assertFalse(util.findSets(cards, 1).isEmpty());
+            assertEquals(config.deckSize - config.tableSize, dealer.deck.size());
+            assertFalse(dealer.deck.stream().anyMatch(cards::contains));
+            assertEquals(0, dealer.deadRoundsReshuffled()); // a full deck always has a card that completes a set
+            avoided += dealer.deadRoundsAvoided();
+        }
+        assertTrue(avoided > 0);
+    }
+
+    @Test
+    void placeCardsOnTable_GuaranteeSetReshufflesWhenTheDeckCannotCompleteASet(){
+        for (String featureSize : new String[]{"3", "4"}) {
+            Properties properties = new Properties();
+            properties.put("FeatureSize", featureSize);
+            properties.put("FeatureCount", "4");
+            properties.put("TableDelaySeconds", "0");
+            properties.put("GuaranteeSet", "True");
+            Config config = new Config(logger, properties);
+            Util util = new UtilImpl(config);
+            Env env = new Env(logger, config, ui, util);
+            Table table = new Table(env);
+            Dealer dealer = new Dealer(env, table, new Player[env.config.players]);
+            List<Integer> noSet = cardsWithoutASet(util, config);
+            dealer.deck.clear();
+            dealer.deck.addAll(noSet); // every card is dealt, so none is left to swap in
+            dealer.placeCardsOnTable();
+
+            List<Integer> cards = Arrays.asList(table.slotToCard);
+            assertEquals(new HashSet<>(noSet), new HashSet<>(cards));
+            assertTrue(util.findSets(cards, 1).isEmpty());
+            assertEquals(0, dealer.deadRoundsAvoided());
+            assertEquals(1, dealer.deadRoundsReshuffled());
+        }
+    }
+
+    /**
+     * @return - as many cards as the table holds, with no legal set among them (picked greedily from the deck).
+     */
+    private static List<Integer> cardsWithoutASet(Util util, Config config){
+        List<Integer> cards = new ArrayList<>();
+        for (int card = 0; card < config.deckSize && cards.size() < config.tableSize; card++) {
+            cards.add(card);
+            if (!util.findSets(cards, 1).isEmpty()) cards.remove(cards.size() - 1);
+        }
+        assertEquals(config.tableSize, cards.size());
+        return cards;
+    }
+
+    private Integer[] dealWithSeed(String seed){
+        Properties properties = new Properties();
+        properties.put("Seed", seed);
+        properties.put("TableDelaySeconds", "0");
+        Env env = new Env(logger, new Config(logger, properties), ui, util);
+        Table table = new Table(env);
+        Dealer dealer = new Dealer(env, table, new Player[env.config.players]);
+        dealer.placeCardsOnTable();
+        return table.slotToCard;
+    }
+    
+
+
+
 }
\ No newline at end of file
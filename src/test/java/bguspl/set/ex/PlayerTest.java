@@ -1,90 +1,101 @@
-package bguspl.set.ex;
-
-import bguspl.set.Config;
-import bguspl.set.Env;
-import bguspl.set.UserInterface;
-import bguspl.set.Util;
-import org.junit.jupiter.api.AfterEach;
-import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
-
-import java.util.logging.Logger;
-
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
-
-@ExtendWith(MockitoExtension.class)
-class PlayerTest {
-
-    Player player;
-    @Mock
-    Util util;
-    @Mock
-    private UserInterface ui;
-    @Mock
-    private Table table;
-    @Mock
-    private Dealer dealer;
-    @Mock
-    private Logger logger;
-
-    void assertInvariants() {
-        assertTrue(player.id >= 0);
-        assertTrue(player.score() >= 0);
-    }
-
-    @BeforeEach
-    void setUp() {
-        // purposely do not find the configuration files (use defaults here).
-        Env env = new Env(logger, new Config(logger, (String) null), ui, util);
-        player = new Player(env, dealer, table, 0, false);
-        assertInvariants();
-    }
-
-    @AfterEach
-    void tearDown() {
-        assertInvariants();
-    }
-
-    @Test
-    void point() {
-
-        // force table.countCards to return 3
-        when(table.countCards()).thenReturn(3); // this part is just for demonstration
-
-        // calculate the expected score for later
-        int expectedScore = player.score() + 1;
-
-        // call the method we are testing
-        player.point();
-
-        // check that the score was increased correctly
-        assertEquals(expectedScore, player.score());
-
-        // check that ui.setScore was called with the player's id and the correct score
-        verify(ui).setScore(eq(player.id), eq(expectedScore));
-    }
-
-    @Test
-    void penalty(){
-        int expectedFlag = 0;
-        player.penalty();
-        assertEquals(expectedFlag, player.flag);
-    }
-
-    @Test
-    void keyPressed(){
-        int slot = 1;
-        int expectedQueueOfActionsSize = player.queueOfActions.size() + 1;
-        player.keyPressed(slot);
-        assertEquals(expectedQueueOfActionsSize, player.queueOfActions.size());
-    }
-
-
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterface;
+import bguspl.set.Util;
+import bguspl.set.VirtualClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PlayerTest {
+
+    Player player;
+    @Mock
+    Util util;
+    @Mock
+    private UserInterface ui;
+    @Mock
+    private Table table;
+    @Mock
+    private Dealer dealer;
+    @Mock
+    private Logger logger;
+
+    void assertInvariants() {
+        assertTrue(player.id >= 0);
+        assertTrue(player.score() >= 0);
+    }
+
+    @BeforeEach
+    void setUp() {
+        // purposely do not find the configuration files (use defaults here).
+        Env env = new Env(logger, new Config(logger, (String) null), ui, util);
+        player = new Player(env, dealer, table, 0, false);
+        assertInvariants();
+    }
+
+    @AfterEach
+    void tearDown() {
+        assertInvariants();
+    }
+
+    @Test
+    void point() {
+
+        // force table.countCards to return 3
+        when(table.countCards()).thenReturn(3); // this part is just for demonstration
+
+        // calculate the expected score for later
+        int expectedScore = player.score() + 1;
+
+        // call the method we are testing
+        player.point();
+
+        // check that the score was increased correctly
+        assertEquals(expectedScore, player.score());
+
+        // check that ui.setScore was called with the player's id and the correct score
+        verify(ui).setScore(eq(player.id), eq(expectedScore));
+    }
+
+    @Test
+    void penalty(){
+        int expectedFlag = 0;
+        player.penalty();
+        assertEquals(expectedFlag, player.flag);
+    }
+
+    @Test
+    void penalty_VirtualClock(){
+        Env env = new Env(logger, new Config(logger, (String) null), ui, util, new VirtualClock());
+        player = new Player(env, dealer, table, 0, false);
+        long expectedEnd = env.clock.millis() + env.config.penaltyFreezeMillis;
+        player.penalty();
+        assertEquals(expectedEnd, env.clock.millis());
+        verify(ui).setFreeze(eq(player.id), eq(0L));
+    }
+
+    @Test
+    void keyPressed(){
+        int slot = 1;
+        int expectedQueueOfActionsSize = player.queueOfActions.size() + 1;
+        player.keyPressed(slot);
+        assertEquals(expectedQueueOfActionsSize, player.queueOfActions.size());
+    }
+
+
 }
\ No newline at end of file